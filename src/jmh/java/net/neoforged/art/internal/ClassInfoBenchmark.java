@@ -0,0 +1,36 @@
+/*
+ * Copyright (c) Forge Development LLC and contributors
+ * SPDX-License-Identifier: LGPL-2.1-only
+ */
+
+package net.neoforged.art.internal;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Setup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Reads the {@link ClassProviderImpl.ClassInfo} of every class of the {@link SyntheticJar} from its class file.
+ */
+public class ClassInfoBenchmark extends ThreadedBenchmark {
+    private List<byte[]> classes;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        this.classes = new ArrayList<>(SyntheticJar.builder().classes(5000).build().getClasses().values());
+    }
+
+    @Benchmark
+    public long read() {
+        LongAdder members = new LongAdder();
+        forAll(this.classes, data -> {
+            ClassProviderImpl.ClassInfo info = new ClassProviderImpl.ClassInfo(data);
+            members.add(info.getFields().size() + info.getMethods().size());
+        });
+        return members.sum();
+    }
+}
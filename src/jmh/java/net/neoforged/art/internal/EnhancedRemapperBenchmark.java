@@ -0,0 +1,67 @@
+/*
+ * Copyright (c) Forge Development LLC and contributors
+ * SPDX-License-Identifier: LGPL-2.1-only
+ */
+
+package net.neoforged.art.internal;
+
+import net.neoforged.art.api.ClassProvider;
+import net.neoforged.srgutils.IMappingFile;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Looks up the mapped names of all members referenced by the {@link SyntheticJar}, either with a new remapper that has to
+ * resolve every class hierarchy on demand, or with one whose classes are already resolved.
+ */
+public class EnhancedRemapperBenchmark extends ThreadedBenchmark {
+    private List<String[]> methods;
+    private List<String[]> fields;
+    private IMappingFile mappings;
+    private ClassProvider provider;
+    private EnhancedRemapper warm;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        SyntheticJar jar = SyntheticJar.builder().classes(5000).build();
+        this.methods = jar.getMethodReferences();
+        this.fields = jar.getFieldReferences();
+        this.mappings = jar.getMappings();
+
+        ClassProvider.Builder builder = ClassProvider.builder();
+        jar.getClasses().forEach(builder::addClass);
+        this.provider = new SortedClassProvider(Arrays.asList(builder.build(), ClassProvider.fromJvmClasspath()), line -> {});
+        this.warm = new EnhancedRemapper(this.provider, this.mappings, line -> {});
+        this.warm.resolve(jar.getClasses().keySet(), this.executor).join();
+        lookup(this.warm);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        this.provider.close();
+    }
+
+    @Benchmark
+    public long cold() {
+        return lookup(new EnhancedRemapper(this.provider, this.mappings, line -> {}));
+    }
+
+    @Benchmark
+    public long warm() {
+        return lookup(this.warm);
+    }
+
+    private long lookup(EnhancedRemapper remapper) {
+        LongAdder length = new LongAdder();
+        forAll(this.methods, ref -> length.add(remapper.mapMethodName(ref[0], ref[1], ref[2]).length()));
+        forAll(this.fields, ref -> length.add(remapper.mapFieldName(ref[0], ref[1], ref[2]).length()));
+        return length.sum();
+    }
+}
@@ -0,0 +1,76 @@
+/*
+ * Copyright (c) Forge Development LLC and contributors
+ * SPDX-License-Identifier: LGPL-2.1-only
+ */
+
+package net.neoforged.art.internal;
+
+import net.neoforged.art.api.ClassProvider;
+import net.neoforged.srgutils.IMappingFile;
+import org.objectweb.asm.ClassReader;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Resolves the leaves of deep class hierarchies of the {@link SyntheticJar} with a new remapper, so that all threads
+ * resolve the ancestors the leaves share at the same time, and wait on each other for the ones another thread got to first.
+ */
+public class EnhancedRemapperContentionBenchmark extends ThreadedBenchmark {
+    private List<String> leaves;
+    private IMappingFile mappings;
+    private ClassProvider provider;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        SyntheticJar jar = SyntheticJar.builder().classes(5000).depth(16).build();
+        this.mappings = jar.getMappings();
+
+        Set<String> parents = new HashSet<>();
+        for (byte[] data : jar.getClasses().values()) {
+            ClassReader reader = new ClassReader(data);
+            parents.add(reader.getSuperName());
+            parents.addAll(Arrays.asList(reader.getInterfaces()));
+        }
+        List<String> leaves = new ArrayList<>();
+        for (Map.Entry<String, byte[]> entry : jar.getClasses().entrySet()) {
+            if (!parents.contains(entry.getKey()))
+                leaves.add(entry.getKey());
+        }
+        // Shuffled, so that every thread gets leaves of all hierarchies instead of a few hierarchies of its own
+        Collections.shuffle(leaves, new Random(SyntheticJar.Builder.DEFAULT_SEED));
+        this.leaves = leaves;
+
+        ClassProvider.Builder builder = ClassProvider.builder();
+        jar.getClasses().forEach(builder::addClass);
+        this.provider = new SortedClassProvider(Arrays.asList(builder.build(), ClassProvider.fromJvmClasspath()), line -> {});
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        this.provider.close();
+    }
+
+    @Benchmark
+    public long resolve() {
+        EnhancedRemapper remapper = new EnhancedRemapper(this.provider, this.mappings, line -> {});
+        LongAdder found = new LongAdder();
+        forAll(this.leaves, cls -> {
+            if (remapper.hasClass(cls))
+                found.increment();
+        });
+        return found.sum();
+    }
+}
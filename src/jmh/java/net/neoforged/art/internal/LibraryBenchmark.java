@@ -0,0 +1,73 @@
+/*
+ * Copyright (c) Forge Development LLC and contributors
+ * SPDX-License-Identifier: LGPL-2.1-only
+ */
+
+package net.neoforged.art.internal;
+
+import net.neoforged.art.api.ClassProvider;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Stream;
+
+/**
+ * Adds a large {@link SyntheticJar} as a library and looks up all of its classes, optionally with a library index
+ * that has been written by a previous run.
+ */
+public class LibraryBenchmark extends ThreadedBenchmark {
+    @Param({"false", "true"})
+    public boolean indexed;
+
+    private Path directory;
+    private Path library;
+    private List<String> classes;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        SyntheticJar jar = SyntheticJar.builder().classes(20000).build();
+        this.classes = new ArrayList<>(jar.getClasses().keySet());
+        this.directory = Files.createTempDirectory("art-benchmark");
+        this.library = this.directory.resolve("library.jar");
+        jar.write(this.library);
+        if (this.indexed)
+            addLibrary().close();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        try (Stream<Path> files = Files.walk(this.directory)) {
+            files.sorted(Comparator.reverseOrder()).map(Path::toFile).forEach(File::delete);
+        }
+    }
+
+    @Benchmark
+    public long addLibraryAndLookup() throws IOException {
+        try (ClassProvider provider = addLibrary()) {
+            LongAdder found = new LongAdder();
+            forAll(this.classes, cls -> {
+                if (provider.getClass(cls).isPresent())
+                    found.increment();
+            });
+            return found.sum();
+        }
+    }
+
+    private ClassProvider addLibrary() {
+        ClassProvider.Builder builder = ClassProvider.builder();
+        if (this.indexed)
+            builder.cacheDirectory(this.directory.resolve("index"));
+        return builder.addLibrary(this.library).build();
+    }
+}
@@ -0,0 +1,46 @@
+/*
+ * Copyright (c) Forge Development LLC and contributors
+ * SPDX-License-Identifier: LGPL-2.1-only
+ */
+
+package net.neoforged.art.internal;
+
+import net.neoforged.art.api.Renamer;
+import net.neoforged.art.api.Transformer;
+import net.neoforged.art.api.Transformer.Entry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Renames the whole {@link SyntheticJar}, including preparing the transformers and sorting the output.
+ */
+public class RenamerBenchmark extends ThreadedBenchmark {
+    private List<Entry> entries;
+    private Renamer renamer;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        SyntheticJar jar = SyntheticJar.builder().classes(5000).build();
+        this.entries = jar.getEntries();
+        this.renamer = Renamer.builder()
+            .logger(line -> {})
+            .withJvmClasspath()
+            .add(Transformer.renamerFactory(jar.getMappings(), true))
+            .build();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        this.renamer.close();
+    }
+
+    @Benchmark
+    public List<Entry> run() {
+        return this.renamer.run(this.entries, this.executor).join();
+    }
+}
@@ -0,0 +1,58 @@
+/*
+ * Copyright (c) Forge Development LLC and contributors
+ * SPDX-License-Identifier: LGPL-2.1-only
+ */
+
+package net.neoforged.art.internal;
+
+import net.neoforged.art.api.ClassProvider;
+import net.neoforged.art.api.Transformer.ClassEntry;
+import net.neoforged.art.api.Transformer.Entry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Processes every class of the {@link SyntheticJar} with a prepared {@link RenamingTransformer}, which excludes reading
+ * and sorting the entries from the measurement.
+ */
+public class RenamingTransformerBenchmark extends ThreadedBenchmark {
+    private List<ClassEntry> entries;
+    private ClassProvider provider;
+    private RenamingTransformer transformer;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        SyntheticJar jar = SyntheticJar.builder().classes(5000).build();
+        this.entries = new ArrayList<>();
+        for (Entry entry : jar.getEntries()) {
+            if (entry instanceof ClassEntry)
+                this.entries.add((ClassEntry) entry);
+        }
+
+        ClassProvider.Builder builder = ClassProvider.builder();
+        jar.getClasses().forEach(builder::addClass);
+        this.provider = new SortedClassProvider(Arrays.asList(builder.build(), ClassProvider.fromJvmClasspath()), line -> {});
+        this.transformer = new RenamingTransformer(this.provider, jar.getMappings(), line -> {}, true);
+        this.transformer.prepare(jar.getClasses().keySet(), this.executor).join();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        this.provider.close();
+    }
+
+    @Benchmark
+    public long process() {
+        LongAdder size = new LongAdder();
+        forAll(this.entries, entry -> size.add(this.transformer.process(entry).getData().length));
+        return size.sum();
+    }
+}
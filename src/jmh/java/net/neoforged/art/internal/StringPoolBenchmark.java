@@ -0,0 +1,82 @@
+/*
+ * Copyright (c) Forge Development LLC and contributors
+ * SPDX-License-Identifier: LGPL-2.1-only
+ */
+
+package net.neoforged.art.internal;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Measures the heap retained by the {@link ClassProviderImpl.ClassInfo} of every class of the {@link SyntheticJar},
+ * read once by each of several class providers, with and without the {@link StringPool}.
+ * The retained bytes are the used heap after a GC once the class infos are read, minus the used heap after a GC before,
+ * and are reported as the {@code retainedBytes} counter of each benchmark.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+public class StringPoolBenchmark {
+    /**
+     * How often each class is read, as the same classes are often read by the class providers of several renamers.
+     */
+    private static final int PROVIDERS = 4;
+
+    private List<byte[]> classes;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        this.classes = new ArrayList<>(SyntheticJar.builder().classes(5000).build().getClasses().values());
+    }
+
+    @Benchmark
+    public List<ClassProviderImpl.ClassInfo> pooled(Heap heap) {
+        return read(heap);
+    }
+
+    @Benchmark
+    @Fork(jvmArgsAppend = "-Dnet.neoforged.art.stringPool=false")
+    public List<ClassProviderImpl.ClassInfo> unpooled(Heap heap) {
+        return read(heap);
+    }
+
+    private List<ClassProviderImpl.ClassInfo> read(Heap heap) {
+        long before = usedHeapAfterGc();
+        List<ClassProviderImpl.ClassInfo> ret = new ArrayList<>(this.classes.size() * PROVIDERS);
+        for (int i = 0; i < PROVIDERS; i++) {
+            for (byte[] data : this.classes)
+                ret.add(new ClassProviderImpl.ClassInfo(data));
+        }
+        heap.retainedBytes = usedHeapAfterGc() - before;
+        return ret;
+    }
+
+    private static long usedHeapAfterGc() {
+        // A single GC does not always collect everything that is unreachable
+        for (int i = 0; i < 3; i++)
+            System.gc();
+        return ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+    }
+
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class Heap {
+        public long retainedBytes;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            this.retainedBytes = 0;
+        }
+    }
+}
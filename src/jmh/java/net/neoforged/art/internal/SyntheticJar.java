@@ -0,0 +1,822 @@
+/*
+ * Copyright (c) Forge Development LLC and contributors
+ * SPDX-License-Identifier: LGPL-2.1-only
+ */
+
+package net.neoforged.art.internal;
+
+import joptsimple.OptionException;
+import joptsimple.OptionParser;
+import joptsimple.OptionSet;
+import joptsimple.OptionSpec;
+import net.neoforged.art.api.Transformer.ClassEntry;
+import net.neoforged.art.api.Transformer.Entry;
+import net.neoforged.art.api.Transformer.JavadoctorEntry;
+import net.neoforged.art.api.Transformer.ManifestEntry;
+import net.neoforged.art.api.Transformer.ResourceEntry;
+import net.neoforged.javadoctor.io.gson.GsonJDocIO;
+import net.neoforged.javadoctor.spec.ClassJavadoc;
+import net.neoforged.javadoctor.spec.DocReferences;
+import net.neoforged.javadoctor.spec.JavadocEntry;
+import net.neoforged.javadoctor.spec.JavadoctorInformation;
+import net.neoforged.srgutils.IMappingFile;
+import org.objectweb.asm.ClassWriter;
+import org.objectweb.asm.Handle;
+import org.objectweb.asm.Label;
+import org.objectweb.asm.MethodVisitor;
+import org.objectweb.asm.Type;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import static org.objectweb.asm.Opcodes.*;
+
+/**
+ * Generates a synthetic JAR for benchmarks and scale tests, with mappings that rename everything in it, and optionally
+ * a {@code javadoctor.json} and a source JAR with Fernflower line mappings for the mapped classes.
+ * <p>
+ * Classes extend each other in chains up to the configured depth, implement interfaces, and call the methods of other
+ * classes and inherited methods through their own class, so that remapping them needs the same hierarchy lookups as a
+ * real JAR. Besides these, the JAR can contain lambdas, records, enums, inner classes and resources.
+ * The same configuration always generates the same files, regardless of the machine.
+ * <p>
+ * This can also be run from the command line, or with {@code ./gradlew generateSyntheticJar}, to write the files to a directory.
+ */
+public final class SyntheticJar {
+    private static final int FIELDS = 4;
+    private static final int METHODS = 6;
+    private static final int INTERFACE_METHODS = 3;
+    private static final int FUNCTIONAL_INTERFACES = 4;
+    private static final int ENUM_CONSTANTS = 4;
+    private static final int RECORD_COMPONENTS = 3;
+    private static final Handle META_FACTORY = new Handle(H_INVOKESTATIC, "java/lang/invoke/LambdaMetafactory", "metafactory", "(Ljava/lang/invoke/MethodHandles$Lookup;Ljava/lang/String;Ljava/lang/invoke/MethodType;Ljava/lang/invoke/MethodType;Ljava/lang/invoke/MethodHandle;Ljava/lang/invoke/MethodType;)Ljava/lang/invoke/CallSite;", false);
+    private static final Handle OBJECT_METHODS = new Handle(H_INVOKESTATIC, "java/lang/runtime/ObjectMethods", "bootstrap", "(Ljava/lang/invoke/MethodHandles$Lookup;Ljava/lang/String;Ljava/lang/invoke/TypeDescriptor;Ljava/lang/Class;Ljava/lang/String;[Ljava/lang/invoke/MethodHandle;)Ljava/lang/Object;", false);
+
+    private final Builder config;
+    private final Random random;
+    private final Map<String, byte[]> classes = new LinkedHashMap<>();
+    private final Map<String, byte[]> resources = new LinkedHashMap<>();
+    private final List<String[]> methodReferences = new ArrayList<>();
+    private final List<String[]> fieldReferences = new ArrayList<>();
+    private final StringBuilder mappings = new StringBuilder("tsrg2 left right\n");
+    private final Map<String, ClassJavadoc> javadocs = new LinkedHashMap<>();
+    private final Map<String, String> javadocReferences = new LinkedHashMap<>();
+    private final Map<String, int[]> lineMappings = new LinkedHashMap<>();
+
+    private SyntheticJar(Builder config) {
+        this.config = config;
+        this.random = new Random(config.seed);
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    public static void main(String[] args) throws IOException {
+        OptionParser parser = new OptionParser();
+        OptionSpec<File> outputO = parser.accepts("output", "Directory to write synthetic.jar, synthetic.tsrg and synthetic-sources.jar to").withRequiredArg().ofType(File.class).required();
+        OptionSpec<Long> seedO = parser.accepts("seed", "Seed of the generated classes").withRequiredArg().ofType(Long.class).defaultsTo(Builder.DEFAULT_SEED);
+        OptionSpec<Integer> classesO = parser.accepts("classes", "Number of top level classes, a tenth of which are interfaces").withRequiredArg().ofType(Integer.class).defaultsTo(5000);
+        OptionSpec<Integer> depthO = parser.accepts("depth", "Maximum depth of class hierarchies").withRequiredArg().ofType(Integer.class).defaultsTo(8);
+        OptionSpec<Integer> interfacesO = parser.accepts("interfaces", "Maximum number of interfaces each class implements").withRequiredArg().ofType(Integer.class).defaultsTo(2);
+        OptionSpec<Integer> lambdasO = parser.accepts("lambdas", "Number of lambdas in each class").withRequiredArg().ofType(Integer.class).defaultsTo(1);
+        OptionSpec<Integer> recordsO = parser.accepts("records", "Number of records").withRequiredArg().ofType(Integer.class).defaultsTo(100);
+        OptionSpec<Integer> enumsO = parser.accepts("enums", "Number of enums").withRequiredArg().ofType(Integer.class).defaultsTo(100);
+        OptionSpec<Integer> innerClassesO = parser.accepts("inner-classes", "Number of inner classes of each class").withRequiredArg().ofType(Integer.class).defaultsTo(1);
+        OptionSpec<Integer> resourcesO = parser.accepts("resources", "Number of resources").withRequiredArg().ofType(Integer.class).defaultsTo(16);
+        OptionSpec<Void> noLocalsO = parser.accepts("no-local-variables", "Do not write local variable tables");
+        OptionSpec<Void> javadoctorO = parser.accepts("javadoctor", "Add a javadoctor.json with docs of all classes to the JAR");
+        OptionSpec<Void> sourcesO = parser.accepts("sources", "Also write a source JAR with Fernflower line mappings of the mapped classes");
+        OptionSpec<Void> helpO = parser.accepts("help", "Show this help").forHelp();
+
+        OptionSet options;
+        try {
+            options = parser.parse(args);
+        } catch (OptionException ex) {
+            System.err.println("Error: " + ex.getMessage());
+            System.err.println();
+            parser.printHelpOn(System.err);
+            System.exit(1);
+            return;
+        }
+
+        if (options.has(helpO)) {
+            parser.printHelpOn(System.out);
+            return;
+        }
+
+        SyntheticJar jar = builder()
+            .seed(options.valueOf(seedO))
+            .classes(options.valueOf(classesO))
+            .depth(options.valueOf(depthO))
+            .interfaces(options.valueOf(interfacesO))
+            .lambdas(options.valueOf(lambdasO))
+            .records(options.valueOf(recordsO))
+            .enums(options.valueOf(enumsO))
+            .innerClasses(options.valueOf(innerClassesO))
+            .resources(options.valueOf(resourcesO))
+            .localVariables(!options.has(noLocalsO))
+            .javadoctor(options.has(javadoctorO))
+            .lineMappings(options.has(sourcesO))
+            .build();
+
+        Path output = options.valueOf(outputO).toPath();
+        Files.createDirectories(output);
+        jar.write(output.resolve("synthetic.jar"));
+        Files.write(output.resolve("synthetic.tsrg"), jar.mappings.toString().getBytes(StandardCharsets.UTF_8));
+        if (options.has(sourcesO))
+            jar.writeSources(output.resolve("synthetic-sources.jar"));
+        System.out.println("Generated " + jar.classes.size() + " classes and " + jar.resources.size() + " resources in " + output.toAbsolutePath());
+    }
+
+    private static String interfaceName(int index) {
+        return "net/example/api/I" + index;
+    }
+
+    private static String functionalInterfaceName(int index) {
+        return "net/example/api/F" + index;
+    }
+
+    private static String className(int index) {
+        return "net/example/p" + (index % 16) + "/C" + index;
+    }
+
+    private static String mappedClassName(int index) {
+        return "net/mapped/p" + (index % 16) + "/Class" + index;
+    }
+
+    private static String methodDescriptor(String paramType) {
+        return "(I" + paramType + ")I";
+    }
+
+    private static String sourceName(String internalName) {
+        return internalName.replace('/', '.').replace('$', '.');
+    }
+
+    private void generate() {
+        int interfaces = Math.max(1, this.config.classes / 10);
+        for (int i = 0; i < interfaces; i++)
+            addInterface(i);
+        if (this.config.lambdas > 0) {
+            for (int i = 0; i < FUNCTIONAL_INTERFACES; i++)
+                addFunctionalInterface(i);
+        }
+
+        int[] depths = new int[this.config.classes - interfaces];
+        String[] paramTypes = new String[depths.length];
+        for (int i = 0; i < depths.length; i++) {
+            int parent = i == 0 || this.random.nextInt(4) == 0 ? -1 : this.random.nextInt(i);
+            if (parent != -1 && depths[parent] >= this.config.depth)
+                parent = -1;
+            depths[i] = parent == -1 ? 0 : depths[parent] + 1;
+            paramTypes[i] = i == 0 ? "Ljava/lang/Object;" : 'L' + className(this.random.nextInt(i)) + ';';
+
+            List<String> implemented = new ArrayList<>();
+            int count = this.config.interfaces == 0 ? 0 : 1 + this.random.nextInt(this.config.interfaces);
+            for (int j = 0; j < count; j++) {
+                String itf = interfaceName(this.random.nextInt(interfaces));
+                if (!implemented.contains(itf))
+                    implemented.add(itf);
+            }
+            addClass(i, parent, implemented, paramTypes);
+        }
+
+        for (int i = 0; i < this.config.records; i++)
+            addRecord(i, depths.length);
+        for (int i = 0; i < this.config.enums; i++)
+            addEnum(i);
+        for (int i = 0; i < this.config.resources; i++)
+            addResource(i);
+    }
+
+    private void addInterface(int index) {
+        String name = interfaceName(index);
+        this.mappings.append(name).append(" net/mapped/api/Interface").append(index).append('\n');
+
+        ClassWriter writer = new ClassWriter(0);
+        writer.visit(V1_8, ACC_PUBLIC | ACC_ABSTRACT | ACC_INTERFACE, name, null, "java/lang/Object", null);
+        for (int i = 0; i < INTERFACE_METHODS; i++) {
+            writer.visitMethod(ACC_PUBLIC | ACC_ABSTRACT, "run" + index + '_' + i, "(I)I", null, null).visitEnd();
+            this.mappings.append("\trun").append(index).append('_').append(i).append(" (I)I execute").append(index).append('_').append(i).append('\n');
+            this.mappings.append("\t\t0 value p_value\n");
+        }
+        writer.visitEnd();
+        this.classes.put(name, writer.toByteArray());
+    }
+
+    private void addFunctionalInterface(int index) {
+        String name = functionalInterfaceName(index);
+        this.mappings.append(name).append(" net/mapped/api/Function").append(index).append('\n');
+        this.mappings.append("\tapply").append(index).append(" (I)I invoke").append(index).append('\n');
+        this.mappings.append("\t\t0 value p_value\n");
+
+        ClassWriter writer = new ClassWriter(0);
+        writer.visit(V1_8, ACC_PUBLIC | ACC_ABSTRACT | ACC_INTERFACE, name, null, "java/lang/Object", null);
+        writer.visitMethod(ACC_PUBLIC | ACC_ABSTRACT, "apply" + index, "(I)I", null, null).visitEnd();
+        writer.visitEnd();
+        this.classes.put(name, writer.toByteArray());
+    }
+
+    private void addClass(int index, int parent, List<String> interfaces, String[] paramTypes) {
+        String name = className(index);
+        String superName = parent == -1 ? "java/lang/Object" : className(parent);
+        this.mappings.append(name).append(' ').append(mappedClassName(index)).append('\n');
+
+        ClassWriter writer = new ClassWriter(0);
+        writer.visit(V1_8, ACC_PUBLIC | ACC_SUPER, name, null, superName, interfaces.toArray(new String[0]));
+        writer.visitSource("C" + index + ".java", null);
+
+        for (int i = 0; i < FIELDS; i++) {
+            writer.visitField(ACC_PROTECTED, "f" + index + '_' + i, "I", null, null).visitEnd();
+            this.mappings.append("\tf").append(index).append('_').append(i).append(" field").append(index).append('_').append(i).append('\n');
+        }
+
+        MethodVisitor init = writer.visitMethod(ACC_PUBLIC, "<init>", "()V", null, null);
+        init.visitCode();
+        init.visitVarInsn(ALOAD, 0);
+        init.visitMethodInsn(INVOKESPECIAL, superName, "<init>", "()V", false);
+        init.visitInsn(RETURN);
+        init.visitMaxs(1, 1);
+        init.visitEnd();
+
+        int line = 10;
+        List<Integer> lines = new ArrayList<>();
+        Map<String, JavadocEntry> methodDocs = new LinkedHashMap<>();
+        String descriptor = methodDescriptor(paramTypes[index]);
+        for (int i = 0; i < METHODS; i++) {
+            String methodName = "m" + index + '_' + i;
+            this.mappings.append('\t').append(methodName).append(' ').append(descriptor).append(" method").append(index).append('_').append(i).append('\n');
+            this.mappings.append("\t\t0 value p_value\n\t\t1 other p_other\n");
+
+            Label start = new Label();
+            Label end = new Label();
+            MethodVisitor method = writer.visitMethod(ACC_PUBLIC, methodName, descriptor, null, null);
+            method.visitCode();
+            method.visitLabel(start);
+            method.visitLineNumber(line, start);
+            lines.add(line);
+            line += 4;
+            String[] target = null;
+            if (parent != -1 && i % 2 == 0) {
+                // An inherited method, called through this class
+                target = new String[] { name, "m" + parent + '_' + this.random.nextInt(METHODS), methodDescriptor(paramTypes[parent]) };
+                method.visitVarInsn(ALOAD, 0);
+            } else if (index != 0) {
+                // A method of the class of the parameter
+                String owner = paramTypes[index].substring(1, paramTypes[index].length() - 1);
+                int ownerIndex = Integer.parseInt(owner.substring(owner.lastIndexOf('C') + 1));
+                target = new String[] { owner, "m" + ownerIndex + '_' + this.random.nextInt(METHODS), methodDescriptor(paramTypes[ownerIndex]) };
+                method.visitVarInsn(ALOAD, 2);
+            }
+            if (target != null) {
+                method.visitVarInsn(ILOAD, 1);
+                method.visitInsn(ACONST_NULL);
+                method.visitMethodInsn(INVOKEVIRTUAL, target[0], target[1], target[2], false);
+                this.methodReferences.add(target);
+            } else {
+                method.visitVarInsn(ILOAD, 1);
+            }
+            String field = "f" + index + '_' + (i % FIELDS);
+            method.visitVarInsn(ALOAD, 0);
+            method.visitFieldInsn(GETFIELD, name, field, "I");
+            this.fieldReferences.add(new String[] { name, field, "I" });
+            method.visitInsn(IADD);
+            method.visitInsn(IRETURN);
+            method.visitLabel(end);
+            if (this.config.localVariables) {
+                method.visitLocalVariable("this", 'L' + name + ';', null, start, end, 0);
+                method.visitLocalVariable("value", "I", null, start, end, 1);
+                method.visitLocalVariable("other", paramTypes[index], null, start, end, 2);
+            }
+            method.visitMaxs(4, 3);
+            method.visitEnd();
+
+            if (this.config.javadoctor)
+                methodDocs.put(methodName + descriptor, methodDoc(target, field));
+        }
+
+        for (String itf : interfaces) {
+            int itfIndex = Integer.parseInt(itf.substring(itf.lastIndexOf('I') + 1));
+            for (int i = 0; i < INTERFACE_METHODS; i++) {
+                MethodVisitor method = writer.visitMethod(ACC_PUBLIC, "run" + itfIndex + '_' + i, "(I)I", null, null);
+                method.visitCode();
+                method.visitVarInsn(ILOAD, 1);
+                method.visitInsn(IRETURN);
+                method.visitMaxs(1, 2);
+                method.visitEnd();
+            }
+        }
+
+        if (this.config.lambdas > 0) {
+            writer.visitInnerClass("java/lang/invoke/MethodHandles$Lookup", "java/lang/invoke/MethodHandles", "Lookup", ACC_PUBLIC | ACC_STATIC | ACC_FINAL);
+            for (int i = 0; i < this.config.lambdas; i++)
+                addLambda(writer, index, i);
+        }
+
+        Map<String, ClassJavadoc> innerDocs = new LinkedHashMap<>();
+        for (int i = 0; i < this.config.innerClasses; i++) {
+            writer.visitInnerClass(name + "$Inner" + i, name, "Inner" + i, ACC_PUBLIC);
+            addInnerClass(index, i);
+            if (this.config.javadoctor)
+                innerDocs.put("Inner" + i, new ClassJavadoc(new JavadocEntry("An inner class of {@link " + sourceName(name) + "}.", null, null, null), null, null, null));
+        }
+
+        writer.visitEnd();
+        this.classes.put(name, writer.toByteArray());
+
+        if (this.config.javadoctor) {
+            Map<String, JavadocEntry> fieldDocs = new LinkedHashMap<>();
+            for (int i = 0; i < FIELDS; i++)
+                fieldDocs.put("f" + index + '_' + i + ":I", new JavadocEntry("A field of {@link " + sourceName(name) + "}.", null, null, null));
+            String doc = parent == -1 ? "A root class." : "A class extending {@link " + sourceName(superName) + "}.";
+            this.javadocs.put(sourceName(name), new ClassJavadoc(new JavadocEntry(doc, null, null, null), methodDocs, fieldDocs, innerDocs));
+            this.javadocReferences.put(sourceName(name), name);
+        }
+
+        if (this.config.lineMappings) {
+            // Decompiled sources usually move code down, by a different amount for each method
+            int[] mapping = new int[lines.size() * 2];
+            int offset = 0;
+            for (int i = 0; i < lines.size(); i++) {
+                offset += this.random.nextInt(3);
+                mapping[i * 2] = lines.get(i);
+                mapping[i * 2 + 1] = lines.get(i) + offset;
+            }
+            this.lineMappings.put(mappedClassName(index), mapping);
+        }
+    }
+
+    private JavadocEntry methodDoc(String[] target, String field) {
+        Map<String, List<String>> tags = new TreeMap<>();
+        tags.put("return", Collections.singletonList("the sum of {@link #" + field + "} and the result"));
+        if (target != null) {
+            Type[] args = Type.getArgumentTypes(target[2]);
+            StringBuilder params = new StringBuilder();
+            for (Type arg : args) {
+                if (params.length() != 0)
+                    params.append(", ");
+                params.append(arg.getSort() == Type.OBJECT ? sourceName(arg.getInternalName()) : arg.getClassName());
+            }
+            tags.put("see", Collections.singletonList(sourceName(target[0]) + '#' + target[1] + '(' + params + ')'));
+            this.javadocReferences.put(sourceName(target[0]), target[0]);
+        }
+        return new JavadocEntry("Adds {@link #" + field + "} to the given value.", tags, new String[] { "the value", "another object" }, null);
+    }
+
+    private void addLambda(ClassWriter writer, int index, int lambda) {
+        String name = className(index);
+        int itf = this.random.nextInt(FUNCTIONAL_INTERFACES);
+        String itfName = functionalInterfaceName(itf);
+        String methodName = "l" + index + '_' + lambda;
+        String implName = "lambda$" + methodName + "$0";
+        this.mappings.append('\t').append(methodName).append(" ()L").append(itfName).append("; lambda").append(index).append('_').append(lambda).append('\n');
+
+        MethodVisitor method = writer.visitMethod(ACC_PUBLIC, methodName, "()L" + itfName + ';', null, null);
+        method.visitCode();
+        method.visitInvokeDynamicInsn("apply" + itf, "()L" + itfName + ';', META_FACTORY,
+            Type.getMethodType("(I)I"), new Handle(H_INVOKESTATIC, name, implName, "(I)I", false), Type.getMethodType("(I)I"));
+        method.visitInsn(ARETURN);
+        method.visitMaxs(1, 1);
+        method.visitEnd();
+
+        MethodVisitor impl = writer.visitMethod(ACC_PRIVATE | ACC_STATIC | ACC_SYNTHETIC, implName, "(I)I", null, null);
+        impl.visitCode();
+        impl.visitVarInsn(ILOAD, 0);
+        impl.visitLdcInsn(lambda + 1);
+        impl.visitInsn(IMUL);
+        impl.visitInsn(IRETURN);
+        impl.visitMaxs(2, 1);
+        impl.visitEnd();
+    }
+
+    private void addInnerClass(int index, int inner) {
+        String outer = className(index);
+        String name = outer + "$Inner" + inner;
+        this.mappings.append(name).append(' ').append(mappedClassName(index)).append("$Nested").append(inner).append('\n');
+        this.mappings.append("\tget").append(inner).append(" ()I value").append(inner).append('\n');
+
+        ClassWriter writer = new ClassWriter(0);
+        writer.visit(V1_8, ACC_PUBLIC | ACC_SUPER, name, null, "java/lang/Object", null);
+        writer.visitSource("C" + index + ".java", null);
+        writer.visitInnerClass(name, outer, "Inner" + inner, ACC_PUBLIC);
+        writer.visitField(ACC_FINAL | ACC_SYNTHETIC, "this$0", 'L' + outer + ';', null, null).visitEnd();
+
+        MethodVisitor init = writer.visitMethod(ACC_PUBLIC, "<init>", "(L" + outer + ";)V", null, null);
+        init.visitCode();
+        init.visitVarInsn(ALOAD, 0);
+        init.visitVarInsn(ALOAD, 1);
+        init.visitFieldInsn(PUTFIELD, name, "this$0", 'L' + outer + ';');
+        init.visitVarInsn(ALOAD, 0);
+        init.visitMethodInsn(INVOKESPECIAL, "java/lang/Object", "<init>", "()V", false);
+        init.visitInsn(RETURN);
+        init.visitMaxs(2, 2);
+        init.visitEnd();
+
+        String field = "f" + index + "_0";
+        MethodVisitor get = writer.visitMethod(ACC_PUBLIC, "get" + inner, "()I", null, null);
+        get.visitCode();
+        get.visitVarInsn(ALOAD, 0);
+        get.visitFieldInsn(GETFIELD, name, "this$0", 'L' + outer + ';');
+        get.visitFieldInsn(GETFIELD, outer, field, "I");
+        get.visitInsn(IRETURN);
+        get.visitMaxs(1, 1);
+        get.visitEnd();
+        this.fieldReferences.add(new String[] { outer, field, "I" });
+
+        writer.visitEnd();
+        this.classes.put(name, writer.toByteArray());
+    }
+
+    private void addRecord(int index, int classes) {
+        String name = "net/example/records/R" + index;
+        String desc = 'L' + name + ';';
+        String[] types = new String[RECORD_COMPONENTS];
+        for (int i = 0; i < types.length; i++)
+            types[i] = i == types.length - 1 && classes > 0 ? 'L' + className(this.random.nextInt(classes)) + ';' : "I";
+        this.mappings.append(name).append(" net/mapped/records/Record").append(index).append('\n');
+
+        ClassWriter writer = new ClassWriter(0);
+        writer.visit(V16, ACC_PUBLIC | ACC_FINAL | ACC_SUPER | ACC_RECORD, name, null, "java/lang/Record", null);
+        writer.visitInnerClass("java/lang/invoke/MethodHandles$Lookup", "java/lang/invoke/MethodHandles", "Lookup", ACC_PUBLIC | ACC_STATIC | ACC_FINAL);
+
+        StringBuilder ctorDesc = new StringBuilder("(");
+        StringBuilder names = new StringBuilder();
+        Handle[] getters = new Handle[types.length];
+        for (int i = 0; i < types.length; i++) {
+            String component = "c" + index + '_' + i;
+            writer.visitRecordComponent(component, types[i], null).visitEnd();
+            writer.visitField(ACC_PRIVATE | ACC_FINAL, component, types[i], null, null).visitEnd();
+            this.mappings.append('\t').append(component).append(" component").append(index).append('_').append(i).append('\n');
+            this.mappings.append('\t').append(component).append(" ()").append(types[i]).append(" component").append(index).append('_').append(i).append('\n');
+
+            MethodVisitor getter = writer.visitMethod(ACC_PUBLIC, component, "()" + types[i], null, null);
+            getter.visitCode();
+            getter.visitVarInsn(ALOAD, 0);
+            getter.visitFieldInsn(GETFIELD, name, component, types[i]);
+            getter.visitInsn(types[i].equals("I") ? IRETURN : ARETURN);
+            getter.visitMaxs(1, 1);
+            getter.visitEnd();
+
+            ctorDesc.append(types[i]);
+            names.append(i == 0 ? "" : ";").append(component);
+            getters[i] = new Handle(H_GETFIELD, name, component, types[i], false);
+        }
+        ctorDesc.append(")V");
+
+        MethodVisitor init = writer.visitMethod(ACC_PUBLIC, "<init>", ctorDesc.toString(), null, null);
+        init.visitCode();
+        init.visitVarInsn(ALOAD, 0);
+        init.visitMethodInsn(INVOKESPECIAL, "java/lang/Record", "<init>", "()V", false);
+        for (int i = 0; i < types.length; i++) {
+            init.visitVarInsn(ALOAD, 0);
+            init.visitVarInsn(types[i].equals("I") ? ILOAD : ALOAD, i + 1);
+            init.visitFieldInsn(PUTFIELD, name, "c" + index + '_' + i, types[i]);
+        }
+        init.visitInsn(RETURN);
+        init.visitMaxs(2, types.length + 1);
+        init.visitEnd();
+
+        Object[] bootstrapArgs = new Object[getters.length + 2];
+        bootstrapArgs[0] = Type.getType(desc);
+        bootstrapArgs[1] = names.toString();
+        System.arraycopy(getters, 0, bootstrapArgs, 2, getters.length);
+        addObjectMethod(writer, "toString", "()Ljava/lang/String;", '(' + desc + ")Ljava/lang/String;", ARETURN, bootstrapArgs);
+        addObjectMethod(writer, "hashCode", "()I", '(' + desc + ")I", IRETURN, bootstrapArgs);
+        addObjectMethod(writer, "equals", "(Ljava/lang/Object;)Z", '(' + desc + "Ljava/lang/Object;)Z", IRETURN, bootstrapArgs);
+
+        writer.visitEnd();
+        this.classes.put(name, writer.toByteArray());
+    }
+
+    private static void addObjectMethod(ClassWriter writer, String name, String descriptor, String indyDescriptor, int returnOpcode, Object[] bootstrapArgs) {
+        boolean equals = name.equals("equals");
+        MethodVisitor method = writer.visitMethod(ACC_PUBLIC | ACC_FINAL, name, descriptor, null, null);
+        method.visitCode();
+        method.visitVarInsn(ALOAD, 0);
+        if (equals)
+            method.visitVarInsn(ALOAD, 1);
+        method.visitInvokeDynamicInsn(name, indyDescriptor, OBJECT_METHODS, bootstrapArgs);
+        method.visitInsn(returnOpcode);
+        method.visitMaxs(equals ? 2 : 1, equals ? 2 : 1);
+        method.visitEnd();
+    }
+
+    private void addEnum(int index) {
+        String name = "net/example/enums/E" + index;
+        String desc = 'L' + name + ';';
+        String arrayDesc = '[' + desc;
+        this.mappings.append(name).append(" net/mapped/enums/Enum").append(index).append('\n');
+
+        ClassWriter writer = new ClassWriter(0);
+        writer.visit(V1_8, ACC_PUBLIC | ACC_FINAL | ACC_SUPER | ACC_ENUM, name, "Ljava/lang/Enum<" + desc + ">;", "java/lang/Enum", null);
+        for (int i = 0; i < ENUM_CONSTANTS; i++) {
+            writer.visitField(ACC_PUBLIC | ACC_STATIC | ACC_FINAL | ACC_ENUM, "CONSTANT_" + i, desc, null, null).visitEnd();
+            this.mappings.append("\tCONSTANT_").append(i).append(" VALUE_").append(i).append('\n');
+        }
+        writer.visitField(ACC_PRIVATE | ACC_STATIC | ACC_FINAL | ACC_SYNTHETIC, "$VALUES", arrayDesc, null, null).visitEnd();
+
+        MethodVisitor values = writer.visitMethod(ACC_PUBLIC | ACC_STATIC, "values", "()" + arrayDesc, null, null);
+        values.visitCode();
+        values.visitFieldInsn(GETSTATIC, name, "$VALUES", arrayDesc);
+        values.visitMethodInsn(INVOKEVIRTUAL, arrayDesc, "clone", "()Ljava/lang/Object;", false);
+        values.visitTypeInsn(CHECKCAST, arrayDesc);
+        values.visitInsn(ARETURN);
+        values.visitMaxs(1, 0);
+        values.visitEnd();
+
+        MethodVisitor valueOf = writer.visitMethod(ACC_PUBLIC | ACC_STATIC, "valueOf", "(Ljava/lang/String;)" + desc, null, null);
+        valueOf.visitCode();
+        valueOf.visitLdcInsn(Type.getType(desc));
+        valueOf.visitVarInsn(ALOAD, 0);
+        valueOf.visitMethodInsn(INVOKESTATIC, "java/lang/Enum", "valueOf", "(Ljava/lang/Class;Ljava/lang/String;)Ljava/lang/Enum;", false);
+        valueOf.visitTypeInsn(CHECKCAST, name);
+        valueOf.visitInsn(ARETURN);
+        valueOf.visitMaxs(2, 1);
+        valueOf.visitEnd();
+
+        MethodVisitor init = writer.visitMethod(ACC_PRIVATE, "<init>", "(Ljava/lang/String;I)V", "()V", null);
+        init.visitCode();
+        init.visitVarInsn(ALOAD, 0);
+        init.visitVarInsn(ALOAD, 1);
+        init.visitVarInsn(ILOAD, 2);
+        init.visitMethodInsn(INVOKESPECIAL, "java/lang/Enum", "<init>", "(Ljava/lang/String;I)V", false);
+        init.visitInsn(RETURN);
+        init.visitMaxs(3, 3);
+        init.visitEnd();
+
+        MethodVisitor clinit = writer.visitMethod(ACC_STATIC, "<clinit>", "()V", null, null);
+        clinit.visitCode();
+        for (int i = 0; i < ENUM_CONSTANTS; i++) {
+            clinit.visitTypeInsn(NEW, name);
+            clinit.visitInsn(DUP);
+            clinit.visitLdcInsn("CONSTANT_" + i);
+            clinit.visitLdcInsn(i);
+            clinit.visitMethodInsn(INVOKESPECIAL, name, "<init>", "(Ljava/lang/String;I)V", false);
+            clinit.visitFieldInsn(PUTSTATIC, name, "CONSTANT_" + i, desc);
+            this.fieldReferences.add(new String[] { name, "CONSTANT_" + i, desc });
+        }
+        clinit.visitLdcInsn(ENUM_CONSTANTS);
+        clinit.visitTypeInsn(ANEWARRAY, name);
+        for (int i = 0; i < ENUM_CONSTANTS; i++) {
+            clinit.visitInsn(DUP);
+            clinit.visitLdcInsn(i);
+            clinit.visitFieldInsn(GETSTATIC, name, "CONSTANT_" + i, desc);
+            clinit.visitInsn(AASTORE);
+        }
+        clinit.visitFieldInsn(PUTSTATIC, name, "$VALUES", arrayDesc);
+        clinit.visitInsn(RETURN);
+        clinit.visitMaxs(4, 0);
+        clinit.visitEnd();
+
+        writer.visitEnd();
+        this.classes.put(name, writer.toByteArray());
+    }
+
+    private void addResource(int index) {
+        StringBuilder data = new StringBuilder();
+        int lines = 1 + this.random.nextInt(64);
+        for (int i = 0; i < lines; i++)
+            data.append("key").append(i).append('=').append(Long.toHexString(this.random.nextLong())).append('\n');
+        this.resources.put("data/synthetic/resource" + index + ".properties", data.toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Returns the class files by class name.
+     */
+    Map<String, byte[]> getClasses() {
+        return Collections.unmodifiableMap(this.classes);
+    }
+
+    /**
+     * Returns the owner, name and descriptor of every method call in the JAR.
+     */
+    List<String[]> getMethodReferences() {
+        return Collections.unmodifiableList(this.methodReferences);
+    }
+
+    /**
+     * Returns the owner, name and descriptor of every field access in the JAR.
+     */
+    List<String[]> getFieldReferences() {
+        return Collections.unmodifiableList(this.fieldReferences);
+    }
+
+    /**
+     * Returns the entries of the JAR: a manifest, the classes, the resources and the {@code javadoctor.json} if enabled.
+     */
+    List<Entry> getEntries() {
+        List<Entry> ret = new ArrayList<>(this.classes.size() + this.resources.size() + 2);
+        ret.add(ManifestEntry.create(Entry.STABLE_TIMESTAMP, "Manifest-Version: 1.0\r\n\r\n".getBytes(StandardCharsets.UTF_8)));
+        this.classes.forEach((name, data) -> ret.add(ClassEntry.create(name + ".class", Entry.STABLE_TIMESTAMP, data)));
+        this.resources.forEach((name, data) -> ret.add(ResourceEntry.create(name, Entry.STABLE_TIMESTAMP, data)));
+        if (!this.javadocs.isEmpty()) {
+            JavadoctorInformation docs = new JavadoctorInformation(new DocReferences(this.javadocReferences), this.javadocs);
+            ret.add(JavadoctorEntry.create(Entry.STABLE_TIMESTAMP, GsonJDocIO.GSON.toJson(GsonJDocIO.write(GsonJDocIO.GSON, docs)).getBytes(StandardCharsets.UTF_8)));
+        }
+        return ret;
+    }
+
+    /**
+     * Parses the mappings of all classes, fields, methods and parameters of the JAR.
+     */
+    IMappingFile getMappings() {
+        try {
+            return IMappingFile.load(new ByteArrayInputStream(this.mappings.toString().getBytes(StandardCharsets.UTF_8)));
+        } catch (IOException e) {
+            throw new IllegalStateException("Could not parse generated mappings", e);
+        }
+    }
+
+    /**
+     * Writes the JAR to the given file.
+     */
+    void write(Path file) throws IOException {
+        try (OutputStream out = Files.newOutputStream(file);
+             ZipOutputStream zip = new ZipOutputStream(out)) {
+            for (Entry entry : getEntries()) {
+                ZipEntry zipEntry = new ZipEntry(entry.getName());
+                zipEntry.setTime(entry.getTime());
+                zip.putNextEntry(zipEntry);
+                zip.write(entry.getData());
+                zip.closeEntry();
+            }
+        }
+    }
+
+    /**
+     * Writes a source JAR of the mapped top level classes, whose entries carry the Fernflower line mappings
+     * that {@link FFLineFixer} reads.
+     */
+    void writeSources(Path file) throws IOException {
+        if (this.lineMappings.isEmpty())
+            throw new IllegalStateException("Line mappings were not generated");
+
+        try (OutputStream out = Files.newOutputStream(file);
+             ZipOutputStream zip = new ZipOutputStream(out)) {
+            for (Map.Entry<String, int[]> cls : this.lineMappings.entrySet()) {
+                int[] lines = cls.getValue();
+                ByteBuffer extra = ByteBuffer.allocate(5 + lines.length * 2).order(ByteOrder.LITTLE_ENDIAN);
+                extra.putShort((short) 0x4646);
+                extra.putShort((short) (1 + lines.length * 2));
+                extra.put((byte) 1);
+                for (int line : lines)
+                    extra.putShort((short) line);
+
+                String name = cls.getKey();
+                int idx = name.lastIndexOf('/');
+                StringBuilder source = new StringBuilder();
+                source.append("package ").append(name.substring(0, idx).replace('/', '.')).append(";\n\n");
+                source.append("public class ").append(name.substring(idx + 1)).append(" {\n");
+                for (int i = 3; i < lines[lines.length - 1] + 2; i++)
+                    source.append('\n');
+                source.append("}\n");
+
+                ZipEntry entry = new ZipEntry(name + ".java");
+                entry.setTime(Entry.STABLE_TIMESTAMP);
+                entry.setExtra(extra.array());
+                zip.putNextEntry(entry);
+                zip.write(source.toString().getBytes(StandardCharsets.UTF_8));
+                zip.closeEntry();
+            }
+        }
+    }
+
+    public static final class Builder {
+        static final long DEFAULT_SEED = 42;
+
+        private long seed = DEFAULT_SEED;
+        private int classes = 5000;
+        private int depth = 8;
+        private int interfaces = 2;
+        private int lambdas = 1;
+        private int records = 100;
+        private int enums = 100;
+        private int innerClasses = 1;
+        private int resources = 16;
+        private boolean localVariables = true;
+        private boolean javadoctor = false;
+        private boolean lineMappings = false;
+
+        private Builder() {}
+
+        /**
+         * Sets the seed all random choices are made with.
+         */
+        public Builder seed(long value) {
+            this.seed = value;
+            return this;
+        }
+
+        /**
+         * Sets the number of top level classes, a tenth of which are interfaces.
+         */
+        public Builder classes(int value) {
+            if (value < 2)
+                throw new IllegalArgumentException("At least two classes are required");
+            this.classes = value;
+            return this;
+        }
+
+        /**
+         * Sets the maximum number of superclasses of a class, not counting {@code java/lang/Object}.
+         */
+        public Builder depth(int value) {
+            this.depth = value;
+            return this;
+        }
+
+        /**
+         * Sets the maximum number of interfaces each class implements.
+         */
+        public Builder interfaces(int value) {
+            this.interfaces = value;
+            return this;
+        }
+
+        /**
+         * Sets the number of lambdas in each class.
+         */
+        public Builder lambdas(int value) {
+            this.lambdas = value;
+            return this;
+        }
+
+        /**
+         * Sets the number of records, which are compiled for Java 16.
+         */
+        public Builder records(int value) {
+            this.records = value;
+            return this;
+        }
+
+        /**
+         * Sets the number of enums.
+         */
+        public Builder enums(int value) {
+            this.enums = value;
+            return this;
+        }
+
+        /**
+         * Sets the number of inner classes of each class.
+         */
+        public Builder innerClasses(int value) {
+            this.innerClasses = value;
+            return this;
+        }
+
+        /**
+         * Sets the number of resources.
+         */
+        public Builder resources(int value) {
+            this.resources = value;
+            return this;
+        }
+
+        /**
+         * Sets whether methods have local variable tables, whose names are mapped as parameters.
+         */
+        public Builder localVariables(boolean value) {
+            this.localVariables = value;
+            return this;
+        }
+
+        /**
+         * Sets whether the JAR contains a {@code javadoctor.json} with docs of all classes, methods and fields.
+         */
+        public Builder javadoctor(boolean value) {
+            this.javadoctor = value;
+            return this;
+        }
+
+        /**
+         * Sets whether Fernflower line mappings are generated for {@link SyntheticJar#writeSources(Path)}.
+         */
+        public Builder lineMappings(boolean value) {
+            this.lineMappings = value;
+            return this;
+        }
+
+        public SyntheticJar build() {
+            SyntheticJar jar = new SyntheticJar(this);
+            jar.generate();
+            return jar;
+        }
+    }
+}
@@ -0,0 +1,55 @@
+/*
+ * Copyright (c) Forge Development LLC and contributors
+ * SPDX-License-Identifier: LGPL-2.1-only
+ */
+
+package net.neoforged.art.internal;
+
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * The base of benchmarks that run on a pool of {@link #threads} threads, which is shared by all invocations of a trial.
+ */
+@State(Scope.Benchmark)
+public abstract class ThreadedBenchmark {
+    @Param({"1", "8", "32"})
+    public int threads;
+
+    protected ExecutorService executor;
+
+    @Setup(Level.Trial)
+    public void setupExecutor() {
+        this.executor = Executors.newFixedThreadPool(this.threads);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDownExecutor() throws InterruptedException {
+        this.executor.shutdown();
+        this.executor.awaitTermination(1, TimeUnit.MINUTES);
+    }
+
+    /**
+     * Runs the action on all items, split into one slice per thread, and waits for all of them.
+     */
+    protected <T> void forAll(List<T> items, Consumer<T> action) {
+        CompletableFuture<?>[] futures = new CompletableFuture<?>[this.threads];
+        int size = items.size();
+        for (int i = 0; i < futures.length; i++) {
+            List<T> slice = items.subList(size * i / futures.length, size * (i + 1) / futures.length);
+            futures[i] = CompletableFuture.runAsync(() -> slice.forEach(action), this.executor);
+        }
+        CompletableFuture.allOf(futures).join();
+    }
+}
@@ -5,50 +5,84 @@
 
 package net.neoforged.art;
 
+import java.io.Closeable;
 import java.io.File;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.PrintStream;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Paths;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.function.Consumer;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
+import java.util.zip.Deflater;
 import joptsimple.OptionException;
 import joptsimple.OptionParser;
 import joptsimple.OptionSet;
 import joptsimple.OptionSpec;
+import net.neoforged.art.api.ClassProvider;
 import net.neoforged.art.api.IdentifierFixerConfig;
 import net.neoforged.art.api.Renamer;
 import net.neoforged.art.api.SignatureStripperConfig;
 import net.neoforged.art.api.SourceFixerConfig;
 import net.neoforged.art.api.Transformer;
 import net.neoforged.srgutils.IMappingFile;
+import org.jetbrains.annotations.Nullable;
 
 public class Main {
+    private final OptionParser parser = new OptionParser();
+    private final OptionSpec<File> batchO = parser.accepts("batch", "Job file with the arguments of one job per line, to run many jobs in one JVM. The other arguments given are added to every job").withRequiredArg().ofType(File.class);
+    private final OptionSpec<Integer> batchJobsO = parser.accepts("batch-jobs", "Number of batch jobs to run at once, defaults to 4.").withRequiredArg().ofType(Integer.class).defaultsTo(4);
+    private final OptionSpec<File> inputO  = parser.accepts("input",  "Input jar file or directory").requiredUnless("batch").withRequiredArg().ofType(File.class);
+    private final OptionSpec<File> outputO = parser.accepts("output", "Output jar file or directory, if unspecifed, overwrites input").withRequiredArg().ofType(File.class);
+    private final OptionSpec<File> mapO    = parser.acceptsAll(Arrays.asList("map", "names"),    "Mapping file to apply").withRequiredArg().ofType(File.class);
+    private final OptionSpec<File> logO    = parser.accepts("log",    "File to log data to, optional, defaults to System.out").withRequiredArg().ofType(File.class);
+    private final OptionSpec<File> libO    = parser.acceptsAll(Arrays.asList("lib", "e"), "Additional library to use for inheritance").withRequiredArg().ofType(File.class);
+    private final OptionSpec<File> libCacheO = parser.accepts("lib-cache", "Directory to cache indexes of libraries in, so unchanged libraries are not read again").withRequiredArg().ofType(File.class);
+    private final OptionSpec<Void> fixAnnO = parser.accepts("ann-fix", "Fixes misaligned parameter annotations caused by Proguard");
+    private final OptionSpec<Void> unfinalParams0 = parser.accepts("unfinal-params", "Remove final flag from parameters");
+    private final OptionSpec<Void> fixRecordsO = parser.accepts("record-fix", "Fixes record components and attributes stripped by Proguard.");
+    private final OptionSpec<IdentifierFixerConfig> fixIdsO = parser.accepts("ids-fix", "Fixes local variables that are not valid java identifiers.").withOptionalArg().withValuesConvertedBy(new EnumConverter<>(IdentifierFixerConfig.class)).defaultsTo(IdentifierFixerConfig.ALL);
+    private final OptionSpec<SourceFixerConfig> fixSrcO = parser.accepts("src-fix", "Fixes the 'SourceFile' attribute of classes.").withOptionalArg().withValuesConvertedBy(new EnumConverter<>(SourceFixerConfig.class)).defaultsTo(SourceFixerConfig.JAVA);
+    private final OptionSpec<SignatureStripperConfig> stripSigsO = parser.accepts("strip-sigs", "Strip invalid codesigning signatures from the Jar manifest").withOptionalArg().withValuesConvertedBy(new EnumConverter<>(SignatureStripperConfig.class)).defaultsTo(SignatureStripperConfig.ALL);
+    private final OptionSpec<Integer> threadsO = parser.accepts("threads", "Number of threads to use, defaults to processor count.").withRequiredArg().ofType(Integer.class).defaultsTo(Runtime.getRuntime().availableProcessors());
+    private final OptionSpec<Integer> streamO = parser.accepts("stream", "Stream entries through the transformers in a bounded window instead of loading the whole input, optionally with the window size.").withOptionalArg().ofType(Integer.class).defaultsTo(256);
+    private final OptionSpec<String> compressionO = parser.accepts("compression", "Compression level of the output, 0-9, 'default' or 'store'").withRequiredArg();
+    private final OptionSpec<String> compressionExtO = parser.accepts("compression-ext", "Compression level for files with an extension, as ext=level, for example 'png=store'").withRequiredArg();
+    private final OptionSpec<Void> incrementalO = parser.accepts("incremental", "Copy classes whose input and dependencies did not change since the last run from the previous output, tracked in <output>.artcache");
+    private final OptionSpec<File> statsO = parser.accepts("stats", "Print how long each stage and transformer took, or write it as JSON to the given file").withOptionalArg().ofType(File.class);
+    private final OptionSpec<File> ffLinesO = parser.accepts("ff-line-numbers", "Applies line number corrections from Fernflower.").withRequiredArg().ofType(File.class);
+    private final OptionSpec<Void> reverseO = parser.accepts("reverse", "Reverse provided mapping file before applying");
+    private final OptionSpec<Void> disableAbstractParam = parser.accepts("disable-abstract-param", "Disables collection of names of parameters of abstract methods for FernFlower");
+
     public static void main(String[] args) throws IOException {
-        OptionParser parser = new OptionParser();
-        OptionSpec<File> inputO  = parser.accepts("input",  "Input jar file").withRequiredArg().ofType(File.class).required();
-        OptionSpec<File> outputO = parser.accepts("output", "Output jar file, if unspecifed, overwrites input").withRequiredArg().ofType(File.class);
-        OptionSpec<File> mapO    = parser.acceptsAll(Arrays.asList("map", "names"),    "Mapping file to apply").withRequiredArg().ofType(File.class);
-        OptionSpec<File> logO    = parser.accepts("log",    "File to log data to, optional, defaults to System.out").withRequiredArg().ofType(File.class);
-        OptionSpec<File> libO    = parser.acceptsAll(Arrays.asList("lib", "e"), "Additional library to use for inheritance").withRequiredArg().ofType(File.class);
-        OptionSpec<Void> fixAnnO = parser.accepts("ann-fix", "Fixes misaligned parameter annotations caused by Proguard");
-        OptionSpec<Void> unfinalParams0 = parser.accepts("unfinal-params", "Remove final flag from parameters");
-        OptionSpec<Void> fixRecordsO = parser.accepts("record-fix", "Fixes record components and attributes stripped by Proguard.");
-        OptionSpec<IdentifierFixerConfig> fixIdsO = parser.accepts("ids-fix", "Fixes local variables that are not valid java identifiers.").withOptionalArg().withValuesConvertedBy(new EnumConverter<>(IdentifierFixerConfig.class)).defaultsTo(IdentifierFixerConfig.ALL);
-        OptionSpec<SourceFixerConfig> fixSrcO = parser.accepts("src-fix", "Fixes the 'SourceFile' attribute of classes.").withOptionalArg().withValuesConvertedBy(new EnumConverter<>(SourceFixerConfig.class)).defaultsTo(SourceFixerConfig.JAVA);
-        OptionSpec<SignatureStripperConfig> stripSigsO = parser.accepts("strip-sigs", "Strip invalid codesigning signatures from the Jar manifest").withOptionalArg().withValuesConvertedBy(new EnumConverter<>(SignatureStripperConfig.class)).defaultsTo(SignatureStripperConfig.ALL);
-        OptionSpec<Integer> threadsO = parser.accepts("threads", "Number of threads to use, defaults to processor count.").withRequiredArg().ofType(Integer.class).defaultsTo(Runtime.getRuntime().availableProcessors());
-        OptionSpec<File> ffLinesO = parser.accepts("ff-line-numbers", "Applies line number corrections from Fernflower.").withRequiredArg().ofType(File.class);
-        OptionSpec<Void> reverseO = parser.accepts("reverse", "Reverse provided mapping file before applying");
-        OptionSpec<Void> disableAbstractParam = parser.accepts("disable-abstract-param", "Disables collection of names of parameters of abstract methods for FernFlower");
+        new Main().run(args);
+    }
+
+    private void run(String[] args) throws IOException {
+        args = expandArgs(args);
         OptionSet options;
         try {
-            options = parser.parse(expandArgs(args));
+            options = parser.parse(args);
         } catch (OptionException ex) {
             System.err.println("Error: " + ex.getMessage());
             System.err.println();
@@ -74,16 +108,42 @@ public class Main {
         }
 
         log.accept("Forge Auto Renaming Tool v" + getVersion());
+        if (options.has(batchO)) {
+            runBatch(options, args, log);
+            return;
+        }
+
         Renamer.Builder builder = Renamer.builder();
         builder.withJvmClasspath();
         builder.logger(log);
+        configure(options, builder, log, null);
 
+        File inputF = options.valueOf(inputO);
+        File outputF = options.has(outputO) ? options.valueOf(outputO) : inputF;
+        try (Renamer renamer = builder.build()) {
+            renamer.run(inputF, outputF);
+        }
+    }
+
+    /**
+     * Configures the builder from the parsed options, sharing libraries, mappings and the executor with other jobs if {@code shared} is given.
+     */
+    private void configure(OptionSet options, Renamer.Builder builder, Consumer<String> log, @Nullable BatchResources shared) throws IOException {
         // Move this up top so that the log lines are above the rest of the config as they can be spammy.
         // Its useful information but we care more about the specific configs.
+        File libCache = options.valueOf(libCacheO);
+        if (libCache != null) {
+            log.accept("lib-cache: " + libCache.getAbsolutePath());
+            builder.libraryCache(libCache);
+        }
+
         if (options.has(libO)) {
             for (File lib : options.valuesOf(libO)) {
                 log.accept("lib: " + lib.getAbsolutePath());
-                builder.lib(lib);
+                if (shared == null)
+                    builder.lib(lib);
+                else
+                    builder.addClassProvider(shared.getLibrary(lib, libCache));
             }
         }
 
@@ -97,19 +157,55 @@ public class Main {
 
         log.accept("threads: " + options.valueOf(threadsO));
         builder.threads(options.valueOf(threadsO));
+        if (shared != null)
+            builder.executor(shared.executor);
+
+        if (options.has(streamO)) {
+            log.accept("Streaming window: " + options.valueOf(streamO));
+            builder.streaming(options.valueOf(streamO));
+        }
+
+        if (options.has(incrementalO)) {
+            log.accept("Incremental: true");
+            builder.incremental(true);
+        }
+
+        if (options.has(statsO)) {
+            File statsF = getStatsFile(options, shared != null);
+            log.accept("Stats: " + (statsF == null ? "log" : statsF.getAbsolutePath()));
+            builder.stats(stats -> {
+                if (statsF == null) {
+                    for (String line : stats.toString().split("\\R"))
+                        log.accept(line);
+                    return;
+                }
+                try {
+                    Files.write(statsF.toPath(), stats.toJson().getBytes(StandardCharsets.UTF_8));
+                } catch (IOException e) {
+                    throw new UncheckedIOException("Could not write stats to " + statsF.getAbsolutePath(), e);
+                }
+            });
+        }
+
+        if (options.has(compressionO)) {
+            log.accept("Compression: " + options.valueOf(compressionO));
+            builder.compression(parseCompression(options.valueOf(compressionO)));
+        }
+
+        for (String value : options.valuesOf(compressionExtO)) {
+            int idx = value.indexOf('=');
+            if (idx == -1)
+                throw new IllegalArgumentException("Invalid --compression-ext value, expected ext=level: " + value);
+            log.accept("Compression for " + value.substring(0, idx) + ": " + value.substring(idx + 1));
+            builder.compression(value.substring(0, idx), parseCompression(value.substring(idx + 1)));
+        }
 
         // Map is optional so that we can run other fixes without renaming.
         // This does mean that it's not strictly a 'renaming' tool but screw it I like the name.
         if (options.has(mapO)) {
             List<File> mapF = options.valuesOf(mapO);
             log.accept("Names: " + mapF.stream().map(File::getAbsolutePath).collect(Collectors.joining(", ")) + "(reversed: " + options.has(reverseO) + ")");
-            IMappingFile mappings = IMappingFile.load(mapF.get(0));
-            for (int i = 1; i < mapF.size(); i++) {
-                mappings = mappings.merge(IMappingFile.load(mapF.get(i)));
-            }
-            if (options.has(reverseO)) {
-                mappings = mappings.reverse();
-            }
+            IMappingFile mappings = shared == null ? loadMappings(mapF, options.has(reverseO)) : shared.getMappings(mapF, options.has(reverseO));
 
             builder.add(Transformer.renamerFactory(mappings, !options.has(disableAbstractParam)));
         } else {
@@ -167,9 +263,171 @@ public class Main {
             log.accept("Strip codesigning signatures: false");
         }
 
-        try (Renamer renamer = builder.build()) {
-            renamer.run(inputF, outputF);
+        // Like withJvmClasspath, the JVM classpath comes after everything else
+        if (shared != null)
+            builder.addClassProvider(shared.jvmClasspath);
+    }
+
+    private static IMappingFile loadMappings(List<File> files, boolean reverse) throws IOException {
+        IMappingFile mappings = IMappingFile.load(files.get(0));
+        for (int i = 1; i < files.size(); i++) {
+            mappings = mappings.merge(IMappingFile.load(files.get(i)));
+        }
+        if (reverse) {
+            mappings = mappings.reverse();
         }
+        return mappings;
+    }
+
+    /**
+     * Runs every job of the batch file in this JVM. Jobs are parsed up front, so that a broken job file fails
+     * before anything runs, and then run {@code --batch-jobs} at a time on one shared executor,
+     * with libraries, mappings and the JVM classpath loaded once for all jobs.
+     */
+    private void runBatch(OptionSet options, String[] args, Consumer<String> log) throws IOException {
+        File batchF = options.valueOf(batchO);
+        log.accept("batch: " + batchF.getAbsolutePath());
+
+        // Every argument except the batch ones is shared by all jobs
+        List<String> globalArgs = new ArrayList<>();
+        for (int x = 0; x < args.length; x++) {
+            if (args[x].equals("--batch") || args[x].equals("--batch-jobs"))
+                x++;
+            else if (!args[x].startsWith("--batch=") && !args[x].startsWith("--batch-jobs="))
+                globalArgs.add(args[x]);
+        }
+
+        List<String> lines = Files.readAllLines(batchF.toPath());
+        List<String> names = new ArrayList<>();
+        List<OptionSet> jobs = new ArrayList<>();
+        for (int i = 0; i < lines.size(); i++) {
+            String line = lines.get(i).trim();
+            if (line.isEmpty() || line.startsWith("#"))
+                continue;
+
+            List<String> jobArgs = new ArrayList<>(globalArgs);
+            jobArgs.addAll(splitArgs(line));
+            try {
+                OptionSet job = parser.parse(expandArgs(jobArgs.toArray(new String[0])));
+                names.add((i + 1) + ": " + job.valueOf(inputO).getName());
+                jobs.add(job);
+            } catch (OptionException ex) {
+                throw new IllegalArgumentException("Invalid batch job on line " + (i + 1) + ": " + ex.getMessage(), ex);
+            }
+        }
+
+        Map<File, String> statsFiles = new HashMap<>();
+        for (int i = 0; i < jobs.size(); i++) {
+            File statsF = getStatsFile(jobs.get(i), true);
+            String other = statsF == null ? null : statsFiles.putIfAbsent(statsF.getAbsoluteFile(), names.get(i));
+            if (other != null)
+                throw new IllegalArgumentException("Batch jobs " + other + " and " + names.get(i) + " would write their stats to the same file " + statsF.getAbsolutePath());
+        }
+
+        int parallel = options.valueOf(batchJobsO);
+        if (parallel <= 0)
+            throw new IllegalArgumentException("Invalid number of batch jobs: " + parallel);
+        log.accept("Running " + jobs.size() + " jobs, " + parallel + " at once");
+
+        List<String> failed = new ArrayList<>();
+        try (BatchResources shared = new BatchResources(options.valueOf(threadsO))) {
+            ExecutorService jobExecutor = Executors.newFixedThreadPool(parallel);
+            try {
+                List<Future<Boolean>> results = new ArrayList<>();
+                for (int i = 0; i < jobs.size(); i++) {
+                    OptionSet job = jobs.get(i);
+                    String name = names.get(i);
+                    results.add(jobExecutor.submit(() -> runJob(job, name, log, shared)));
+                }
+                for (int i = 0; i < results.size(); i++) {
+                    if (!results.get(i).get())
+                        failed.add(names.get(i));
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new RuntimeException(e);
+            } catch (ExecutionException e) {
+                throw new RuntimeException(e.getCause());
+            } finally {
+                jobExecutor.shutdownNow();
+            }
+        }
+
+        if (!failed.isEmpty())
+            throw new RuntimeException(failed.size() + " of " + jobs.size() + " batch jobs failed: " + String.join(", ", failed));
+        log.accept("Finished " + jobs.size() + " jobs");
+    }
+
+    private boolean runJob(OptionSet options, String name, Consumer<String> log, BatchResources shared) {
+        Consumer<String> jobLog = ln -> {
+            if (!ln.isEmpty())
+                log.accept("[" + name + "] " + ln);
+        };
+
+        try {
+            Renamer.Builder builder = Renamer.builder();
+            builder.logger(jobLog);
+            configure(options, builder, jobLog, shared);
+
+            File inputF = options.valueOf(inputO);
+            File outputF = options.has(outputO) ? options.valueOf(outputO) : inputF;
+            try (Renamer renamer = builder.build()) {
+                renamer.run(inputF, outputF);
+            }
+            return true;
+        } catch (Exception e) {
+            StringWriter trace = new StringWriter();
+            e.printStackTrace(new PrintWriter(trace));
+            jobLog.accept("Failed: " + trace);
+            return false;
+        }
+    }
+
+    /**
+     * Returns the file to write the stats of the given job to, or null to log them. Jobs of a batch that share a stats
+     * file each write to their own file instead, suffixed with the name of their output.
+     */
+    @Nullable
+    private File getStatsFile(OptionSet options, boolean batch) {
+        File statsF = options.valueOf(statsO);
+        if (statsF == null || !batch)
+            return statsF;
+
+        File outputF = options.has(outputO) ? options.valueOf(outputO) : options.valueOf(inputO);
+        String name = statsF.getName();
+        int ext = name.lastIndexOf('.');
+        String suffix = "-" + outputF.getName();
+        return new File(statsF.getAbsoluteFile().getParentFile(), ext == -1 ? name + suffix : name.substring(0, ext) + suffix + name.substring(ext));
+    }
+
+    /**
+     * Splits a line of a batch file into arguments on whitespace, keeping text in double quotes together.
+     */
+    private static List<String> splitArgs(String line) {
+        List<String> ret = new ArrayList<>();
+        StringBuilder current = new StringBuilder();
+        boolean quoted = false;
+        boolean hasArg = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (c == '"') {
+                quoted = !quoted;
+                hasArg = true;
+            } else if (!quoted && Character.isWhitespace(c)) {
+                if (hasArg)
+                    ret.add(current.toString());
+                current.setLength(0);
+                hasArg = false;
+            } else {
+                current.append(c);
+                hasArg = true;
+            }
+        }
+        if (quoted)
+            throw new IllegalArgumentException("Unterminated quote in batch job: " + line);
+        if (hasArg)
+            ret.add(current.toString());
+        return ret;
     }
 
     private static String[] expandArgs(String[] args) throws IOException {
@@ -194,11 +452,107 @@ public class Main {
         return ret.toArray(new String[ret.size()]);
     }
 
+    private static int parseCompression(String value) {
+        if ("store".equalsIgnoreCase(value) || "stored".equalsIgnoreCase(value))
+            return Renamer.Builder.STORED;
+        if ("default".equalsIgnoreCase(value))
+            return Deflater.DEFAULT_COMPRESSION;
+        try {
+            return Integer.parseInt(value);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid compression level, expected 0-9, 'default' or 'store': " + value);
+        }
+    }
+
     private static String getVersion() {
         final String ver = Main.class.getPackage().getImplementationVersion();
         return ver == null ? "UNKNOWN" : ver;
     }
 
+    /**
+     * Everything that is loaded once and shared by all jobs of a batch.
+     * <p>
+     * Each resource is loaded by the first job that needs it, while other jobs that need the same one wait for it.
+     * Loading happens outside of the maps' locks, so that jobs loading other resources are not held up.
+     */
+    private static class BatchResources implements Closeable {
+        private final ExecutorService executor;
+        private final ClassProvider jvmClasspathProvider = ClassProvider.fromJvmClasspath();
+        private final ClassProvider jvmClasspath = ClassProvider.shared(jvmClasspathProvider);
+        private final Collection<ClassProvider> libraryProviders = new ConcurrentLinkedQueue<>();
+        private final Map<List<File>, CompletableFuture<ClassProvider>> libraries = new ConcurrentHashMap<>();
+        private final Map<List<Object>, CompletableFuture<IMappingFile>> mappings = new ConcurrentHashMap<>();
+
+        private BatchResources(int threads) {
+            if (threads <= 0)
+                throw new IllegalArgumentException("Really.. no threads to process things? What do you want me to use a genie?");
+            this.executor = threads == 1 ? Executors.newSingleThreadExecutor() : Executors.newWorkStealingPool(threads);
+        }
+
+        /**
+         * Returns the shared provider of the given library, which is only shared with jobs using the same library cache.
+         */
+        private ClassProvider getLibrary(File lib, @Nullable File cache) throws IOException {
+            File file = lib.getAbsoluteFile();
+            return load(this.libraries, Arrays.asList(file, cache == null ? null : cache.getAbsoluteFile()), () -> {
+                ClassProvider.Builder builder = ClassProvider.builder();
+                if (cache != null)
+                    builder.cacheDirectory(cache.toPath());
+                ClassProvider provider = builder.addLibrary(file.toPath()).build();
+                this.libraryProviders.add(provider);
+                return ClassProvider.shared(provider);
+            });
+        }
+
+        private IMappingFile getMappings(List<File> files, boolean reverse) throws IOException {
+            List<Object> key = Arrays.asList(files.stream().map(File::getAbsoluteFile).collect(Collectors.toList()), reverse);
+            return load(this.mappings, key, () -> loadMappings(files, reverse));
+        }
+
+        /**
+         * Returns the resource of the given key, loading it on the current thread if no other job loaded it yet.
+         * Resources that failed to load are loaded again by the next job that needs them.
+         */
+        private static <K, V> V load(Map<K, CompletableFuture<V>> resources, K key, Callable<V> loader) throws IOException {
+            CompletableFuture<V> future = resources.get(key);
+            if (future == null) {
+                CompletableFuture<V> created = new CompletableFuture<>();
+                future = resources.putIfAbsent(key, created);
+                if (future == null) {
+                    try {
+                        V ret = loader.call();
+                        created.complete(ret);
+                        return ret;
+                    } catch (Exception e) {
+                        resources.remove(key, created);
+                        created.completeExceptionally(e);
+                        if (e instanceof IOException)
+                            throw (IOException) e;
+                        if (e instanceof RuntimeException)
+                            throw (RuntimeException) e;
+                        throw new RuntimeException(e);
+                    }
+                }
+            }
+
+            try {
+                return future.join();
+            } catch (CompletionException e) {
+                if (e.getCause() instanceof IOException)
+                    throw (IOException) e.getCause();
+                throw e;
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            this.executor.shutdown();
+            this.jvmClasspathProvider.close();
+            for (ClassProvider provider : this.libraryProviders)
+                provider.close();
+        }
+    }
+
     private static class EnumConverter<T extends Enum<T>> extends joptsimple.util.EnumConverter<T> {
         private EnumConverter(Class<T> enumClazz) {
             super(enumClazz);
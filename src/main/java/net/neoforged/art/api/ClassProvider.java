@@ -7,6 +7,7 @@ package net.neoforged.art.api;
 
 import net.neoforged.art.internal.ClassLoaderClassProvider;
 import net.neoforged.art.internal.ClassProviderBuilderImpl;
+import net.neoforged.art.internal.SharedClassProvider;
 import org.jetbrains.annotations.Nullable;
 import org.objectweb.asm.Type;
 import org.objectweb.asm.tree.ClassNode;
@@ -73,6 +74,19 @@ public interface ClassProvider extends Closeable {
         return new ClassLoaderClassProvider(classLoader);
     }
 
+    /**
+     * Wraps the given class provider so that it can be shared between multiple {@link Renamer renamers}.
+     * <p>
+     * All queried class infos are cached, including classes that could not be found, and closing the returned
+     * provider does nothing, so that a renamer being closed does not close it for the others.
+     * The caller is responsible for closing the given provider once it is no longer used.
+     *
+     * @param provider the class provider to share
+     */
+    static ClassProvider shared(ClassProvider provider) {
+        return new SharedClassProvider(provider);
+    }
+
     /**
      * Queries the class information from this class path.
      * An empty optional will be returned if the class cannot be found.
@@ -114,6 +128,27 @@ public interface ClassProvider extends Closeable {
          */
         Builder shouldCacheAll(boolean value);
 
+        /**
+         * Sets a directory to persistently cache indexes of the class infos of library JAR files in.
+         * <p>
+         * Libraries added after this call are read from their cached index instead of the JAR, as long as the JAR's size
+         * and modification time are unchanged. Otherwise their index is built and cached for the next time.
+         * Directories are always read directly.
+         *
+         * @param directory the cache directory, which is created if it doesn't exist
+         * @return this builder
+         */
+        Builder cacheDirectory(Path directory);
+
+        /**
+         * Sets the metrics to record the hits and misses of the cache enabled by {@link #shouldCacheAll(boolean)} into,
+         * and the time spent reading and parsing library classes. Defaults to {@link Metrics#disabled()}.
+         *
+         * @param metrics the metrics to record into
+         * @return this builder
+         */
+        Builder metrics(Metrics metrics);
+
         /**
          * Builds the {@link ClassProvider} instance based on this configured builder.
          *
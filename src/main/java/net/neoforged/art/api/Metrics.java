@@ -0,0 +1,118 @@
+/*
+ * Copyright (c) Forge Development LLC and contributors
+ * SPDX-License-Identifier: LGPL-2.1-only
+ */
+
+package net.neoforged.art.api;
+
+import net.neoforged.art.internal.MetricsImpl;
+
+import java.util.Map;
+
+/**
+ * A registry of counters and histograms that the renamer, its class providers and transformers record into.
+ * <p>
+ * Metrics are passed to a renamer with {@link Renamer.Builder#metrics(Metrics)}, and to transformers through
+ * {@link Transformer.Context#getMetrics()}. They keep counting across runs until they are {@link #reset()}, and can be
+ * read at any time, such as after {@link Renamer#run(java.io.File, java.io.File)} returns. All metrics are safe to record
+ * into from many threads at once. The built-in metrics are:
+ * <ul>
+ * <li>{@code classProvider.cache.hits} and {@code classProvider.cache.misses} - Lookups in the combined class provider of a renamer</li>
+ * <li>{@code classProvider.notFound} - Classes that none of the class providers of a renamer knows</li>
+ * <li>{@code classProvider.lookups.<index>.<type>} - Lookups in each class provider of a renamer, in the order they are searched</li>
+ * <li>{@code library.cache.hits} and {@code library.cache.misses} - Lookups in the cache of class providers built with
+ * {@link ClassProvider.Builder#shouldCacheAll(boolean)}</li>
+ * <li>{@code library.read.io} and {@code library.read.cpu} - Histograms of the nanoseconds spent reading the bytes of a
+ * library class, and parsing them</li>
+ * <li>{@code remapper.resolved.hits} and {@code remapper.resolved.misses} - Lookups of resolved classes while remapping</li>
+ * <li>{@code remapper.classes} - Classes resolved for remapping, and the histogram {@code remapper.depth} of their hierarchy depths</li>
+ * <li>{@code remapper.propagations} - Method mappings propagated between a class and its parents</li>
+ * <li>{@code renaming.classes.processed} and {@code renaming.classes.skipped} - Classes seen by renaming transformers, and
+ * those of them that were not remapped as they reference nothing mapped</li>
+ * </ul>
+ */
+public interface Metrics {
+    /**
+     * Creates new metrics that record everything.
+     */
+    static Metrics create() {
+        return new MetricsImpl();
+    }
+
+    /**
+     * Returns metrics that record nothing, and cost next to nothing to record into. This is the default.
+     */
+    static Metrics disabled() {
+        return MetricsImpl.DISABLED;
+    }
+
+    /**
+     * Returns whether these metrics record anything, so that callers can skip measuring values that would be thrown away.
+     */
+    boolean isEnabled();
+
+    /**
+     * Returns the counter with the given name, creating it if it does not exist yet.
+     * Counters should be looked up once and then kept, instead of being looked up every time they are incremented.
+     */
+    Counter counter(String name);
+
+    /**
+     * Returns the histogram with the given name, creating it if it does not exist yet.
+     * Histograms should be looked up once and then kept, instead of being looked up every time they record a value.
+     */
+    Histogram histogram(String name);
+
+    /**
+     * Returns the current values of all counters by their name, sorted by name.
+     */
+    Map<String, Long> getCounters();
+
+    /**
+     * Returns all histograms by their name, sorted by name.
+     */
+    Map<String, Histogram> getHistograms();
+
+    /**
+     * Resets all counters and histograms to zero.
+     */
+    void reset();
+
+    /**
+     * Returns all metrics as a table, with one line per counter and per histogram.
+     */
+    @Override
+    String toString();
+
+    /**
+     * A counter that is incremented from many threads at once.
+     */
+    interface Counter {
+        void increment();
+
+        void add(long value);
+
+        long get();
+    }
+
+    /**
+     * A histogram of non-negative values, such as durations in nanoseconds. Values are counted in buckets of powers of
+     * two, so percentiles are approximate, while the count, sum and maximum are exact.
+     */
+    interface Histogram {
+        void record(long value);
+
+        long getCount();
+
+        long getSum();
+
+        long getMax();
+
+        /**
+         * Returns an upper bound of the given percentile of the recorded values, which is at most twice the exact one.
+         *
+         * @param percentile the percentile, between {@code 0} and {@code 100}
+         */
+        long getPercentile(double percentile);
+    }
+}
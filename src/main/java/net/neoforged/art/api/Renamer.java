@@ -8,6 +8,7 @@ package net.neoforged.art.api;
 import java.io.Closeable;
 import java.io.File;
 import java.util.List;
+import java.util.Map;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ExecutorService;
 import java.util.function.Consumer;
@@ -22,9 +23,15 @@ public interface Renamer extends Closeable {
      * Runs the renamer and all registered transformers on the input JAR file,
      * and then outputs it to the output JAR file.
      * This method is guaranteed to be repeatable with multiple inputs and outputs.
+     * <p>
+     * Both the input and output may also be exploded directories instead of JAR files. The output is only written as a
+     * directory if the input is one, and then if it is an existing directory, or if it does not exist yet and its name
+     * does not end with {@code .jar} or {@code .zip}. An existing output directory is replaced as a whole, just like an
+     * output JAR file would be, but only if it is the input itself, is empty, or was written by an earlier run, which
+     * is marked by a {@code .art-output} file in it. An input JAR file can not be written to a directory.
      *
-     * @param input the input JAR file to process
-     * @param output the output JAR file location
+     * @param input the input JAR file or directory to process
+     * @param output the output JAR file or directory location
      */
     void run(File input, File output);
 
@@ -61,6 +68,13 @@ public interface Renamer extends Closeable {
      * A {@code Renamer.Builder} is used to configure and construct a {@link Renamer}.
      */
     public interface Builder {
+        /**
+         * Compression level that writes entries without compressing them, using the ZIP {@code STORED} method.
+         *
+         * @see #compression(int)
+         */
+        int STORED = -2;
+
         /**
          * Adds a library file to the classpath to use for inheritance.
          *
@@ -77,6 +91,16 @@ public interface Renamer extends Closeable {
          */
         Builder map(File value);
 
+        /**
+         * Sets a directory to persistently cache indexes of the {@link #lib(File) libraries} in,
+         * so that later runs don't need to read unchanged library JARs again.
+         *
+         * @param directory the cache directory
+         * @return this builder
+         * @see ClassProvider.Builder#cacheDirectory(java.nio.file.Path)
+         */
+        Builder libraryCache(File directory);
+
         /**
          * Adds a class provider to use when searching for classes during transformation.
          *
@@ -118,6 +142,96 @@ public interface Renamer extends Closeable {
          */
         Builder threads(int value);
 
+        /**
+         * Sets the executor to process all entries with, instead of creating a new one with {@link #threads(int)}
+         * threads for every run. This allows multiple renamers to share one pool.
+         * The executor is not shut down by the renamer.
+         *
+         * @param executor the executor to use
+         * @return this builder
+         */
+        Builder executor(ExecutorService executor);
+
+        /**
+         * Enables streaming processing in {@link Renamer#run(File, File)}.
+         * <p>
+         * Instead of reading the whole input JAR into memory before processing it, entries are read, transformed and
+         * written in a bounded window, so that at most {@code window} entries are held in memory at once and writing
+         * overlaps with processing. Entries are written in the sorted order of their input names rather than their
+         * output names, which keeps the output stable between runs. Defaults to {@code 0}, which disables streaming.
+         *
+         * @param window the maximum number of entries in flight, or {@code 0} to disable streaming
+         * @return this builder
+         */
+        Builder streaming(int window);
+
+        /**
+         * Sets the compression level of the entries written by {@link Renamer#run(File, File)}.
+         * <p>
+         * This is either a {@link java.util.zip.Deflater} level from {@code 0} to {@code 9},
+         * {@link java.util.zip.Deflater#DEFAULT_COMPRESSION} (the default), or {@link #STORED} to not compress entries at all.
+         * Entries that are not changed are copied from the input as they are if they are stored the same way,
+         * so deflated entries keep the level they were compressed with.
+         *
+         * @param level the compression level
+         * @return this builder
+         * @see #compression(String, int)
+         */
+        Builder compression(int level);
+
+        /**
+         * Sets the compression level of written entries with the given file extension, overriding {@link #compression(int)}.
+         * For example, {@code compression("png", STORED)} stores already compressed images without deflating them again.
+         *
+         * @param extension the file extension, without the leading dot and case-insensitive
+         * @param level the compression level
+         * @return this builder
+         * @see #compression(int)
+         */
+        Builder compression(String extension, int level);
+
+        /**
+         * Enables incremental processing in {@link Renamer#run(File, File)} between JAR files.
+         * <p>
+         * A manifest is kept next to the output, as {@code <output>.artcache}, which records the hashes of every input class,
+         * of the configuration of the transformers including the mappings, and of the classes whose members were looked up
+         * while remapping it. Classes whose input and dependencies did not change since the last run are copied from the
+         * previous output instead of being processed again. This is only done if all transformers support it, which all
+         * built-in transformers do. Defaults to {@code false}.
+         *
+         * @param value whether to process incrementally
+         * @return this builder
+         */
+        Builder incremental(boolean value);
+
+        /**
+         * Collects timings of every run, and passes them to the given consumer once the run is done.
+         * <p>
+         * The timings include the wall clock time of each stage of the run, and the CPU time, number of calls and
+         * bytes in and out of every transformer for every kind of entry. Collecting timings adds some overhead to every
+         * transformer call, so it is disabled by default.
+         * <p>
+         * Consecutive transformers that work on class visitors, such as the built-in ones, normally process classes in a
+         * single pass that reads and writes every class once. Their visitors run interleaved, so they can't be timed on
+         * their own in that pass. While timings are collected, each of them reads and writes classes on its own instead,
+         * so that every transformer is reported separately. This makes the run slower than an unobserved one, so the
+         * reported times of these transformers add up to more than they take without timings.
+         *
+         * @param consumer the consumer of the stats of every run
+         * @return this builder
+         */
+        Builder stats(Consumer<? super Stats> consumer);
+
+        /**
+         * Sets the metrics that the renamer, its class providers and its transformers record into, such as the hits and
+         * misses of their caches. See {@link Metrics} for the metrics that are recorded.
+         * The metrics are not reset between runs. Defaults to {@link Metrics#disabled()}.
+         *
+         * @param metrics the metrics to record into
+         * @return this builder
+         */
+        Builder metrics(Metrics metrics);
+
         /**
          * Sets the logging consumer to use for standard logging.
          *
@@ -149,4 +263,69 @@ public interface Renamer extends Closeable {
          */
         Renamer build();
     }
+
+    /**
+     * Timings of a single run, as collected if {@link Builder#stats(Consumer)} is set.
+     */
+    public interface Stats {
+        /**
+         * Returns the wall clock time of each stage of the run in nanoseconds, in the order the stages run in.
+         * Stages that are not part of the run, such as reading the input when running on entries, are missing.
+         * Stages can overlap: a streaming run writes entries while the next ones are processed, and that time counts
+         * towards both the process and the write stage.
+         */
+        Map<String, Long> getStageTimes();
+
+        /**
+         * Returns the stats of every transformer for every kind of entry it processed, in the order of the transformers.
+         */
+        List<TransformerStats> getTransformers();
+
+        /**
+         * Returns the stats as a JSON object.
+         */
+        String toJson();
+
+        /**
+         * Returns the stats as a table, with one line per stage and per transformer and kind of entry.
+         */
+        @Override
+        String toString();
+    }
+
+    /**
+     * The stats of a transformer for one kind of entry.
+     */
+    public interface TransformerStats {
+        /**
+         * Returns the name of the transformer.
+         */
+        String getTransformer();
+
+        /**
+         * Returns the kind of entries, which is one of {@code class}, {@code resource}, {@code manifest} or {@code javadoctor}.
+         */
+        String getEntryKind();
+
+        /**
+         * Returns how often the transformer was called.
+         */
+        long getCalls();
+
+        /**
+         * Returns the CPU time the transformer took in total in nanoseconds,
+         * or the wall clock time if the JVM does not support measuring the CPU time of threads.
+         */
+        long getCpuTime();
+
+        /**
+         * Returns the uncompressed size of all entries passed to the transformer.
+         */
+        long getBytesIn();
+
+        /**
+         * Returns the uncompressed size of all entries returned by the transformer.
+         */
+        long getBytesOut();
+    }
 }
@@ -8,6 +8,8 @@ package net.neoforged.art.api;
 import java.io.File;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
 import java.util.function.Consumer;
 import java.util.jar.JarFile;
 import java.util.jar.Manifest;
@@ -22,6 +24,9 @@ import net.neoforged.art.internal.RenamingTransformer;
 import net.neoforged.art.internal.SignatureStripperTransformer;
 import net.neoforged.art.internal.SourceFixer;
 import net.neoforged.srgutils.IMappingFile;
+import org.jetbrains.annotations.Nullable;
+import org.objectweb.asm.ClassReader;
+import org.objectweb.asm.ClassVisitor;
 import org.objectweb.asm.Type;
 
 import static java.util.Objects.requireNonNull;
@@ -31,6 +36,19 @@ import static java.util.Objects.requireNonNull;
  * Transformers can be registered to a {@link Renamer.Builder} to run over all entries.
  */
 public interface Transformer {
+    /**
+     * Prepares this transformer for a run, before any entry is processed.
+     * This is called once per run, after the classes of the input have been added to the class provider,
+     * and can be used to compute state up front instead of while processing entries.
+     *
+     * @param classes the internal names of all classes of the input
+     * @param executor the executor to run parallel work on
+     * @return a future that completes once the transformer is ready to process entries
+     */
+    default CompletableFuture<Void> prepare(Collection<String> classes, ExecutorService executor) {
+        return CompletableFuture.completedFuture(null);
+    }
+
     /**
      * Processes a class entry and returns the transformed entry.
      *
@@ -86,7 +104,7 @@ public interface Transformer {
      * @return a factory for a renaming transformer
      */
     static Factory renamerFactory(IMappingFile map, boolean collectAbstractParams) {
-        return ctx -> new RenamingTransformer(ctx.getClassProvider(), map, ctx.getLog(), collectAbstractParams);
+        return ctx -> new RenamingTransformer(ctx.getClassProvider(), map, ctx.getLog(), ctx.getDebug(), collectAbstractParams, ctx.getMetrics());
     }
 
     /**
@@ -156,6 +174,46 @@ public interface Transformer {
         return ctx -> new SignatureStripperTransformer(config);
     }
 
+    /**
+     * A {@code ClassVisitorTransformer} is a transformer that transforms classes with an ASM {@link ClassVisitor}.
+     * <p>
+     * When several of these transformers are registered one after another, the renamer chains their visitors
+     * so that each class is only parsed and written once for all of them, instead of once per transformer.
+     * {@link #process(ClassEntry)} must still produce the same result when the transformer is used on its own.
+     */
+    public interface ClassVisitorTransformer extends Transformer {
+        /**
+         * Creates the visitor to transform the given class with, which delegates to the {@code parent} visitor.
+         * The class name passed to {@link ClassVisitor#visit} may differ from the name of the entry,
+         * if a transformer before this one in the chain renamed the class.
+         *
+         * @param entry the original entry
+         * @param reader the reader of the original class data, which must not be accepted by the transformer
+         * @param parent the visitor to delegate to
+         * @return the visitor, or {@code null} if this transformer does not change the class
+         */
+        @Nullable
+        ClassVisitor createVisitor(ClassEntry entry, ClassReader reader, ClassVisitor parent);
+
+        /**
+         * Returns whether the visitor created by {@link #createVisitor(ClassEntry, ClassReader, ClassVisitor)} changed the class
+         * after it has been visited. If no visitor in a chain made a change, the original entry is kept.
+         *
+         * @param visitor the visitor created by this transformer
+         * @return {@code true} if the class was changed
+         */
+        boolean madeChange(ClassVisitor visitor);
+
+        /**
+         * Returns whether this transformer renames constants of the class, such as class or member names.
+         * If so, and it created a visitor for the class, the constant pool of the input can not be copied to the output
+         * and is built from scratch instead.
+         */
+        default boolean rewritesConstantPool() {
+            return false;
+        }
+    }
+
     /**
      * A {@code Entry} is a single entry representing an entry in a JAR file.
      */
@@ -375,5 +433,14 @@ public interface Transformer {
          * @return the class provider instance
          */
         ClassProvider getClassProvider();
+
+        /**
+         * Get the metrics that the renamer and its transformers record into.
+         *
+         * @return the metrics, which are {@link Metrics#disabled()} unless the renamer was given any
+         */
+        default Metrics getMetrics() {
+            return Metrics.disabled();
+        }
     }
 }
@@ -0,0 +1,77 @@
+/*
+ * Copyright (c) Forge Development LLC and contributors
+ * SPDX-License-Identifier: LGPL-2.1-only
+ */
+
+package net.neoforged.art.internal;
+
+import net.neoforged.art.api.Transformer;
+import net.neoforged.art.api.Transformer.Entry;
+
+import java.nio.file.Path;
+
+/**
+ * The Java Flight Recorder events of a run.
+ * <p>
+ * Java 8 has no API to emit events with, so this version does nothing. On Java 11 and later, the multi-release JAR
+ * replaces it with the version in {@code src/main/java11}, which emits the events under the {@code net.neoforged.art}
+ * namespace. Both versions have to stay in sync.
+ */
+final class ArtEvents {
+    private static final Stage NO_STAGE = stage -> {};
+    private static final Library NO_LIBRARY = classes -> {};
+    private static final Resolution NO_RESOLUTION = depth -> {};
+    private static final Transform NO_TRANSFORM = () -> {};
+
+    private ArtEvents() {}
+
+    /**
+     * Starts a stage of the pipeline, whose name is only known once it ends.
+     */
+    static Stage beginStage() {
+        return NO_STAGE;
+    }
+
+    /**
+     * Starts adding a library to a class provider.
+     */
+    static Library beginLibrary(Path path) {
+        return NO_LIBRARY;
+    }
+
+    /**
+     * Starts resolving the hierarchy and members of a class in an {@link EnhancedRemapper}.
+     */
+    static Resolution beginResolution(String cls) {
+        return NO_RESOLUTION;
+    }
+
+    /**
+     * Starts a single call of a transformer, which is only recorded if it takes longer than the configured threshold.
+     */
+    static Transform beginTransform(Transformer transformer, Entry entry) {
+        return NO_TRANSFORM;
+    }
+
+    interface Stage {
+        void finish(String stage);
+    }
+
+    interface Library {
+        /**
+         * @param classes the number of classes the library added that were not provided by an earlier one
+         */
+        void finish(int classes);
+    }
+
+    interface Resolution {
+        /**
+         * @param depth the length of the longest path to a root of the class hierarchy, or -1 if the class was not found
+         */
+        void finish(int depth);
+    }
+
+    interface Transform {
+        void finish();
+    }
+}
@@ -74,6 +74,17 @@ class AsyncHelper {
         return ret;
     }
 
+    public <I, O> CompletableFuture<O> submitInvoke(I input, Function<I, String> namer, Function<I, O> converter) {
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                return converter.apply(input);
+            } catch (Exception e) {
+                String inputName = namer.apply(input);
+                throw new RuntimeException("Failed to execute task " + inputName, e);
+            }
+        }, exec);
+    }
+
     public <I, O> CompletableFuture<List<O>> submitInvokeAll(List<? extends I> inputs, Function<I, String> namer, Function<I, O> converter) {
         List<O> ret = new ArrayList<>(inputs.size());
         for (int i = 0; i < inputs.size(); i++) {
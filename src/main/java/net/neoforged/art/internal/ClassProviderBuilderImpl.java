@@ -6,59 +6,88 @@
 package net.neoforged.art.internal;
 
 import java.io.IOException;
-import java.nio.file.FileSystem;
-import java.nio.file.FileSystems;
 import java.nio.file.Files;
 import java.nio.file.Path;
-import java.util.ArrayList;
 import java.util.HashMap;
-import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.stream.Stream;
 
 import net.neoforged.art.api.ClassProvider;
+import net.neoforged.art.api.Metrics;
+import org.jetbrains.annotations.Nullable;
 
 public class ClassProviderBuilderImpl implements ClassProvider.Builder {
-    private final List<FileSystem> fileSystems = new ArrayList<>();
-    private final Map<String, Path> sources = new HashMap<>();
+    private final ZipHandles zipHandles = new ZipHandles(ZipHandles.DEFAULT_MAX_OPEN);
+    private final Map<String, ClassProviderImpl.ClassSource> sources = new HashMap<>();
     private final Map<String, Optional<? extends ClassProvider.IClassInfo>> classInfos = new ConcurrentHashMap<>();
     private boolean cacheAll = false;
+    @Nullable
+    private Path cacheDirectory;
+    private Metrics metrics = Metrics.disabled();
 
     public ClassProviderBuilderImpl() {}
 
     @Override
     public ClassProvider.Builder addLibrary(Path path) {
+        ArtEvents.Library event = ArtEvents.beginLibrary(path);
+        int sources = this.sources.size();
         try {
-            Path libraryDir;
             if (Files.isDirectory(path)) {
-                libraryDir = path;
+                try (Stream<Path> walker = Files.walk(path)) {
+                    walker.forEach(fullPath -> {
+                        Path relativePath = path.relativize(fullPath);
+                        String pathName = relativePath.toString().replace('\\', '/');
+                        if (isClass(pathName))
+                            this.sources.putIfAbsent(pathName.substring(0, pathName.length() - 6), new ClassProviderImpl.FileClassSource(fullPath));
+                    });
+                }
             } else if (Files.isRegularFile(path)) {
-                FileSystem zipFs = FileSystems.newFileSystem(path, (ClassLoader) null);
-                this.fileSystems.add(zipFs);
-                libraryDir = zipFs.getPath("/");
-            } else {
-                // We can't load it (it doesn't exist)
-                return this;
-            }
+                if (this.cacheDirectory != null && addIndexed(path)) {
+                    event.finish(this.sources.size() - sources);
+                    return this;
+                }
 
-            try (Stream<Path> walker = Files.walk(libraryDir)) {
-                walker.forEach(fullPath -> {
-                    Path relativePath = libraryDir.relativize(fullPath);
-                    String pathName = relativePath.toString().replace('\\', '/');
-                    if (!pathName.endsWith(".class") || pathName.startsWith("META-INF"))
-                        return;
-                    this.sources.putIfAbsent(pathName.substring(0, pathName.length() - 6), fullPath);
-                });
+                // Only read the central directory, the classes themselves are read once they are needed
+                Path zipPath = path.toAbsolutePath();
+                try (ZipReader zip = new ZipReader(zipPath, false)) {
+                    for (ZipReader.Record record : zip.getRecords()) {
+                        String pathName = record.getName();
+                        if (isClass(pathName))
+                            this.sources.putIfAbsent(pathName.substring(0, pathName.length() - 6), new ClassProviderImpl.ZipClassSource(this.zipHandles, zipPath, record));
+                    }
+                }
             }
+            // Otherwise we can't load it (it doesn't exist)
         } catch (IOException e) {
             throw new RuntimeException("Could not add library: " + path.toAbsolutePath(), e);
         }
 
+        event.finish(this.sources.size() - sources);
         return this;
     }
 
+    private boolean addIndexed(Path path) {
+        LibraryIndex index;
+        try {
+            index = LibraryIndex.load(this.cacheDirectory, path);
+        } catch (IOException | RuntimeException e) {
+            // Not something we can index, so read the library directly instead
+            return false;
+        }
+
+        ClassProviderImpl.ClassSource source = new ClassProviderImpl.IndexedClassSource(index);
+        for (String name : index.getClassNames())
+            this.sources.putIfAbsent(name, source);
+        return true;
+    }
+
+    private static boolean isClass(String pathName) {
+        return pathName.endsWith(".class") && !pathName.startsWith("META-INF");
+    }
+
     @Override
     public ClassProvider.Builder addClass(String name, byte[] value) {
         this.classInfos.computeIfAbsent(name, k -> Optional.of(new ClassProviderImpl.ClassInfo(value)));
@@ -73,8 +102,22 @@ public class ClassProviderBuilderImpl implements ClassProvider.Builder {
         return this;
     }
 
+    @Override
+    public ClassProvider.Builder cacheDirectory(Path directory) {
+        this.cacheDirectory = directory;
+
+        return this;
+    }
+
+    @Override
+    public ClassProvider.Builder metrics(Metrics metrics) {
+        this.metrics = Objects.requireNonNull(metrics, "metrics");
+
+        return this;
+    }
+
     @Override
     public ClassProvider build() {
-        return new ClassProviderImpl(this.fileSystems, this.sources, this.classInfos, this.cacheAll);
+        return new ClassProviderImpl(this.zipHandles, this.sources, this.classInfos, this.cacheAll, this.metrics);
     }
 }
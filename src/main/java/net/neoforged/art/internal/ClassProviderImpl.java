@@ -6,18 +6,12 @@
 package net.neoforged.art.internal;
 
 import net.neoforged.art.api.ClassProvider;
+import net.neoforged.art.api.Metrics;
 import org.jetbrains.annotations.Nullable;
 import org.objectweb.asm.ClassReader;
 import org.objectweb.asm.Type;
-import org.objectweb.asm.tree.ClassNode;
-import org.objectweb.asm.tree.FieldNode;
-import org.objectweb.asm.tree.MethodNode;
 
 import java.io.IOException;
-import java.lang.reflect.Constructor;
-import java.lang.reflect.Field;
-import java.lang.reflect.Method;
-import java.nio.file.FileSystem;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.ArrayList;
@@ -28,7 +22,6 @@ import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.function.Function;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
@@ -36,14 +29,14 @@ import static org.objectweb.asm.Opcodes.*;
 
 class ClassProviderImpl implements ClassProvider {
     /**
-     * A list of the open (ZIP) filesystems.
+     * The handles of the library ZIP files, which are only opened while classes are read from them.
      */
-    private final List<FileSystem> fileSystems;
+    private final ZipHandles zipHandles;
     /**
-     * Holds a map of ZIP entry name / full classname -> path to the class file.
+     * Holds a map of ZIP entry name / full classname -> where to read the class from.
      * Always uses {@code /} for path delimiters.
      */
-    private final Map<String, Path> sources;
+    private final Map<String, ClassSource> sources;
     /**
      * Only holds classes explicitly added through the builder with their raw class bytes.
      */
@@ -53,17 +46,45 @@ class ClassProviderImpl implements ClassProvider {
      */
     @Nullable
     private final Map<String, Optional<? extends IClassInfo>> classCache;
-
-    ClassProviderImpl(List<FileSystem> fileSystems, Map<String, Path> sources, Map<String, Optional<? extends IClassInfo>> classInfos, boolean cacheAll) {
-        this.fileSystems = Collections.unmodifiableList(fileSystems);
+    private final boolean timed;
+    private final Metrics.Counter cacheHits;
+    private final Metrics.Counter cacheMisses;
+    private final Metrics.Histogram ioTime;
+    private final Metrics.Histogram cpuTime;
+
+    ClassProviderImpl(ZipHandles zipHandles, Map<String, ClassSource> sources, Map<String, Optional<? extends IClassInfo>> classInfos, boolean cacheAll, Metrics metrics) {
+        this.zipHandles = zipHandles;
         this.sources = Collections.unmodifiableMap(sources);
         this.classInfos = Collections.unmodifiableMap(classInfos);
         this.classCache = cacheAll ? new ConcurrentHashMap<>() : null;
+        this.timed = metrics.isEnabled();
+        this.cacheHits = metrics.counter("library.cache.hits");
+        this.cacheMisses = metrics.counter("library.cache.misses");
+        this.ioTime = metrics.histogram("library.read.io");
+        this.cpuTime = metrics.histogram("library.read.cpu");
+    }
+
+    boolean isCaching() {
+        return this.classCache != null;
     }
 
     @Override
     public Optional<? extends IClassInfo> getClass(String name) {
-        return this.classCache != null ? this.classCache.computeIfAbsent(name, this::computeClassInfo) : computeClassInfo(name);
+        if (this.classCache == null)
+            return computeClassInfo(name);
+
+        // Looked up first, as computeIfAbsent locks even if the class is cached on Java 8
+        Optional<? extends IClassInfo> ret = this.classCache.get(name);
+        if (ret != null) {
+            this.cacheHits.increment();
+            return ret;
+        }
+        return this.classCache.computeIfAbsent(name, this::computeMissedClassInfo);
+    }
+
+    private Optional<? extends IClassInfo> computeMissedClassInfo(String name) {
+        this.cacheMisses.increment();
+        return computeClassInfo(name);
     }
 
     private Optional<? extends IClassInfo> computeClassInfo(String name) {
@@ -71,78 +92,228 @@ class ClassProviderImpl implements ClassProvider {
         if (knownClassInfo != null)
             return knownClassInfo;
 
-        Path source = this.sources.get(name);
+        ClassSource source = this.sources.get(name);
 
         if (source == null)
             return Optional.empty();
 
         try {
-            return Optional.of(new ClassInfo(Files.readAllBytes(source)));
+            if (this.timed && source instanceof DataClassSource) {
+                long start = System.nanoTime();
+                byte[] data = ((DataClassSource) source).readData();
+                long read = System.nanoTime();
+                ClassInfo ret = new ClassInfo(data);
+                this.ioTime.record(read - start);
+                this.cpuTime.record(System.nanoTime() - read);
+                return Optional.of(ret);
+            }
+            return Optional.ofNullable(source.read(name));
         } catch (IOException e) {
-            throw new RuntimeException("Could not get data to compute class info in file: " + source.toAbsolutePath(), e);
+            throw new RuntimeException("Could not get data to compute class info in file: " + source, e);
         }
     }
 
     @Override
     public void close() throws IOException {
-        for (FileSystem fs : this.fileSystems) {
-            fs.close();
+        this.zipHandles.close();
+    }
+
+    /**
+     * Where the class info of a class of a library can be read from.
+     */
+    interface ClassSource {
+        @Nullable
+        ClassInfo read(String name) throws IOException;
+    }
+
+    /**
+     * A source that reads the bytes of a class, which are then parsed into its class info.
+     */
+    interface DataClassSource extends ClassSource {
+        byte[] readData() throws IOException;
+
+        @Override
+        default ClassInfo read(String name) throws IOException {
+            return new ClassInfo(readData());
+        }
+    }
+
+    static class FileClassSource implements DataClassSource {
+        private final Path path;
+
+        FileClassSource(Path path) {
+            this.path = path;
+        }
+
+        @Override
+        public byte[] readData() throws IOException {
+            return Files.readAllBytes(this.path);
+        }
+
+        @Override
+        public String toString() {
+            return this.path.toAbsolutePath().toString();
+        }
+    }
+
+    static class ZipClassSource implements DataClassSource {
+        private final ZipHandles handles;
+        private final Path path;
+        private final ZipReader.Record record;
+
+        ZipClassSource(ZipHandles handles, Path path, ZipReader.Record record) {
+            this.handles = handles;
+            this.path = path;
+            this.record = record;
+        }
+
+        @Override
+        public byte[] readData() throws IOException {
+            return this.handles.read(this.path, this.record);
+        }
+
+        @Override
+        public String toString() {
+            return this.path.toAbsolutePath() + "!/" + this.record.getName();
+        }
+    }
+
+    static class IndexedClassSource implements ClassSource {
+        private final LibraryIndex index;
+
+        IndexedClassSource(LibraryIndex index) {
+            this.index = index;
+        }
+
+        @Override
+        public ClassInfo read(String name) {
+            return this.index.getClassInfo(name);
+        }
+
+        @Override
+        public String toString() {
+            return this.index.toString();
         }
     }
 
     static class ClassInfo implements IClassInfo {
         private final String name;
-        private final Access access;
+        private final int access;
         private final String superName;
         private final List<String> interfaces;
-        private final Map<String, FieldInfo> fields;
+        private final FieldInfo[] fields;
         private Collection<FieldInfo> fieldsView;
-        private final Map<String, MethodInfo> methods;
+        private final MethodInfo[] methods;
         private Collection<MethodInfo> methodsView;
 
+        /**
+         * Reads the class info straight from the header and the field and method tables of the class file,
+         * without visiting the rest of the class.
+         */
         ClassInfo(byte[] data) {
             ClassReader reader = new ClassReader(data);
-            ClassNode node = new ClassNode();
-            reader.accept(node, ClassReader.SKIP_CODE);
-
-            this.name = node.name;
-            this.access = new Access(node.access);
-            this.superName = node.superName;
-            this.interfaces = node.interfaces.isEmpty() ? Collections.emptyList() : Collections.unmodifiableList(node.interfaces);
+            char[] buf = new char[reader.getMaxStringLength()];
+            this.name = StringPool.get(reader.getClassName());
+            this.superName = StringPool.get(reader.getSuperName());
+            String[] interfaces = reader.getInterfaces();
+            this.interfaces = pool(Arrays.asList(interfaces));
+
+            // Skip the access flags, this class, super class and interfaces
+            int offset = reader.header + 8 + interfaces.length * 2;
+            this.fields = new FieldInfo[reader.readUnsignedShort(offset)];
+            offset += 2;
+            for (int i = 0; i < this.fields.length; i++) {
+                int access = reader.readUnsignedShort(offset) | readAttributeAccess(reader, offset + 6, buf);
+                this.fields[i] = new FieldInfo(access, StringPool.get(reader.readUTF8(offset + 2, buf)), StringPool.get(reader.readUTF8(offset + 4, buf)));
+                offset = skipAttributes(reader, offset + 6);
+            }
 
-            if (!node.methods.isEmpty())
-                this.methods = Collections.unmodifiableMap(node.methods.stream().map(MethodInfo::new)
-                    .collect(Collectors.toMap(m -> m.getName() + " " + m.getDescriptor(), Function.identity())));
-            else
-                this.methods = null;
+            this.methods = new MethodInfo[reader.readUnsignedShort(offset)];
+            offset += 2;
+            for (int i = 0; i < this.methods.length; i++) {
+                int access = reader.readUnsignedShort(offset) | readAttributeAccess(reader, offset + 6, buf);
+                this.methods[i] = new MethodInfo(access, StringPool.get(reader.readUTF8(offset + 2, buf)), StringPool.get(reader.readUTF8(offset + 4, buf)));
+                offset = skipAttributes(reader, offset + 6);
+            }
 
+            this.access = reader.getAccess() | readAttributeAccess(reader, offset, buf);
+        }
 
-            if (!node.fields.isEmpty())
-                this.fields = Collections.unmodifiableMap(node.fields.stream().map(FieldInfo::new)
-                    .collect(Collectors.toMap(FieldInfo::getName, Function.identity())));
-            else
-                this.fields = null;
+        /**
+         * Creates the class info from already known values, such as the ones of a {@link LibraryIndex}.
+         * The strings are kept as they are, so they should already be {@linkplain StringPool pooled}.
+         *
+         * @param fields the name and descriptor of each field, one after the other
+         * @param fieldAccess the access flags of each field
+         * @param methods the name and descriptor of each method, one after the other
+         * @param methodAccess the access flags of each method
+         */
+        ClassInfo(String name, int access, @Nullable String superName, String[] interfaces, String[] fields, int[] fieldAccess, String[] methods, int[] methodAccess) {
+            this.name = name;
+            this.access = access;
+            this.superName = superName;
+            this.interfaces = interfaces.length == 0 ? Collections.emptyList() : Collections.unmodifiableList(Arrays.asList(interfaces));
+            this.fields = new FieldInfo[fieldAccess.length];
+            for (int i = 0; i < this.fields.length; i++)
+                this.fields[i] = new FieldInfo(fieldAccess[i], fields[i * 2], fields[i * 2 + 1]);
+            this.methods = new MethodInfo[methodAccess.length];
+            for (int i = 0; i < this.methods.length; i++)
+                this.methods[i] = new MethodInfo(methodAccess[i], methods[i * 2], methods[i * 2 + 1]);
         }
 
         ClassInfo(Class<?> node) {
-            this.name = nameToBytecode(node);
-            this.access = new Access(node.getModifiers());
-            this.superName = nameToBytecode(node.getSuperclass());
-            this.interfaces = Arrays.stream(node.getInterfaces()).map(ClassInfo::nameToBytecode).collect(Collectors.toList());
+            this.name = StringPool.get(nameToBytecode(node));
+            this.access = node.getModifiers();
+            this.superName = StringPool.get(nameToBytecode(node.getSuperclass()));
+            this.interfaces = pool(Arrays.stream(node.getInterfaces()).map(ClassInfo::nameToBytecode).collect(Collectors.toList()));
+
+            this.methods = Stream.concat(
+                Arrays.stream(node.getConstructors()).map(c -> new MethodInfo(c.getModifiers(), "<init>", StringPool.get(Type.getConstructorDescriptor(c)))),
+                Arrays.stream(node.getDeclaredMethods()).map(m -> new MethodInfo(m.getModifiers(), StringPool.get(m.getName()), StringPool.get(Type.getMethodDescriptor(m))))
+            ).toArray(MethodInfo[]::new);
+
+            this.fields = Arrays.stream(node.getDeclaredFields())
+                .map(f -> new FieldInfo(f.getModifiers(), StringPool.get(f.getName()), StringPool.get(Type.getDescriptor(f.getType()))))
+                .toArray(FieldInfo[]::new);
+        }
 
-            Map<String, MethodInfo> mtds = Stream.concat(
-                Arrays.stream(node.getConstructors()).map(MethodInfo::new),
-                Arrays.stream(node.getDeclaredMethods()).map(MethodInfo::new)
-            ).collect(Collectors.toMap(m -> m.getName() + " " + m.getDescriptor(), Function.identity()));
+        /**
+         * Returns the access flags that ASM derives from the attributes starting at the given offset,
+         * so that the access matches the one visited by a {@link ClassReader}.
+         */
+        private static int readAttributeAccess(ClassReader reader, int offset, char[] buf) {
+            int access = 0;
+            int count = reader.readUnsignedShort(offset);
+            offset += 2;
+            for (int i = 0; i < count; i++) {
+                String name = reader.readUTF8(offset, buf);
+                if ("Synthetic".equals(name))
+                    access |= ACC_SYNTHETIC;
+                else if ("Deprecated".equals(name))
+                    access |= ACC_DEPRECATED;
+                else if ("Record".equals(name))
+                    access |= ACC_RECORD;
+                offset += 6 + reader.readInt(offset + 2);
+            }
+            return access;
+        }
 
-            this.methods = mtds.isEmpty() ? null : Collections.unmodifiableMap(mtds);
+        private static int skipAttributes(ClassReader reader, int offset) {
+            int count = reader.readUnsignedShort(offset);
+            offset += 2;
+            for (int i = 0; i < count; i++)
+                offset += 6 + reader.readInt(offset + 2);
+            return offset;
+        }
+
+        private static List<String> pool(List<String> values) {
+            if (values.isEmpty())
+                return Collections.emptyList();
 
-            Field[] flds = node.getDeclaredFields();
-            if (flds.length > 0) {
-                this.fields = Collections.unmodifiableMap(Arrays.asList(flds).stream().map(FieldInfo::new)
-                    .collect(Collectors.toMap(FieldInfo::getName, Function.identity())));
-            } else
-                this.fields = null;
+            String[] ret = new String[values.size()];
+            for (int i = 0; i < ret.length; i++)
+                ret[i] = StringPool.get(values.get(i));
+            return Collections.unmodifiableList(Arrays.asList(ret));
         }
 
         private static String nameToBytecode(Class<?> cls) {
@@ -160,11 +331,11 @@ class ClassProviderImpl implements ClassProvider {
         }
         @Override
         public int getAccess() {
-            return access.getValue();
+            return access;
         }
 
         public Access getAccessLevel() {
-            return this.access;
+            return new Access(this.access);
         }
 
         @Override
@@ -175,25 +346,33 @@ class ClassProviderImpl implements ClassProvider {
         @Override
         public Collection<? extends IFieldInfo> getFields() {
             if (fieldsView == null)
-                fieldsView = fields == null ? Collections.emptyList() : Collections.unmodifiableCollection(fields.values());
+                fieldsView = fields.length == 0 ? Collections.emptyList() : Collections.unmodifiableList(Arrays.asList(fields));
             return fieldsView;
         }
 
         @Override
         public Optional<? extends IFieldInfo> getField(String name) {
-            return fields == null ? Optional.empty() : Optional.ofNullable(this.fields.get(name));
+            for (FieldInfo field : this.fields) {
+                if (field.getName().equals(name))
+                    return Optional.of(field);
+            }
+            return Optional.empty();
         }
 
         @Override
         public Collection<? extends IMethodInfo> getMethods() {
             if (methodsView == null)
-                methodsView = methods == null ? Collections.emptyList() : Collections.unmodifiableCollection(methods.values());
+                methodsView = methods.length == 0 ? Collections.emptyList() : Collections.unmodifiableList(Arrays.asList(methods));
             return methodsView;
         }
 
         @Override
         public Optional<? extends IMethodInfo> getMethod(String name, String desc) {
-            return methods == null ? Optional.empty() : Optional.ofNullable(methods.get(name + " " + desc));
+            for (MethodInfo method : this.methods) {
+                if (method.getName().equals(name) && method.getDescriptor().equals(desc))
+                    return Optional.of(method);
+            }
+            return Optional.empty();
         }
 
         @Override
@@ -204,27 +383,21 @@ class ClassProviderImpl implements ClassProvider {
         private class FieldInfo implements IFieldInfo {
             private final String name;
             private final String desc;
-            private final Access access;
-
-            public FieldInfo(FieldNode node) {
-                this.name = node.name;
-                this.desc = node.desc;
-                this.access = new Access(node.access);
-            }
+            private final int access;
 
-            public FieldInfo(Field node) {
-                this.name = node.getName();
-                this.desc = Type.getType(node.getType()).getDescriptor();
-                this.access = new Access(node.getModifiers());
+            FieldInfo(int access, String name, String desc) {
+                this.name = name;
+                this.desc = desc;
+                this.access = access;
             }
 
             @Override
             public int getAccess() {
-                return access.getValue();
+                return access;
             }
 
             public Access getAccessLevel() {
-                return this.access;
+                return new Access(this.access);
             }
 
             @Override
@@ -246,33 +419,21 @@ class ClassProviderImpl implements ClassProvider {
         private class MethodInfo implements IMethodInfo {
             private final String name;
             private final String desc;
-            private final Access access;
-
-            MethodInfo(MethodNode node) {
-                this.name = node.name;
-                this.desc = node.desc;
-                this.access = new Access(node.access);
-            }
-
-            MethodInfo(Method node) {
-                this.name = node.getName();
-                this.desc = Type.getMethodDescriptor(node);
-                this.access = new Access(node.getModifiers());
-            }
+            private final int access;
 
-            MethodInfo(Constructor<?> node) {
-                this.name = "<init>";
-                this.desc = Type.getConstructorDescriptor(node);
-                this.access = new Access(node.getModifiers());
+            MethodInfo(int access, String name, String desc) {
+                this.name = name;
+                this.desc = desc;
+                this.access = access;
             }
 
             @Override
             public int getAccess() {
-                return access.getValue();
+                return access;
             }
 
             public Access getAccessLevel() {
-                return this.access;
+                return new Access(this.access);
             }
 
             @Override
@@ -5,40 +5,344 @@
 
 package net.neoforged.art.internal;
 
+import java.io.DataOutput;
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.atomic.LongAdder;
 import java.util.function.Consumer;
-import java.util.stream.Stream;
+import java.util.function.Function;
+import java.util.function.IntFunction;
 import net.neoforged.art.api.ClassProvider;
 import net.neoforged.art.api.ClassProvider.IClassInfo;
 import net.neoforged.art.api.ClassProvider.IFieldInfo;
 import net.neoforged.art.api.ClassProvider.IMethodInfo;
+import net.neoforged.art.api.Metrics;
 import net.neoforged.srgutils.IMappingFile;
 import org.jetbrains.annotations.Nullable;
+import org.objectweb.asm.ClassReader;
 import org.objectweb.asm.Handle;
 import org.objectweb.asm.Opcodes;
 import org.objectweb.asm.Type;
 import org.objectweb.asm.commons.Remapper;
 
 import static org.objectweb.asm.Opcodes.ACC_INTERFACE;
+import static org.objectweb.asm.Opcodes.ACC_MODULE;
 import static org.objectweb.asm.Opcodes.ACC_PRIVATE;
 import static org.objectweb.asm.Opcodes.ACC_STATIC;
 
 class EnhancedRemapper extends Remapper {
+    private static final long FNV_OFFSET = 0xcbf29ce484222325L;
+    private static final long FNV_PRIME = 0x100000001b3L;
+    private static final int CONSTANT_UTF8 = 1;
     private final ClassProvider classProvider;
     private final IMappingFile map;
-    private final Map<String, Optional<MClass>> resolved = new ConcurrentHashMap<>();
+    /**
+     * The resolved classes, or the futures of classes that are being resolved by another thread.
+     * Each class is only resolved once, by the thread that first puts its future here.
+     */
+    private final Map<String, CompletableFuture<MClass>> resolved = new ConcurrentHashMap<>();
+    /**
+     * The classes that are being resolved on the current thread, to detect circular hierarchies
+     * instead of waiting on a future that this thread would have to complete itself.
+     */
+    private final ThreadLocal<Set<String>> resolving = ThreadLocal.withInitial(HashSet::new);
+    /**
+     * The owners of the members looked up on the current thread while a class is remapped by an incremental run, see {@link #startTracking()}.
+     */
+    private final ThreadLocal<Set<String>> consulted = new ThreadLocal<>();
+    private final RemapCache descriptors = new RemapCache(super::mapDesc);
+    private final RemapCache methodDescriptors = new RemapCache(super::mapMethodDesc);
+    private final RemapCache signatures = new RemapCache(signature -> super.mapSignature(signature, false));
+    private final RemapCache typeSignatures = new RemapCache(signature -> super.mapSignature(signature, true));
+    /**
+     * The mapped annotation attribute names, by annotation descriptor and attribute name.
+     * The same few annotation types are used all over a JAR, so their attributes are only looked up once.
+     */
+    private final Map<String, Map<String, String>> annotationAttributes = new ConcurrentHashMap<>();
+    /**
+     * The names that remapping can change, only built once they are needed, see {@link #mayRemap(ClassReader)}.
+     */
+    @Nullable
+    private volatile MappedNames mappedNames;
+    /**
+     * Whether {@link #resolve(Collection, ExecutorService)} has finished, after which classes that are resolved on demand
+     * no longer propagate mappings into the methods of classes that were resolved before them, see {@link MClass}.
+     */
+    private volatile boolean frozen;
     private final Consumer<String> log;
+    private final Consumer<String> debug;
+    private final Metrics.Counter resolvedHits;
+    private final Metrics.Counter resolvedMisses;
+    private final Metrics.Counter resolvedClasses;
+    private final Metrics.Histogram resolvedDepth;
+    private final Metrics.Counter propagations;
 
     public EnhancedRemapper(ClassProvider classProvider, IMappingFile map, Consumer<String> log) {
+        this(classProvider, map, log, s -> {}, Metrics.disabled());
+    }
+
+    public EnhancedRemapper(ClassProvider classProvider, IMappingFile map, Consumer<String> log, Consumer<String> debug, Metrics metrics) {
         this.classProvider = classProvider;
         this.map = map;
         this.log = log;
+        this.debug = debug;
+        this.resolvedHits = metrics.counter("remapper.resolved.hits");
+        this.resolvedMisses = metrics.counter("remapper.resolved.misses");
+        this.resolvedClasses = metrics.counter("remapper.classes");
+        this.resolvedDepth = metrics.histogram("remapper.depth");
+        this.propagations = metrics.counter("remapper.propagations");
+    }
+
+    /**
+     * Resolves the given classes and all their parents before any class is remapped, so that remapping classes
+     * only looks up already resolved classes instead of resolving hierarchies on whichever thread gets to them first.
+     * <p>
+     * As a class can only be resolved once its parents are, the hierarchy is resolved level by level from its roots,
+     * with all classes of a level resolved in parallel. Classes outside of these hierarchies, such as classes that are
+     * only referenced by code, are still resolved on demand.
+     * <p>
+     * All mappings are propagated between the resolved classes by the time the returned future completes. From then on, the
+     * mapped names of resolved methods never change, so remapping a class gives the same result no matter when it is remapped.
+     *
+     * @param classes the classes to resolve
+     * @param executor the executor to resolve classes on
+     * @return a future that completes once all classes are resolved
+     */
+    CompletableFuture<Void> resolve(Collection<String> classes, ExecutorService executor) {
+        // The class providers may have changed since the last run
+        this.resolved.clear();
+        this.descriptors.clear();
+        this.methodDescriptors.clear();
+        this.signatures.clear();
+        this.typeSignatures.clear();
+        this.annotationAttributes.clear();
+        this.frozen = false;
+
+        Map<String, List<String>> hierarchy = new ConcurrentHashMap<>();
+        return collectHierarchy(new ArrayList<>(classes), hierarchy, executor).thenCompose(v -> {
+            Map<String, Integer> depths = new HashMap<>();
+            List<List<String>> levels = new ArrayList<>();
+            for (String cls : hierarchy.keySet()) {
+                int depth = getDepth(cls, hierarchy, depths);
+                while (levels.size() <= depth)
+                    levels.add(new ArrayList<>());
+                levels.get(depth).add(cls);
+            }
+
+            CompletableFuture<Void> ret = CompletableFuture.completedFuture(null);
+            for (List<String> level : levels)
+                ret = ret.thenCompose(ignored -> forAll(level, this::getClass, executor));
+            return ret.thenRun(() -> this.frozen = true);
+        });
+    }
+
+    /**
+     * Collects the direct parents of the given classes and all their parents into the hierarchy map, reading the classes of each level in parallel.
+     */
+    private CompletableFuture<Void> collectHierarchy(List<String> classes, Map<String, List<String>> hierarchy, ExecutorService executor) {
+        if (classes.isEmpty())
+            return CompletableFuture.completedFuture(null);
+
+        return forAll(classes, cls -> {
+            Optional<? extends IClassInfo> info = this.getClassProvider().getClass(cls);
+            List<String> parents = new ArrayList<>();
+            if (info.isPresent()) {
+                if (info.get().getSuper() != null)
+                    parents.add(info.get().getSuper());
+                parents.addAll(info.get().getInterfaces());
+            }
+            hierarchy.put(cls, parents);
+        }, executor).thenCompose(v -> {
+            Set<String> next = new HashSet<>();
+            for (String cls : classes) {
+                for (String parent : hierarchy.get(cls)) {
+                    if (!hierarchy.containsKey(parent))
+                        next.add(parent);
+                }
+            }
+            return collectHierarchy(new ArrayList<>(next), hierarchy, executor);
+        });
+    }
+
+    private static int getDepth(String cls, Map<String, List<String>> hierarchy, Map<String, Integer> depths) {
+        Integer ret = depths.get(cls);
+        if (ret != null)
+            return ret;
+
+        depths.put(cls, 0); // Guards against circular hierarchies
+        int depth = 0;
+        for (String parent : hierarchy.get(cls))
+            depth = Math.max(depth, getDepth(parent, hierarchy, depths) + 1);
+        depths.put(cls, depth);
+        return depth;
+    }
+
+    private static CompletableFuture<Void> forAll(List<String> classes, Consumer<String> action, ExecutorService executor) {
+        // Batched, as resolving a single class is too little work to be worth a task of its own
+        int batch = 64;
+        CompletableFuture<?>[] futures = new CompletableFuture<?>[(classes.size() + batch - 1) / batch];
+        for (int i = 0; i < futures.length; i++) {
+            List<String> slice = classes.subList(i * batch, Math.min(classes.size(), (i + 1) * batch));
+            futures[i] = CompletableFuture.runAsync(() -> {
+                for (String cls : slice) {
+                    try {
+                        action.accept(cls);
+                    } catch (Exception e) {
+                        throw new RuntimeException("Failed to resolve class " + cls, e);
+                    }
+                }
+            }, executor);
+        }
+        return CompletableFuture.allOf(futures);
+    }
+
+    @Override
+    public String mapDesc(final String descriptor) {
+        return this.descriptors.get(descriptor);
+    }
+
+    @Override
+    public String mapMethodDesc(final String methodDescriptor) {
+        return this.methodDescriptors.get(methodDescriptor);
+    }
+
+    @Override
+    public String mapSignature(final String signature, final boolean typeSignature) {
+        return (typeSignature ? this.typeSignatures : this.signatures).get(signature);
+    }
+
+    /**
+     * Scans the constant pool of the given class for names that remapping can change, which are the names of classes,
+     * packages and members that the mappings rename, and of methods whose parameters they name.
+     * If there is none, remapping the class would give back the same class, so it does not need to be remapped at all.
+     * <p>
+     * Mapped member names are propagated through the hierarchy, but always between members with the same original name,
+     * so checking for the names the mappings rename covers members that inherit their mapping as well.
+     *
+     * @param reader the class to check
+     * @return whether remapping the class could change it
+     */
+    boolean mayRemap(ClassReader reader) {
+        // Modules reference packages by name, which are not worth checking for such rare classes
+        if ((reader.getAccess() & ACC_MODULE) != 0)
+            return true;
+
+        MappedNames names = this.mappedNames;
+        if (names == null) {
+            synchronized (this) {
+                names = this.mappedNames;
+                if (names == null)
+                    this.mappedNames = names = new MappedNames(this.map);
+            }
+        }
+
+        char[] buf = new char[reader.getMaxStringLength()];
+        for (int i = 1; i < reader.getItemCount(); i++) {
+            int offset = reader.getItem(i);
+            if (offset != 0 && reader.readByte(offset - 1) == CONSTANT_UTF8 && names.references(readUtf8(reader, offset, buf)))
+                return true;
+        }
+        return false;
+    }
+
+    /**
+     * Reads the CONSTANT_Utf8 entry at the given offset, which {@link ClassReader} only reads through the index of an entry.
+     */
+    private static String readUtf8(ClassReader reader, int offset, char[] buf) {
+        int pos = offset + 2;
+        int end = pos + reader.readUnsignedShort(offset);
+        int length = 0;
+        while (pos < end) {
+            int b = reader.readByte(pos++);
+            if ((b & 0x80) == 0) {
+                buf[length++] = (char) b;
+            } else if ((b & 0xE0) == 0xC0) {
+                buf[length++] = (char) (((b & 0x1F) << 6) + (reader.readByte(pos++) & 0x3F));
+            } else {
+                buf[length++] = (char) (((b & 0xF) << 12) + ((reader.readByte(pos++) & 0x3F) << 6) + (reader.readByte(pos++) & 0x3F));
+            }
+        }
+        return new String(buf, 0, length);
+    }
+
+    /**
+     * Starts recording the classes whose members are looked up on the current thread.
+     * Mapped class names only depend on the mappings, so only member lookups depend on the resolved classes.
+     */
+    void startTracking() {
+        this.consulted.set(new HashSet<>());
+    }
+
+    /**
+     * Stops recording on the current thread, and returns the classes whose members were looked up since {@link #startTracking()}.
+     */
+    Set<String> stopTracking() {
+        Set<String> ret = this.consulted.get();
+        this.consulted.remove();
+        return ret == null ? Collections.emptySet() : ret;
+    }
+
+    /**
+     * Returns a hash of the mapped names of all members of the given class, including inherited ones, as they are resolved in this run.
+     * Remapping references to the class' members gives the same result as long as this does not change.
+     */
+    long getFingerprint(String cls) {
+        MClass mcls = getClass(cls);
+        return mcls == null ? 0L : mcls.getFingerprint();
+    }
+
+    /**
+     * Writes the mappings, which every remapped class depends on.
+     */
+    void fingerprint(DataOutput out) throws IOException {
+        for (IMappingFile.IPackage pkg : this.map.getPackages()) {
+            out.writeUTF(pkg.getOriginal());
+            out.writeUTF(pkg.getMapped());
+        }
+        for (IMappingFile.IClass cls : this.map.getClasses()) {
+            out.writeUTF(cls.getOriginal());
+            out.writeUTF(cls.getMapped());
+            for (IMappingFile.IField field : cls.getFields()) {
+                out.writeUTF(field.getOriginal());
+                out.writeUTF(String.valueOf(field.getDescriptor()));
+                out.writeUTF(field.getMapped());
+            }
+            for (IMappingFile.IMethod method : cls.getMethods()) {
+                out.writeUTF(method.getOriginal());
+                out.writeUTF(method.getDescriptor());
+                out.writeUTF(method.getMapped());
+                for (IMappingFile.IParameter param : method.getParameters()) {
+                    out.writeInt(param.getIndex());
+                    out.writeUTF(param.getMapped());
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns how often a remapped descriptor or signature was found in the caches since the start of the run.
+     */
+    long getCacheHits() {
+        return this.descriptors.hits.sum() + this.methodDescriptors.hits.sum() + this.signatures.hits.sum() + this.typeSignatures.hits.sum();
+    }
+
+    /**
+     * Returns how often a descriptor or signature had to be remapped since the start of the run.
+     */
+    long getCacheMisses() {
+        return this.descriptors.misses.sum() + this.methodDescriptors.misses.sum() + this.signatures.misses.sum() + this.typeSignatures.misses.sum();
     }
 
     @Override public String mapModuleName(final String name) { return name; } // TODO? None of the mapping formats support this.
@@ -46,10 +350,9 @@ class EnhancedRemapper extends Remapper {
 
     @Override
     public String mapMethodName(final String owner, final String name, final String descriptor) {
-        return getClass(owner)
-            .flatMap(c -> c.getMethod(name, descriptor))
-            .map(MClass.MMethod::getMapped)
-            .orElse(name);
+        MClass cls = getOwner(owner);
+        MClass.MMethod method = cls == null ? null : cls.getMethod(name, descriptor);
+        return method == null ? name : method.getMapped();
     }
 
     @Override // We'll treat this like fields for now, tho at the bytecode level I have no idea what this references
@@ -59,22 +362,22 @@ class EnhancedRemapper extends Remapper {
 
     @Override
     public String mapFieldName(final String owner, final String name, final String descriptor) {
-        return getClass(owner)
-            .flatMap(c -> c.getField(name, descriptor))
-            .map(MClass.MField::getMapped)
-            .orElse(name);
+        MClass cls = getOwner(owner);
+        MClass.MField field = cls == null ? null : cls.getField(name, descriptor);
+        return field == null ? name : field.getMapped();
     }
 
     public Optional<String> mapJavadocMember(final String owner, final String name, final int paramCount) {
-        return findMethod(owner, name, paramCount)
-                .map(method -> method.getMapped() + JavadoctorRemapper.getJavadocDesc(Type.getMethodType(mapMethodDesc(method.getDescriptor()))));
+        MClass.MMethod method = findMethod(owner, name, paramCount);
+        if (method == null)
+            return Optional.empty();
+        return Optional.of(method.getMapped() + JavadoctorRemapper.getJavadocDesc(Type.getMethodType(mapMethodDesc(method.getDescriptor()))));
     }
 
-    private Optional<MClass.MMethod> findMethod(final String owner, final String name, final int paramCount) {
-        return stream(getClass(owner))
-                .flatMap(c -> c.getMethods().stream().flatMap(EnhancedRemapper::stream))
-                .filter(m -> m.getName().equals(name) && Type.getMethodType(m.getDescriptor()).getArgumentTypes().length == paramCount)
-                .findFirst();
+    @Nullable
+    private MClass.MMethod findMethod(final String owner, final String name, final int paramCount) {
+        MClass cls = getOwner(owner);
+        return cls == null ? null : cls.findMethod(name, paramCount);
     }
 
     @Override
@@ -84,14 +387,14 @@ class EnhancedRemapper extends Remapper {
 
     @Override
     public String map(final String name) {
-        return getClass(name).map(MClass::getMapped).orElse(map.remapClass(name));
+        MClass cls = getClass(name);
+        return cls == null ? map.remapClass(name) : cls.getMapped();
     }
 
     public String mapParameterName(final String owner, final String methodName, final String methodDescriptor, final int index, final String paramName) {
-        return getClass(owner)
-            .flatMap(c -> c.getMethod(methodName, methodDescriptor))
-            .map(m -> m.mapParameter(index, paramName))
-            .orElse(paramName);
+        MClass cls = getOwner(owner);
+        MClass.MMethod method = cls == null ? null : cls.getMethod(methodName, methodDescriptor);
+        return method == null ? paramName : method.mapParameter(index, paramName);
     }
 
     @Override
@@ -116,25 +419,95 @@ class EnhancedRemapper extends Remapper {
 
     @Override
     public String mapAnnotationAttributeName(String descriptor, String name) {
-        return findMethod(Type.getType(descriptor).getInternalName(), name, 0)
-                .map(MClass.MMethod::getMapped)
-                .orElse(name);
+        if (this.consulted.get() != null)
+            consult(Type.getType(descriptor).getInternalName());
+
+        Map<String, String> attributes = this.annotationAttributes.get(descriptor);
+        if (attributes == null)
+            attributes = this.annotationAttributes.computeIfAbsent(descriptor, k -> new ConcurrentHashMap<>());
+
+        String ret = attributes.get(name);
+        if (ret == null) {
+            MClass.MMethod method = findMethod(Type.getType(descriptor).getInternalName(), name, 0);
+            ret = method == null ? name : method.getMapped();
+            attributes.put(name, ret);
+        }
+        return ret;
     }
 
-    private Optional<MClass> getClass(String cls) {
+    /**
+     * Returns the class that owns a looked up member, recording it if the current thread is tracking dependencies.
+     */
+    @Nullable
+    private MClass getOwner(String owner) {
+        consult(owner);
+        return getClass(owner);
+    }
+
+    private void consult(String cls) {
+        Set<String> consulted = this.consulted.get();
+        if (consulted != null && cls != null)
+            consulted.add(cls);
+    }
+
+    /**
+     * Returns whether the given class is known, resolving it and all its parents first if they were not yet.
+     */
+    boolean hasClass(String cls) {
+        return getClass(cls) != null;
+    }
+
+    /**
+     * Returns the resolved class with the given name, or {@code null} if it is neither known to the class provider nor to the mappings.
+     */
+    @Nullable
+    private MClass getClass(String cls) {
         if (cls == null || cls.charAt(0) == '[') // Enums values() function invokes 'clone' on the array type.
-            return Optional.empty();             // I'm pretty sure that i'd require stupid hacky JVM to allow native array methods to be remapped.
-        Optional<MClass> ret = resolved.get(cls);
-        if (ret == null) {
-            synchronized(cls.intern()) {
-                ret = resolved.get(cls);
-                if (ret == null) {
-                    ret = computeClass(cls);
-                    resolved.put(cls, ret);
-                }
+            return null;                         // I'm pretty sure that i'd require stupid hacky JVM to allow native array methods to be remapped.
+        CompletableFuture<MClass> future = resolved.get(cls);
+        if (future == null) {
+            CompletableFuture<MClass> created = new CompletableFuture<>();
+            future = resolved.putIfAbsent(cls, created);
+            if (future == null) {
+                this.resolvedMisses.increment();
+                return resolveClass(cls, created);
             }
         }
-        return ret;
+        this.resolvedHits.increment();
+
+        // Checked first, as the future holds null for classes that were not found
+        if (future.isDone())
+            return future.join();
+
+        if (resolving.get().contains(cls)) {
+            log.accept("Circular class hierarchy involving " + cls);
+            return null;
+        }
+        return future.join();
+    }
+
+    @Nullable
+    private MClass resolveClass(String cls, CompletableFuture<MClass> future) {
+        Set<String> resolving = this.resolving.get();
+        resolving.add(cls);
+        ArtEvents.Resolution event = ArtEvents.beginResolution(cls);
+        try {
+            MClass ret = computeClass(cls);
+            event.finish(ret != null ? ret.depth : -1);
+            if (ret != null) {
+                this.resolvedClasses.increment();
+                this.resolvedDepth.record(ret.depth);
+            }
+            future.complete(ret);
+            return ret;
+        } catch (RuntimeException | Error e) {
+            // Let a later lookup try again, like it would if the class was never looked up
+            resolved.remove(cls, future);
+            future.completeExceptionally(e);
+            throw e;
+        } finally {
+            resolving.remove(cls);
+        }
     }
 
     private ClassProvider getClassProvider() {
@@ -145,16 +518,170 @@ class EnhancedRemapper extends Remapper {
         return this.map;
     }
 
-    private Optional<MClass> computeClass(String cls) {
+    @Nullable
+    private MClass computeClass(String cls) {
         Optional<? extends IClassInfo> icls = this.getClassProvider().getClass(cls);
         IMappingFile.IClass mcls = this.map.getClass(cls);
         if (!icls.isPresent() && mcls == null)
-            return Optional.empty();
-        return Optional.of(new MClass(icls.orElse(null), mcls));
+            return null;
+        return new MClass(icls.orElse(null), mcls);
+    }
+
+    /**
+     * Adds the given string to a 64 bit FNV-1a hash, followed by a separator that no character can be confused with.
+     */
+    private static long hash(long hash, @Nullable String value) {
+        if (value != null) {
+            for (int i = 0; i < value.length(); i++)
+                hash = (hash ^ value.charAt(i)) * FNV_PRIME;
+        }
+        return (hash ^ (value == null ? 0x10001 : 0x10000)) * FNV_PRIME;
+    }
+
+    private static <T> Map<String, T[]> byName(Collection<T> members, Function<T, String> name, IntFunction<T[]> array) {
+        Map<String, List<T>> lists = new HashMap<>();
+        for (T member : members)
+            lists.computeIfAbsent(name.apply(member), k -> new ArrayList<>(1)).add(member);
+
+        Map<String, T[]> ret = new HashMap<>(lists.size() * 2);
+        lists.forEach((k, v) -> ret.put(k, v.toArray(array.apply(v.size()))));
+        return ret;
+    }
+
+    /**
+     * The original names of everything that the mappings change, to find the classes that reference none of them.
+     */
+    private static class MappedNames {
+        /**
+         * Characters that separate class names in descriptors and signatures.
+         */
+        private static final String SEPARATORS = ";<>[.()^:*+-";
+        /**
+         * Characters that can precede a class name in a descriptor without a separator, such as primitive parameter types.
+         */
+        private static final String PREFIXES = "BCDFIJSZVL";
+        private final Set<String> classes = new HashSet<>();
+        private final Set<String> packages = new HashSet<>();
+        private final Set<String> members = new HashSet<>();
+        /**
+         * Mapped classes with names that contain characters which also separate class names in signatures.
+         * These are rare enough to be checked for as a substring of every name.
+         */
+        private final List<String> unusual = new ArrayList<>();
+
+        MappedNames(IMappingFile map) {
+            for (IMappingFile.IPackage pkg : map.getPackages()) {
+                if (!pkg.getOriginal().equals(pkg.getMapped()))
+                    this.packages.add(pkg.getOriginal());
+            }
+            for (IMappingFile.IClass cls : map.getClasses()) {
+                if (!cls.getOriginal().equals(cls.getMapped())) {
+                    this.classes.add(cls.getOriginal());
+                    if (cls.getOriginal().chars().anyMatch(c -> SEPARATORS.indexOf(c) != -1))
+                        this.unusual.add(cls.getOriginal());
+                }
+                for (IMappingFile.IField field : cls.getFields()) {
+                    if (!field.getOriginal().equals(field.getMapped()))
+                        this.members.add(field.getOriginal());
+                }
+                for (IMappingFile.IMethod method : cls.getMethods()) {
+                    // Mapped methods with parameters name the local variables of their parameters, even if they keep their own name
+                    if (!method.getOriginal().equals(method.getMapped()) || !method.getDescriptor().contains("()"))
+                        this.members.add(method.getOriginal());
+                }
+            }
+        }
+
+        /**
+         * Returns whether the given name of a constant pool entry is, or contains, a name that the mappings change.
+         */
+        boolean references(String value) {
+            if (this.members.contains(value))
+                return true;
+
+            for (String cls : this.unusual) {
+                if (value.contains(cls))
+                    return true;
+            }
+
+            int start = 0;
+            for (int i = 0; i <= value.length(); i++) {
+                if (i == value.length() || SEPARATORS.indexOf(value.charAt(i)) != -1) {
+                    if (i > start && referencesClass(value.substring(start, i)))
+                        return true;
+                    start = i + 1;
+                }
+            }
+            return false;
+        }
+
+        /**
+         * Checks a token of a descriptor or signature, which is either a class name or a class name preceded by primitive types and an {@code L}.
+         */
+        private boolean referencesClass(String token) {
+            for (int i = 0; i < token.length(); i++) {
+                if (isMapped(i == 0 ? token : token.substring(i)))
+                    return true;
+                if (PREFIXES.indexOf(token.charAt(i)) == -1)
+                    break;
+            }
+            return false;
+        }
+
+        private boolean isMapped(String cls) {
+            int idx = cls.lastIndexOf('/');
+            if (idx != -1 && this.packages.contains(cls.substring(0, idx)))
+                return true;
+
+            // Nested classes are mapped along with their outer class
+            while (true) {
+                if (this.classes.contains(cls))
+                    return true;
+                idx = cls.lastIndexOf('$');
+                if (idx == -1)
+                    return false;
+                cls = cls.substring(0, idx);
+            }
+        }
     }
 
-    private static <T> Stream<T> stream(Optional<T> optional) {
-        return optional.isPresent() ? Stream.of(optional.get()) : Stream.empty();
+    /**
+     * Caches remapped descriptors or signatures, which the same few thousand of are remapped over and over again.
+     * Once the cache is full, further results are computed without being cached.
+     */
+    private static class RemapCache {
+        private static final int MAX_SIZE = 1 << 16;
+        private final Map<String, String> cache = new ConcurrentHashMap<>();
+        private final Function<String, String> mapper;
+        private final LongAdder hits = new LongAdder();
+        private final LongAdder misses = new LongAdder();
+
+        RemapCache(Function<String, String> mapper) {
+            this.mapper = mapper;
+        }
+
+        String get(String value) {
+            if (value == null)
+                return this.mapper.apply(null);
+
+            String ret = this.cache.get(value);
+            if (ret != null) {
+                this.hits.increment();
+                return ret;
+            }
+
+            this.misses.increment();
+            ret = this.mapper.apply(value);
+            if (this.cache.size() < MAX_SIZE)
+                this.cache.put(value, ret);
+            return ret;
+        }
+
+        void clear() {
+            this.cache.clear();
+            this.hits.reset();
+            this.misses.reset();
+        }
     }
 
     private class MClass {
@@ -162,10 +689,20 @@ class EnhancedRemapper extends Remapper {
         private final IMappingFile.IClass mcls;
         private final String mappedName;
         private final List<MClass> parents;
-        private final Map<String, Optional<MField>> fields = new ConcurrentHashMap<>();
-        private final Collection<Optional<MField>> fieldsView = Collections.unmodifiableCollection(fields.values());
-        private final Map<String, Optional<MMethod>> methods = new ConcurrentHashMap<>();
-        private final Collection<Optional<MMethod>> methodsView = Collections.unmodifiableCollection(methods.values());
+        /**
+         * The length of the longest path to a root of the class hierarchy, which is 0 for classes without resolved parents.
+         */
+        private final int depth;
+        /**
+         * The fields and methods of this class, including the ones inherited from its parents, by their name.
+         * These are only built once, so that looking up a member neither needs a key built from its name and descriptor,
+         * nor remembers members that were not found.
+         */
+        private final Map<String, MField[]> fields;
+        private final Collection<MField> fieldsView;
+        private final Map<String, MMethod[]> methods;
+        private final Collection<MMethod> methodsView;
+        private long fingerprint;
 
         MClass(IClassInfo icls, IMappingFile.IClass mcls) {
             if (icls == null && mcls == null)
@@ -173,40 +710,49 @@ class EnhancedRemapper extends Remapper {
 
             this.icls = icls;
             this.mcls = mcls;
-            this.mappedName = mcls == null ? EnhancedRemapper.this.getMap().remapClass(icls.getName()) : mcls.getMapped();
+            this.mappedName = StringPool.get(mcls == null ? EnhancedRemapper.this.getMap().remapClass(icls.getName()) : mcls.getMapped());
 
+            Map<String, MField> fields = new LinkedHashMap<>();
+            Map<String, MMethod> methods = new LinkedHashMap<>();
             if (icls != null) {
                 List<MClass> parents = new ArrayList<>();
-                EnhancedRemapper.this.getClass(icls.getSuper()).ifPresent(parents::add);
-                icls.getInterfaces().stream().map(EnhancedRemapper.this::getClass).forEach(o -> o.ifPresent(parents::add));
+                MClass superCls = EnhancedRemapper.this.getClass(icls.getSuper());
+                if (superCls != null)
+                    parents.add(superCls);
+                for (String itf : icls.getInterfaces()) {
+                    MClass itfCls = EnhancedRemapper.this.getClass(itf);
+                    if (itfCls != null)
+                        parents.add(itfCls);
+                }
                 this.parents = Collections.unmodifiableList(parents);
 
                 icls.getFields().stream().map(f -> new MField(f, mcls == null ? null : mcls.getField(f.getName())))
-                    .forEach(f -> fields.put(f.getKey(), Optional.of(f)));
+                    .forEach(f -> fields.put(f.getKey(), f));
 
                 icls.getMethods().stream().map(m -> new MMethod(m, mcls == null ? null : mcls.getMethod(m.getName(), m.getDescriptor())))
-                    .forEach(m -> methods.put(m.getKey(), Optional.of(m)));
+                    .forEach(m -> methods.put(m.getKey(), m));
             } else {
                 this.parents = Collections.emptyList();
-                mcls.getFields().stream().map(f -> new MField(null, f)).forEach(f -> fields.put(f.getKey(), Optional.of(f)));
-                mcls.getMethods().stream().map(m -> new MMethod(null, m)).forEach(m -> methods.put(m.getKey(), Optional.of(m)));
+                mcls.getFields().stream().map(f -> new MField(null, f)).forEach(f -> fields.put(f.getKey(), f));
+                mcls.getMethods().stream().map(m -> new MMethod(null, m)).forEach(m -> methods.put(m.getKey(), m));
             }
 
-            for (MClass parentCls : parents) {
-                for (Optional<MField> fldOpt : parentCls.getFields()) {
-                    if (!fldOpt.isPresent())
-                        continue;
+            int depth = 0;
+            for (MClass parentCls : this.parents)
+                depth = Math.max(depth, parentCls.depth + 1);
+            this.depth = depth;
 
-                    MField fld = fldOpt.get();
-                    Optional<MField> existing = this.fields.get(fld.getKey());
-                    if (existing == null || !existing.isPresent()) {
+            for (MClass parentCls : parents) {
+                for (MField fld : parentCls.getFields()) {
+                    MField existing = fields.get(fld.getKey());
+                    if (existing == null) {
                         /* There are some weird cases where a field will be referenced as if it were owned by the current class,
                          * but it needs a field from the parent. So lets follow the linking spec and pull
                          * down fields from parents.
                          *
                          * https://docs.oracle.com/javase/specs/jvms/se16/html/jvms-5.html#jvms-5.4.3.2
                          */
-                        this.fields.put(fld.getKey(), fldOpt);
+                        fields.put(fld.getKey(), fld);
                     } else {
                         /* Is there any case where we would ever override an existing field?
                          * We don't inherit renames like we do with methods.
@@ -218,11 +764,7 @@ class EnhancedRemapper extends Remapper {
                     }
                 }
 
-                for (Optional<MMethod> mtdOpt : parentCls.getMethods()) {
-                    if (!mtdOpt.isPresent())
-                        continue;
-
-                    MMethod mtd = mtdOpt.get();
+                for (MMethod mtd : parentCls.getMethods()) {
                     /* https://docs.oracle.com/javase/specs/jvms/se16/html/jvms-5.html#jvms-5.4.3.3
                      * According to the spec, it does not check access on super classes, but it checks
                      * on interfaces if it is not ACC_PRIVATE or ACC_STATIC.
@@ -251,13 +793,13 @@ class EnhancedRemapper extends Remapper {
                         continue;
 
 
-                    Optional<MMethod> existingOpt = this.methods.get(mtd.getKey());
-                    if (existingOpt == null || !existingOpt.isPresent()) {
+                    MMethod existing = methods.get(mtd.getKey());
+                    if (existing == null) {
                         /* If there is none existing, then we pull in what we have found from the parents.
                          * This intentionally uses the same object as the parents so that if we have weird edge
                          * cases, we can migrate the mapping transitively.
                          */
-                        this.methods.put(mtd.getKey(), mtdOpt);
+                        methods.put(mtd.getKey(), mtd);
                     } else {
                         /* If the method exists, lets check if there is a mapping entry in the parent.
                          * If there is, and our current one doesn't have a map entry directly, then
@@ -278,11 +820,19 @@ class EnhancedRemapper extends Remapper {
                          *   class C extends A implements B {}
                          *   MD: B/foo()V B/bar()V
                          */
-                        MMethod existing = existingOpt.get();
                         if (!existing.hasMapping() && !existing.getName().equals(mtd.getMapped())) {
+                            if (EnhancedRemapper.this.frozen && !existing.isDeclaredBy(this)) {
+                                /* The method belongs to a class that was resolved before, and may already have been used to
+                                 * remap references. So only this class sees the propagated mapping.
+                                 */
+                                debug.accept("Not propagating mapping for " + existing + " from " + mtd + " to a resolved class: " + existing.getMapped() + " -> " + mtd.getMapped());
+                                methods.put(mtd.getKey(), mtd);
+                                continue;
+                            }
                             if (!existing.getMapped().equals(mtd.getMapped()))
                                 log.accept("Conflicting propagated mapping for " + existing + " from " + mtd + ": " + existing.getMapped() + " -> " + mtd.getMapped());
                             existing.setMapped(mtd.getMapped());
+                            EnhancedRemapper.this.propagations.increment();
                         }
                         /*
                          * Tho, there is one case I can think of that would be weird.
@@ -301,13 +851,24 @@ class EnhancedRemapper extends Remapper {
                          *   the mapping to the interface.
                          */
                         else if (!mtd.hasMapping() && !mtd.getName().equals(existing.getMapped())) {
+                            if (EnhancedRemapper.this.frozen) {
+                                // Parents are always resolved before, see above
+                                debug.accept("Not propagating mapping for " + mtd + " from " + existing + " to a resolved class: " + mtd.getMapped() + " -> " + existing.getMapped());
+                                continue;
+                            }
                             if (!mtd.getMapped().equals(existing.getMapped()))
                                 log.accept("Conflicting propagated mapping for " + mtd + " from " + existing + ": " + mtd.getMapped() + " -> " + existing.getMapped());
                             mtd.setMapped(existing.getMapped());
+                            EnhancedRemapper.this.propagations.increment();
                         }
                     }
                 }
             }
+
+            this.fieldsView = Collections.unmodifiableList(new ArrayList<>(fields.values()));
+            this.fields = byName(this.fieldsView, MField::getName, MField[]::new);
+            this.methodsView = Collections.unmodifiableList(new ArrayList<>(methods.values()));
+            this.methods = byName(this.methodsView, MMethod::getName, MMethod[]::new);
         }
 
         public String getName() {
@@ -318,6 +879,27 @@ class EnhancedRemapper extends Remapper {
             return this.mappedName;
         }
 
+        long getFingerprint() {
+            // Racy, but every thread computes the same hash. Only cached once the mapped names can no longer change.
+            long ret = this.fingerprint;
+            if (ret == 0) {
+                // Summed up, as the order of the members of classes read through reflection differs between JVMs
+                for (MField field : this.fieldsView)
+                    ret += hash(hash(hash(FNV_OFFSET, field.getName()), field.getDescriptor()), field.getMapped());
+                for (MMethod method : this.methodsView) {
+                    long member = hash(hash(hash(FNV_OFFSET ^ 1, method.getName()), method.getDescriptor()), method.getMapped());
+                    if (method.params != null) {
+                        for (String param : method.params)
+                            member = hash(member, param);
+                    }
+                    ret += member;
+                }
+                if (EnhancedRemapper.this.frozen)
+                    this.fingerprint = ret;
+            }
+            return ret;
+        }
+
         public int getAccess() {
             if (this.icls == null)
                 return ACC_PRIVATE;
@@ -328,29 +910,60 @@ class EnhancedRemapper extends Remapper {
             return (getAccess() & ACC_INTERFACE) != 0;
         }
 
-        public Collection<Optional<MField>> getFields() {
+        public Collection<MField> getFields() {
             return this.fieldsView;
         }
 
-        public Optional<MField> getField(String name, @Nullable String desc) {
-            if (desc == null) {
-                return this.fields.computeIfAbsent(name, k -> Optional.empty());
-            } else {
-                Optional<MField> ret = this.fields.get(name + desc);
-                if (ret == null) {
-                    ret = getField(name, null);
-                    this.fields.put(name + desc, ret);
-                }
-                return ret;
+        /**
+         * Finds the field with the given name and descriptor. If there is none, or no descriptor is given,
+         * this falls back to the field with the given name that has no known descriptor.
+         */
+        @Nullable
+        public MField getField(String name, @Nullable String desc) {
+            MField[] candidates = this.fields.get(name);
+            if (candidates == null)
+                return null;
+
+            MField withoutDesc = null;
+            for (MField field : candidates) {
+                String fieldDesc = field.getDescriptor();
+                if (fieldDesc == null)
+                    withoutDesc = field;
+                else if (fieldDesc.equals(desc))
+                    return field;
             }
+            return withoutDesc;
         }
 
-        public Collection<Optional<MMethod>> getMethods() {
+        public Collection<MMethod> getMethods() {
             return this.methodsView;
         }
 
-        public Optional<MMethod> getMethod(String name, String desc) {
-            return this.methods.computeIfAbsent(name + desc, k -> Optional.empty());
+        /**
+         * Finds the first method with the given name and number of parameters, for references that don't know the full descriptor.
+         */
+        @Nullable
+        public MMethod findMethod(String name, int paramCount) {
+            MMethod[] candidates = this.methods.get(name);
+            if (candidates != null) {
+                for (MMethod method : candidates) {
+                    if (method.getParameterCount() == paramCount)
+                        return method;
+                }
+            }
+            return null;
+        }
+
+        @Nullable
+        public MMethod getMethod(String name, String desc) {
+            MMethod[] candidates = this.methods.get(name);
+            if (candidates != null) {
+                for (MMethod method : candidates) {
+                    if (method.getDescriptor().equals(desc))
+                        return method;
+                }
+            }
+            return null;
         }
 
         @Override
@@ -367,8 +980,8 @@ class EnhancedRemapper extends Remapper {
             MField(IFieldInfo ifld, IMappingFile.IField mfld) {
                 this.ifld = ifld;
                 this.mfld = mfld;
-                this.mappedName = mfld == null ? ifld.getName() : mfld.getMapped();
-                this.key = getDescriptor() == null ? getName() : getName() + getDescriptor();
+                this.mappedName = StringPool.get(mfld == null ? ifld.getName() : mfld.getMapped());
+                this.key = StringPool.get(getDescriptor() == null ? getName() : getName() + getDescriptor());
             }
 
             public String getName() {
@@ -396,9 +1009,10 @@ class EnhancedRemapper extends Remapper {
         public class MMethod {
             private final IMethodInfo imtd;
             private final IMappingFile.IMethod mmtd;
-            private String mappedName;
+            private volatile String mappedName;
             private final String[] params;
             private final String key;
+            private int parameterCount = -1;
 
             MMethod(IMethodInfo imtd, IMappingFile.IMethod mmtd) {
                 this.imtd = imtd;
@@ -420,7 +1034,7 @@ class EnhancedRemapper extends Remapper {
                 } else {
                     this.params = null;
                 }
-                this.key = getName() + getDescriptor();
+                this.key = StringPool.get(getName() + getDescriptor());
             }
 
             public String getName() {
@@ -431,6 +1045,13 @@ class EnhancedRemapper extends Remapper {
                 return this.imtd != null ? this.imtd.getDescriptor() : this.mmtd.getDescriptor();
             }
 
+            public int getParameterCount() {
+                // Racy, but every thread computes the same count
+                if (this.parameterCount == -1)
+                    this.parameterCount = Type.getArgumentCount(getDescriptor());
+                return this.parameterCount;
+            }
+
             public String getMapped() {
                 return mappedName == null ? mmtd == null ? getName() : mmtd.getMapped() : mappedName;
             }
@@ -447,6 +1068,10 @@ class EnhancedRemapper extends Remapper {
                 return this.mmtd != null;
             }
 
+            boolean isDeclaredBy(MClass cls) {
+                return MClass.this == cls;
+            }
+
             public int getAccess() {
                 if (this.imtd == null)
                     return ACC_PRIVATE;
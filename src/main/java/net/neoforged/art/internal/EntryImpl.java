@@ -6,6 +6,7 @@
 package net.neoforged.art.internal;
 
 import net.neoforged.art.api.Transformer;
+import org.jetbrains.annotations.Nullable;
 
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
@@ -19,17 +20,30 @@ public abstract class EntryImpl implements Transformer.Entry {
     private final String name;
     private final long time;
     private byte[] data;
+    // The ZIP entry this was read from. Its data is only read once it is needed,
+    // and its compressed data can be copied as-is if the entry is written unchanged.
+    @Nullable
+    private final ZipReader.Record source;
 
     protected EntryImpl(String name, long time, byte[] data) {
         this.name = name;
         this.time = time;
         this.data = Objects.requireNonNull(data, "data");
+        this.source = null;
     }
 
     // Used by lazily computed entries
     protected EntryImpl(String name, long time) {
         this.name = name;
         this.time = time;
+        this.source = null;
+    }
+
+    // Used by entries read from a ZIP file
+    EntryImpl(ZipReader.Record source) {
+        this.name = source.getName();
+        this.time = source.getTime();
+        this.source = source;
     }
 
     @Override
@@ -44,9 +58,38 @@ public abstract class EntryImpl implements Transformer.Entry {
 
     @Override
     public byte[] getData() {
+        if (this.data == null && this.source != null) {
+            try {
+                this.data = this.source.read();
+            } catch (IOException e) {
+                throw new UncheckedIOException("Could not read entry " + this.name, e);
+            }
+        }
         return this.data;
     }
 
+    @Nullable
+    ZipReader.Record getSource() {
+        return this.source;
+    }
+
+    /**
+     * Creates an entry backed by the given ZIP entry, which is only read and inflated once {@link #getData()} is called.
+     *
+     * @see Transformer.Entry#ofFile(String, long, byte[])
+     */
+    static Transformer.Entry fromZip(ZipReader.Record record) {
+        String name = record.getName();
+        if (name.endsWith(".class"))
+            return new ClassEntry(record);
+        else if (name.equals(JarFile.MANIFEST_NAME))
+            return new ManifestEntry(record);
+        else if (name.equals("javadoctor.json"))
+            return new JavadoctorEntry(record);
+        else
+            return new ResourceEntry(record);
+    }
+
     // Used for lazily computed entries
     protected final void setData(byte[] data) {
         if (this.data != null) {
@@ -62,17 +105,31 @@ public abstract class EntryImpl implements Transformer.Entry {
 
         public ClassEntry(String name, long time, byte[] data) {
             super(name, time, data);
-            if (name.startsWith(VERSION_PREFIX)) {
-                int start = VERSION_PREFIX.length();
-                int idx = name.indexOf('/', start);
-                if (idx == -1)
-                    throw new IllegalArgumentException("Invalid versioned class entry: " + name);
-                release = Integer.parseInt(name.substring(start, idx));
-                name = name.substring(idx + 1);
-            } else {
-                release = -1;
-            }
-            className = name.substring(0, name.length() - 6);
+            this.release = getRelease(name);
+            this.className = getClassName(name, this.release);
+        }
+
+        ClassEntry(ZipReader.Record source) {
+            super(source);
+            this.release = getRelease(getName());
+            this.className = getClassName(getName(), this.release);
+        }
+
+        private static int getRelease(String name) {
+            if (!name.startsWith(VERSION_PREFIX))
+                return -1;
+
+            int start = VERSION_PREFIX.length();
+            int idx = name.indexOf('/', start);
+            if (idx == -1)
+                throw new IllegalArgumentException("Invalid versioned class entry: " + name);
+            return Integer.parseInt(name.substring(start, idx));
+        }
+
+        private static String getClassName(String name, int release) {
+            if (release != -1)
+                name = name.substring(name.indexOf('/', VERSION_PREFIX.length()) + 1);
+            return name.substring(0, name.length() - 6);
         }
 
         @Override
@@ -101,6 +158,10 @@ public abstract class EntryImpl implements Transformer.Entry {
             super(name, time, data);
         }
 
+        ResourceEntry(ZipReader.Record source) {
+            super(source);
+        }
+
         @Override
         public Transformer.ResourceEntry process(Transformer transformer) {
             return transformer.process(this);
@@ -119,6 +180,10 @@ public abstract class EntryImpl implements Transformer.Entry {
             this.manifest = Objects.requireNonNull(manifest, "manifest");
         }
 
+        ManifestEntry(ZipReader.Record source) {
+            super(source);
+        }
+
         @Override
         public Manifest getManifest() {
             if (manifest == null) {
@@ -156,6 +221,10 @@ public abstract class EntryImpl implements Transformer.Entry {
             super("javadoctor.json", time, data);
         }
 
+        JavadoctorEntry(ZipReader.Record source) {
+            super(source);
+        }
+
         @Override
         public Transformer.JavadoctorEntry process(Transformer transformer) {
             return transformer.process(this);
@@ -5,8 +5,10 @@
 
 package net.neoforged.art.internal;
 
+import java.io.DataOutput;
 import java.io.File;
 import java.io.FileInputStream;
+import java.io.IOException;
 import java.nio.ByteBuffer;
 import java.nio.ByteOrder;
 import java.util.HashMap;
@@ -18,13 +20,14 @@ import java.util.zip.ZipEntry;
 import java.util.zip.ZipInputStream;
 
 import net.neoforged.art.api.Transformer;
+import org.jetbrains.annotations.Nullable;
 import org.objectweb.asm.ClassReader;
 import org.objectweb.asm.ClassVisitor;
 import org.objectweb.asm.ClassWriter;
 import org.objectweb.asm.Label;
 import org.objectweb.asm.MethodVisitor;
 
-public final class FFLineFixer implements Transformer {
+public final class FFLineFixer implements Transformer.ClassVisitorTransformer, IncrementalTransformer {
     private final Map<String, NavigableMap<Integer, Integer>> classes = new HashMap<>();
 
     public FFLineFixer(Consumer<String> debug, File data) {
@@ -68,19 +71,25 @@ public final class FFLineFixer implements Transformer {
     }
 
     @Override
-    public ClassEntry process(ClassEntry entry) {
-        String owner = entry.getClassName();
-        int idx = owner.indexOf('$');
-        if (idx != -1)
-            owner = owner.substring(0, idx);
+    public void fingerprint(DataOutput out) throws IOException {
+        for (Map.Entry<String, NavigableMap<Integer, Integer>> cls : new TreeMap<>(this.classes).entrySet()) {
+            out.writeUTF(cls.getKey());
+            out.writeInt(cls.getValue().size());
+            for (Map.Entry<Integer, Integer> line : cls.getValue().entrySet()) {
+                out.writeInt(line.getKey());
+                out.writeInt(line.getValue());
+            }
+        }
+    }
 
-        NavigableMap<Integer, Integer> lines = classes.get(owner);
-        if (lines == null)
+    @Override
+    public ClassEntry process(ClassEntry entry) {
+        if (getLines(entry.getClassName()) == null)
             return entry;
 
         ClassReader reader = new ClassReader(entry.getData());
         ClassWriter writer = new ClassWriter(reader, 0);
-        Fixer fixer = new Fixer(writer, lines);
+        Fixer fixer = new Fixer(writer);
 
         reader.accept(fixer, 0);
 
@@ -90,22 +99,49 @@ public final class FFLineFixer implements Transformer {
         return ClassEntry.create(entry.getName(), entry.getTime(), writer.toByteArray());
     }
 
-    private static class Fixer extends ClassVisitor {
-        private final NavigableMap<Integer, Integer> lines;
+    @Override
+    public ClassVisitor createVisitor(ClassEntry entry, ClassReader reader, ClassVisitor parent) {
+        return this.classes.isEmpty() ? null : new Fixer(parent);
+    }
+
+    @Override
+    public boolean madeChange(ClassVisitor visitor) {
+        return ((Fixer) visitor).madeChange();
+    }
+
+    @Nullable
+    private NavigableMap<Integer, Integer> getLines(String cls) {
+        int idx = cls.indexOf('$');
+        if (idx != -1)
+            cls = cls.substring(0, idx);
+        return classes.get(cls);
+    }
+
+    private class Fixer extends ClassVisitor {
+        @Nullable
+        private NavigableMap<Integer, Integer> lines;
         private boolean madeChange = false;
 
-        public Fixer(ClassVisitor parent, NavigableMap<Integer, Integer> lines) {
+        public Fixer(ClassVisitor parent) {
             super(RenamerImpl.MAX_ASM_VERSION, parent);
-            this.lines = lines;
         }
 
         public boolean madeChange() {
             return this.madeChange;
         }
 
+        @Override
+        public void visit(final int version, final int access, final String name, final String signature, final String superName, final String[] interfaces) {
+            // Looked up by the name the class has at this point, which is the mapped name if a renamer ran before
+            this.lines = getLines(name);
+            super.visit(version, access, name, signature, superName, interfaces);
+        }
+
         @Override
         public final MethodVisitor visitMethod(final int access, final String name, final String descriptor, final String signature, final String[] exceptions) {
             MethodVisitor parent = super.visitMethod(access, name, descriptor, signature, exceptions);
+            if (lines == null)
+                return parent;
             return new MethodVisitor(RenamerImpl.MAX_ASM_VERSION, parent) {
                 @Override
                 public void visitLineNumber(final int line, final Label start) {
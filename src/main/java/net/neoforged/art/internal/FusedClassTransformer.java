@@ -0,0 +1,181 @@
+/*
+ * Copyright (c) Forge Development LLC and contributors
+ * SPDX-License-Identifier: LGPL-2.1-only
+ */
+
+package net.neoforged.art.internal;
+
+import net.neoforged.art.api.Transformer;
+import org.objectweb.asm.ClassReader;
+import org.objectweb.asm.ClassVisitor;
+import org.objectweb.asm.ClassWriter;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+
+/**
+ * Runs consecutive {@link ClassVisitorTransformer}s as one transformer, which chains their class visitors
+ * so that every class is only read and written once. Other entries are passed through each transformer in order.
+ */
+class FusedClassTransformer implements Transformer {
+    private final List<ClassVisitorTransformer> transformers;
+
+    FusedClassTransformer(List<ClassVisitorTransformer> transformers) {
+        this.transformers = Collections.unmodifiableList(new ArrayList<>(transformers));
+    }
+
+    /**
+     * Returns the given transformers with every run of more than one consecutive {@link ClassVisitorTransformer} replaced by a fused transformer.
+     */
+    static List<Transformer> fuse(List<Transformer> transformers) {
+        List<Transformer> ret = new ArrayList<>(transformers.size());
+        List<ClassVisitorTransformer> group = new ArrayList<>();
+        for (Transformer transformer : transformers) {
+            if (transformer instanceof ClassVisitorTransformer) {
+                group.add((ClassVisitorTransformer) transformer);
+            } else {
+                addGroup(ret, group);
+                ret.add(transformer);
+            }
+        }
+        addGroup(ret, group);
+        return ret;
+    }
+
+    private static void addGroup(List<Transformer> ret, List<ClassVisitorTransformer> group) {
+        if (group.size() == 1)
+            ret.add(group.get(0));
+        else if (!group.isEmpty())
+            ret.add(new FusedClassTransformer(group));
+        group.clear();
+    }
+
+    List<ClassVisitorTransformer> getTransformers() {
+        return this.transformers;
+    }
+
+    @Override
+    public CompletableFuture<Void> prepare(Collection<String> classes, ExecutorService executor) {
+        CompletableFuture<?>[] futures = new CompletableFuture<?>[this.transformers.size()];
+        for (int i = 0; i < futures.length; i++)
+            futures[i] = this.transformers.get(i).prepare(classes, executor);
+        return CompletableFuture.allOf(futures);
+    }
+
+    @Override
+    public ClassEntry process(ClassEntry entry) {
+        ClassVisitor[] visitors = new ClassVisitor[this.transformers.size()];
+        boolean newConstantPool = false;
+        boolean any = false;
+
+        ClassReader reader = new ClassReader(entry.getData());
+        NameCollector collector = new NameCollector();
+        // Built back to front, so that the first transformer sees the class first
+        ClassVisitor parent = collector;
+        for (int i = visitors.length - 1; i >= 0; i--) {
+            ClassVisitorTransformer transformer = this.transformers.get(i);
+            ClassVisitor visitor = transformer.createVisitor(entry, reader, parent);
+            if (visitor != null) {
+                visitors[i] = visitor;
+                parent = visitor;
+                any = true;
+                newConstantPool |= transformer.rewritesConstantPool();
+            }
+        }
+
+        if (!any)
+            return entry;
+
+        // Only chosen now, as transformers which skip the class don't need a new constant pool
+        ClassWriter writer = newConstantPool ? new ClassWriter(0) : new ClassWriter(reader, 0);
+        collector.setWriter(writer);
+        reader.accept(parent, 0);
+
+        boolean changed = false;
+        for (int i = 0; i < visitors.length; i++) {
+            if (visitors[i] != null && this.transformers.get(i).madeChange(visitors[i])) {
+                changed = true;
+                break;
+            }
+        }
+
+        if (!changed)
+            return entry;
+
+        byte[] data = writer.toByteArray();
+        if (collector.name == null || collector.name.equals(entry.getClassName()))
+            return ClassEntry.create(entry.getName(), entry.getTime(), data);
+        if (entry.isMultiRelease())
+            return ClassEntry.create(collector.name, entry.getTime(), data, entry.getVersion());
+        return ClassEntry.create(collector.name + ".class", entry.getTime(), data);
+    }
+
+    @Override
+    public ManifestEntry process(ManifestEntry entry) {
+        for (ClassVisitorTransformer transformer : this.transformers) {
+            entry = transformer.process(entry);
+            if (entry == null)
+                return null;
+        }
+        return entry;
+    }
+
+    @Override
+    public ResourceEntry process(ResourceEntry entry) {
+        for (ClassVisitorTransformer transformer : this.transformers) {
+            entry = transformer.process(entry);
+            if (entry == null)
+                return null;
+        }
+        return entry;
+    }
+
+    @Override
+    public JavadoctorEntry process(JavadoctorEntry entry) {
+        for (ClassVisitorTransformer transformer : this.transformers) {
+            entry = transformer.process(entry);
+            if (entry == null)
+                return null;
+        }
+        return entry;
+    }
+
+    @Override
+    public Collection<? extends Entry> getExtras() {
+        List<Entry> ret = new ArrayList<>();
+        for (ClassVisitorTransformer transformer : this.transformers)
+            ret.addAll(transformer.getExtras());
+        return ret;
+    }
+
+    @Override
+    public String toString() {
+        return "Fused" + this.transformers;
+    }
+
+    /**
+     * Records the final name of the class, as it is written after all transformers ran.
+     * The writer it delegates to is set once the visitors of the chain are known.
+     */
+    private static class NameCollector extends ClassVisitor {
+        private String name;
+
+        NameCollector() {
+            super(RenamerImpl.MAX_ASM_VERSION);
+        }
+
+        void setWriter(ClassWriter writer) {
+            this.cv = writer;
+        }
+
+        @Override
+        public void visit(int version, int access, String name, String signature, String superName, String[] interfaces) {
+            this.name = name;
+            super.visit(version, access, name, signature, superName, interfaces);
+        }
+    }
+}
@@ -5,6 +5,8 @@
 
 package net.neoforged.art.internal;
 
+import java.io.DataOutput;
+import java.io.IOException;
 import java.util.HashMap;
 import java.util.Map;
 
@@ -14,8 +16,16 @@ import org.objectweb.asm.Label;
 import org.objectweb.asm.MethodVisitor;
 
 public final class IdentifierFixer extends OptionalChangeTransformer {
+    private final IdentifierFixerConfig config;
+
     public IdentifierFixer(IdentifierFixerConfig config) {
         super(parent -> new Fixer(config, parent));
+        this.config = config;
+    }
+
+    @Override
+    public void fingerprint(DataOutput out) throws IOException {
+        out.writeUTF(this.config.name());
     }
 
     private static class Fixer extends ClassFixer {
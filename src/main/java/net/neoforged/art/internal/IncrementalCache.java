@@ -0,0 +1,325 @@
+/*
+ * Copyright (c) Forge Development LLC and contributors
+ * SPDX-License-Identifier: LGPL-2.1-only
+ */
+
+package net.neoforged.art.internal;
+
+import net.neoforged.art.api.Transformer;
+import net.neoforged.art.api.Transformer.ClassEntry;
+import net.neoforged.art.api.Transformer.Entry;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+/**
+ * The manifest of incremental runs, kept next to the output JAR as {@code <output>.artcache}.
+ * <p>
+ * For every class of the input, the manifest records the CRC, size and time of the input entry, the name of the output
+ * entry it became, and the fingerprints of the dependencies each transformer recorded while processing it, such as the
+ * classes whose members it references. The manifest is only used if the transformers are configured the same way, and
+ * the output is still the one it was written with. Classes whose input entry and dependencies did not change are then
+ * copied from the previous output instead of being processed again.
+ * <pre>
+ * int magic, int version, long outputSize, long outputMtime, byte[32] config
+ * int classCount, then per class:
+ *   UTF input, int crc, long size, long time, UTF output
+ *   per transformer: int dependencyCount, (UTF name, long fingerprint)[dependencyCount], int replayCount, UTF[replayCount]
+ * </pre>
+ */
+class IncrementalCache implements Closeable {
+    private static final int MAGIC = 0x41525443; // ARTC
+    private static final int VERSION = 1;
+
+    private final File file;
+    private final File output;
+    private final List<IncrementalTransformer> transformers;
+    private final byte[] config;
+    private final Map<String, Record> previous;
+    @Nullable
+    private final ZipReader previousOutput;
+    private final Map<String, ZipReader.Record> previousEntries = new HashMap<>();
+    private final Map<String, Record> records = new ConcurrentHashMap<>();
+    private final AtomicInteger reused = new AtomicInteger();
+
+    private IncrementalCache(File file, File output, List<IncrementalTransformer> transformers, byte[] config, Map<String, Record> previous, @Nullable ZipReader previousOutput) {
+        this.file = file;
+        this.output = output;
+        this.transformers = transformers;
+        this.config = config;
+        this.previous = previous;
+        this.previousOutput = previousOutput;
+        if (previousOutput != null) {
+            for (ZipReader.Record record : previousOutput.getRecords())
+                this.previousEntries.put(record.getName(), record);
+        }
+    }
+
+    /**
+     * Opens the cache of the given output JAR, or returns null if one of the transformers does not support incremental runs.
+     */
+    @Nullable
+    static IncrementalCache open(File output, List<Transformer> transformers, Consumer<String> logger) throws IOException {
+        List<IncrementalTransformer> incremental = new ArrayList<>();
+        for (Transformer transformer : transformers) {
+            List<? extends Transformer> members = transformer instanceof FusedClassTransformer
+                    ? ((FusedClassTransformer) transformer).getTransformers()
+                    : Collections.singletonList(transformer);
+            for (Transformer member : members) {
+                if (!(member instanceof IncrementalTransformer)) {
+                    logger.accept("Transformer " + member.getClass().getName() + " does not support incremental runs, processing all entries");
+                    return null;
+                }
+                incremental.add((IncrementalTransformer) member);
+            }
+        }
+
+        byte[] config = fingerprint(incremental);
+        File file = new File(output.getParentFile(), output.getName() + ".artcache");
+        Map<String, Record> previous = output.isFile() && file.isFile() ? read(file, output, incremental.size(), config) : null;
+        if (previous == null) {
+            logger.accept("No usable incremental cache found, processing all entries");
+            return new IncrementalCache(file, output, incremental, config, Collections.emptyMap(), null);
+        }
+
+        // Not mapped, as the output is replaced while it is still open
+        return new IncrementalCache(file, output, incremental, config, previous, new ZipReader(output.toPath(), false));
+    }
+
+    private static byte[] fingerprint(List<IncrementalTransformer> transformers) throws IOException {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not supported", e);
+        }
+
+        OutputStream sink = new OutputStream() {
+            @Override
+            public void write(int b) {
+                digest.update((byte) b);
+            }
+
+            @Override
+            public void write(byte[] b, int off, int len) {
+                digest.update(b, off, len);
+            }
+        };
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(sink))) {
+            out.writeInt(VERSION);
+            for (IncrementalTransformer transformer : transformers) {
+                out.writeUTF(transformer.getClass().getName());
+                transformer.fingerprint(out);
+            }
+        }
+        return digest.digest();
+    }
+
+    @Nullable
+    private static Map<String, Record> read(File file, File output, int transformers, byte[] config) {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file.toPath())))) {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION || in.readLong() != output.length() || in.readLong() != output.lastModified())
+                return null;
+
+            byte[] previousConfig = new byte[config.length];
+            in.readFully(previousConfig);
+            if (!Arrays.equals(config, previousConfig))
+                return null;
+
+            int count = in.readInt();
+            Map<String, Record> ret = new HashMap<>(count * 2);
+            for (int i = 0; i < count; i++) {
+                Record record = Record.read(in, transformers);
+                ret.put(record.input, record);
+            }
+            return ret;
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Returns the output entry of the given class from the previous output if neither the class nor its dependencies changed,
+     * and replays what processing it contributed besides the class. Returns null if the class has to be processed.
+     */
+    @Nullable
+    Entry reuse(ClassEntry entry) {
+        ZipReader.Record source = entry instanceof EntryImpl ? ((EntryImpl) entry).getSource() : null;
+        Record record = source == null ? null : this.previous.get(entry.getName());
+        if (record == null || record.crc != source.getCrc() || record.size != source.getSize() || record.time != source.getTime())
+            return null;
+
+        ZipReader.Record output = this.previousEntries.get(record.output);
+        if (output == null)
+            return null;
+
+        for (int i = 0; i < this.transformers.size(); i++) {
+            IncrementalTransformer transformer = this.transformers.get(i);
+            for (Map.Entry<String, Long> dependency : record.dependencies.get(i).entrySet()) {
+                if (transformer.getFingerprint(dependency.getKey()) != dependency.getValue())
+                    return null;
+            }
+        }
+
+        for (int i = 0; i < this.transformers.size(); i++)
+            this.transformers.get(i).replay(record.replay.get(i));
+
+        this.records.put(record.input, record);
+        this.reused.incrementAndGet();
+        return EntryImpl.fromZip(output);
+    }
+
+    /**
+     * Starts recording the dependencies of the class that is processed next on the current thread.
+     */
+    void startClass() {
+        for (IncrementalTransformer transformer : this.transformers)
+            transformer.startClass();
+    }
+
+    /**
+     * Records the dependencies of the class that was processed on the current thread, and the output entry it became.
+     */
+    void finishClass(ClassEntry entry, @Nullable Entry output) {
+        List<Map<String, Long>> dependencies = new ArrayList<>(this.transformers.size());
+        List<List<String>> replay = new ArrayList<>(this.transformers.size());
+        for (IncrementalTransformer transformer : this.transformers) {
+            Map<String, Long> transformerDependencies = new TreeMap<>();
+            List<String> transformerReplay = new ArrayList<>();
+            transformer.finishClass(transformerDependencies, transformerReplay);
+            dependencies.add(transformerDependencies);
+            replay.add(transformerReplay);
+        }
+
+        // Entries that did not come from a JAR, or that were removed, are always processed
+        ZipReader.Record source = entry instanceof EntryImpl ? ((EntryImpl) entry).getSource() : null;
+        if (source != null && output != null)
+            this.records.put(entry.getName(), new Record(entry.getName(), source.getCrc(), source.getSize(), source.getTime(), output.getName(), dependencies, replay));
+    }
+
+    /**
+     * Returns the number of classes that were copied from the previous output.
+     */
+    int getReused() {
+        return this.reused.get();
+    }
+
+    /**
+     * Returns the number of classes that are recorded for the next run.
+     */
+    int getRecorded() {
+        return this.records.size();
+    }
+
+    /**
+     * Writes the manifest of the output that was just written.
+     */
+    void save() throws IOException {
+        File tmp = new File(this.file.getParentFile(), this.file.getName() + ".tmp");
+        try {
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tmp.toPath())))) {
+                out.writeInt(MAGIC);
+                out.writeInt(VERSION);
+                out.writeLong(this.output.length());
+                out.writeLong(this.output.lastModified());
+                out.write(this.config);
+                out.writeInt(this.records.size());
+                for (Record record : new TreeMap<>(this.records).values())
+                    record.write(out);
+            }
+            Files.move(tmp.toPath(), this.file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        } finally {
+            tmp.delete();
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (this.previousOutput != null)
+            this.previousOutput.close();
+    }
+
+    private static class Record {
+        private final String input;
+        private final int crc;
+        private final long size;
+        private final long time;
+        private final String output;
+        private final List<Map<String, Long>> dependencies;
+        private final List<List<String>> replay;
+
+        private Record(String input, int crc, long size, long time, String output, List<Map<String, Long>> dependencies, List<List<String>> replay) {
+            this.input = input;
+            this.crc = crc;
+            this.size = size;
+            this.time = time;
+            this.output = output;
+            this.dependencies = dependencies;
+            this.replay = replay;
+        }
+
+        private static Record read(DataInputStream in, int transformers) throws IOException {
+            String input = in.readUTF();
+            int crc = in.readInt();
+            long size = in.readLong();
+            long time = in.readLong();
+            String output = in.readUTF();
+            List<Map<String, Long>> dependencies = new ArrayList<>(transformers);
+            List<List<String>> replay = new ArrayList<>(transformers);
+            for (int i = 0; i < transformers; i++) {
+                int count = in.readInt();
+                Map<String, Long> transformerDependencies = new TreeMap<>();
+                for (int j = 0; j < count; j++)
+                    transformerDependencies.put(in.readUTF(), in.readLong());
+                dependencies.add(transformerDependencies);
+
+                count = in.readInt();
+                List<String> transformerReplay = new ArrayList<>(count);
+                for (int j = 0; j < count; j++)
+                    transformerReplay.add(in.readUTF());
+                replay.add(transformerReplay);
+            }
+            return new Record(input, crc, size, time, output, dependencies, replay);
+        }
+
+        private void write(DataOutputStream out) throws IOException {
+            out.writeUTF(this.input);
+            out.writeInt(this.crc);
+            out.writeLong(this.size);
+            out.writeLong(this.time);
+            out.writeUTF(this.output);
+            for (int i = 0; i < this.dependencies.size(); i++) {
+                out.writeInt(this.dependencies.get(i).size());
+                for (Map.Entry<String, Long> dependency : this.dependencies.get(i).entrySet()) {
+                    out.writeUTF(dependency.getKey());
+                    out.writeLong(dependency.getValue());
+                }
+
+                out.writeInt(this.replay.get(i).size());
+                for (String line : this.replay.get(i))
+                    out.writeUTF(line);
+            }
+        }
+    }
+}
@@ -0,0 +1,52 @@
+/*
+ * Copyright (c) Forge Development LLC and contributors
+ * SPDX-License-Identifier: LGPL-2.1-only
+ */
+
+package net.neoforged.art.internal;
+
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A transformer whose processed classes can be copied from the previous output by incremental runs.
+ * <p>
+ * How a class is processed must only depend on the class itself, on what {@link #fingerprint(DataOutput)} writes,
+ * and on the dependencies recorded between {@link #startClass()} and {@link #finishClass(Map, List)}.
+ *
+ * @see IncrementalCache
+ */
+interface IncrementalTransformer {
+    /**
+     * Writes everything that processing classes depends on besides the classes themselves, such as configuration or mappings.
+     */
+    void fingerprint(DataOutput out) throws IOException;
+
+    /**
+     * Starts recording the dependencies of the class that is processed next on the current thread.
+     */
+    default void startClass() {}
+
+    /**
+     * Stops recording the dependencies of the class that was processed on the current thread.
+     *
+     * @param dependencies receives the current fingerprint of every dependency, by name
+     * @param replay receives the data to {@link #replay(List)} if the class is copied from the previous output instead
+     */
+    default void finishClass(Map<String, Long> dependencies, List<String> replay) {}
+
+    /**
+     * Returns the current fingerprint of a dependency that was recorded by {@link #finishClass(Map, List)}.
+     */
+    default long getFingerprint(String dependency) {
+        return 0;
+    }
+
+    /**
+     * Restores what processing a class contributed besides the class itself, such as to extras,
+     * for a class that is copied from the previous output instead of being processed.
+     */
+    default void replay(List<String> data) {}
+}
@@ -0,0 +1,272 @@
+/*
+ * Copyright (c) Forge Development LLC and contributors
+ * SPDX-License-Identifier: LGPL-2.1-only
+ */
+
+package net.neoforged.art.internal;
+
+import net.neoforged.art.api.ClassProvider;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * A compact binary index of the class infos of a library JAR, cached on disk so that later runs don't need to
+ * open the JAR and parse its classes again.
+ * <p>
+ * An index is stored in the cache directory under the SHA-1 of the library's absolute path, and is only used if the
+ * library's size and modification time still match the ones it was built from. Otherwise it is rebuilt.
+ * The format is a table of all strings, followed by one record per class which refers to those strings by index:
+ * <pre>
+ * int magic, int version, UTF path, long size, long mtime
+ * int stringCount, UTF[stringCount] strings
+ * int classCount, then per class:
+ *   int key, int name, int access, int super (-1 for none)
+ *   int interfaceCount, int[interfaceCount] interfaces
+ *   int fieldCount, (int name, int desc, int access)[fieldCount]
+ *   int methodCount, (int name, int desc, int access)[methodCount]
+ * </pre>
+ * Class infos are only created from their record once they are queried.
+ */
+class LibraryIndex {
+    private static final int MAGIC = 0x41525449; // ARTI
+    private static final int VERSION = 1;
+
+    private final String path;
+    private final String[] strings;
+    private final ByteBuffer classData;
+    private final Map<String, Integer> classes;
+
+    private LibraryIndex(String path, String[] strings, ByteBuffer classData, Map<String, Integer> classes) {
+        this.path = path;
+        this.strings = strings;
+        this.classData = classData;
+        this.classes = classes;
+    }
+
+    /**
+     * Returns the names of all classes in this index, as their class file path without the {@code .class} extension.
+     */
+    Set<String> getClassNames() {
+        return this.classes.keySet();
+    }
+
+    @Nullable
+    ClassProviderImpl.ClassInfo getClassInfo(String name) {
+        Integer position = this.classes.get(name);
+        if (position == null)
+            return null;
+
+        // Only absolute reads, so this is thread-safe
+        ByteBuffer buf = this.classData;
+        int pos = position + 4; // Skip the key
+        String className = this.strings[buf.getInt(pos)];
+        int access = buf.getInt(pos + 4);
+        int superName = buf.getInt(pos + 8);
+        pos += 12;
+
+        String[] interfaces = new String[buf.getInt(pos)];
+        pos += 4;
+        for (int i = 0; i < interfaces.length; i++, pos += 4)
+            interfaces[i] = this.strings[buf.getInt(pos)];
+
+        int[] fieldAccess = new int[buf.getInt(pos)];
+        String[] fields = new String[fieldAccess.length * 2];
+        pos += 4;
+        for (int i = 0; i < fieldAccess.length; i++, pos += 12) {
+            fields[i * 2] = this.strings[buf.getInt(pos)];
+            fields[i * 2 + 1] = this.strings[buf.getInt(pos + 4)];
+            fieldAccess[i] = buf.getInt(pos + 8);
+        }
+
+        int[] methodAccess = new int[buf.getInt(pos)];
+        String[] methods = new String[methodAccess.length * 2];
+        pos += 4;
+        for (int i = 0; i < methodAccess.length; i++, pos += 12) {
+            methods[i * 2] = this.strings[buf.getInt(pos)];
+            methods[i * 2 + 1] = this.strings[buf.getInt(pos + 4)];
+            methodAccess[i] = buf.getInt(pos + 8);
+        }
+
+        // The strings of the index are already pooled
+        return new ClassProviderImpl.ClassInfo(className, access, superName == -1 ? null : this.strings[superName], interfaces, fields, fieldAccess, methods, methodAccess);
+    }
+
+    /**
+     * Loads the index of the given library JAR from the cache directory, building and caching it first if it is missing or stale.
+     * If the index can not be written to the cache directory, the freshly built index is used without caching it.
+     */
+    static LibraryIndex load(Path cacheDirectory, Path library) throws IOException {
+        Path path = library.toAbsolutePath().normalize();
+        BasicFileAttributes attributes = Files.readAttributes(path, BasicFileAttributes.class);
+        long size = attributes.size();
+        long mtime = attributes.lastModifiedTime().toMillis();
+        Path cacheFile = cacheDirectory.resolve(sha1(path.toString()) + ".idx");
+
+        if (Files.isRegularFile(cacheFile)) {
+            LibraryIndex index = read(Files.readAllBytes(cacheFile), path.toString(), size, mtime);
+            if (index != null)
+                return index;
+        }
+
+        byte[] data = build(path, size, mtime);
+        try {
+            Files.createDirectories(cacheDirectory);
+            Path tmp = Files.createTempFile(cacheDirectory, cacheFile.getFileName().toString(), ".tmp");
+            try {
+                Files.write(tmp, data);
+                try {
+                    Files.move(tmp, cacheFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+                } catch (AtomicMoveNotSupportedException e) {
+                    Files.move(tmp, cacheFile, StandardCopyOption.REPLACE_EXISTING);
+                }
+            } finally {
+                Files.deleteIfExists(tmp);
+            }
+        } catch (IOException e) {
+            // The cache is only an optimization, so a read-only or otherwise broken cache directory is not fatal
+        }
+
+        LibraryIndex index = read(data, path.toString(), size, mtime);
+        if (index == null)
+            throw new IllegalStateException("Could not read freshly built index of " + path);
+        return index;
+    }
+
+    /**
+     * Reads an index, returning null if it is corrupt or not the index of the library with the given path, size and modification time.
+     */
+    @Nullable
+    private static LibraryIndex read(byte[] data, String path, long size, long mtime) {
+        try {
+            ByteArrayInputStream bytes = new ByteArrayInputStream(data);
+            DataInputStream in = new DataInputStream(bytes);
+            if (in.readInt() != MAGIC || in.readInt() != VERSION || !in.readUTF().equals(path) || in.readLong() != size || in.readLong() != mtime)
+                return null;
+
+            String[] strings = new String[in.readInt()];
+            for (int i = 0; i < strings.length; i++)
+                strings[i] = StringPool.get(in.readUTF());
+
+            ByteBuffer classData = ByteBuffer.wrap(data, data.length - bytes.available(), bytes.available()).slice();
+            int count = classData.getInt(0);
+            Map<String, Integer> classes = new HashMap<>(count * 2);
+            int pos = 4;
+            for (int i = 0; i < count; i++) {
+                classes.put(strings[classData.getInt(pos)], pos);
+                pos += 16;
+                pos += 4 + 4 * classData.getInt(pos);
+                pos += 4 + 12 * classData.getInt(pos);
+                pos += 4 + 12 * classData.getInt(pos);
+            }
+            if (pos != classData.limit())
+                return null;
+
+            return new LibraryIndex(path, strings, classData, Collections.unmodifiableMap(classes));
+        } catch (IOException | RuntimeException e) {
+            return null;
+        }
+    }
+
+    private static byte[] build(Path library, long size, long mtime) throws IOException {
+        Map<String, ClassProviderImpl.ClassInfo> infos = new LinkedHashMap<>();
+        try (ZipReader zip = new ZipReader(library, false)) {
+            for (ZipReader.Record record : zip.getRecords()) {
+                String name = record.getName();
+                // Same filter as walking the library, the first entry with a name wins
+                if (!name.endsWith(".class") || name.startsWith("META-INF") || infos.containsKey(name.substring(0, name.length() - 6)))
+                    continue;
+
+                infos.put(name.substring(0, name.length() - 6), new ClassProviderImpl.ClassInfo(record.read()));
+            }
+        }
+
+        Map<String, Integer> strings = new LinkedHashMap<>();
+        List<int[]> records = new ArrayList<>(infos.size());
+        for (Map.Entry<String, ClassProviderImpl.ClassInfo> entry : infos.entrySet()) {
+            ClassProviderImpl.ClassInfo info = entry.getValue();
+            int[] record = new int[4 + 1 + info.getInterfaces().size() + 1 + info.getFields().size() * 3 + 1 + info.getMethods().size() * 3];
+            int pos = 0;
+            record[pos++] = intern(strings, entry.getKey());
+            record[pos++] = intern(strings, info.getName());
+            record[pos++] = info.getAccess();
+            record[pos++] = info.getSuper() == null ? -1 : intern(strings, info.getSuper());
+            record[pos++] = info.getInterfaces().size();
+            for (String itf : info.getInterfaces())
+                record[pos++] = intern(strings, itf);
+            record[pos++] = info.getFields().size();
+            for (ClassProvider.IFieldInfo field : info.getFields()) {
+                record[pos++] = intern(strings, field.getName());
+                record[pos++] = intern(strings, field.getDescriptor());
+                record[pos++] = field.getAccess();
+            }
+            record[pos++] = info.getMethods().size();
+            for (ClassProvider.IMethodInfo method : info.getMethods()) {
+                record[pos++] = intern(strings, method.getName());
+                record[pos++] = intern(strings, method.getDescriptor());
+                record[pos++] = method.getAccess();
+            }
+            records.add(record);
+        }
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(bytes))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeUTF(library.toString());
+            out.writeLong(size);
+            out.writeLong(mtime);
+            out.writeInt(strings.size());
+            for (String string : strings.keySet())
+                out.writeUTF(string);
+            out.writeInt(records.size());
+            for (int[] record : records) {
+                for (int value : record)
+                    out.writeInt(value);
+            }
+        }
+        return bytes.toByteArray();
+    }
+
+    @Override
+    public String toString() {
+        return "index of " + this.path;
+    }
+
+    private static int intern(Map<String, Integer> strings, String value) {
+        return strings.computeIfAbsent(value, k -> strings.size());
+    }
+
+    private static String sha1(String value) {
+        try {
+            byte[] hash = MessageDigest.getInstance("SHA-1").digest(value.getBytes(StandardCharsets.UTF_8));
+            StringBuilder ret = new StringBuilder(hash.length * 2);
+            for (byte b : hash)
+                ret.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+            return ret.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-1 is always supported", e);
+        }
+    }
+}
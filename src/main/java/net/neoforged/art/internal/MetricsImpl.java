@@ -0,0 +1,243 @@
+/*
+ * Copyright (c) Forge Development LLC and contributors
+ * SPDX-License-Identifier: LGPL-2.1-only
+ */
+
+package net.neoforged.art.internal;
+
+import net.neoforged.art.api.Metrics;
+
+import java.util.Collections;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+public class MetricsImpl implements Metrics {
+    public static final Metrics DISABLED = new Disabled();
+
+    private final Map<String, CounterImpl> counters = new ConcurrentHashMap<>();
+    private final Map<String, HistogramImpl> histograms = new ConcurrentHashMap<>();
+
+    public MetricsImpl() {}
+
+    @Override
+    public boolean isEnabled() {
+        return true;
+    }
+
+    @Override
+    public Counter counter(String name) {
+        return this.counters.computeIfAbsent(name, k -> new CounterImpl());
+    }
+
+    @Override
+    public Histogram histogram(String name) {
+        return this.histograms.computeIfAbsent(name, k -> new HistogramImpl());
+    }
+
+    @Override
+    public Map<String, Long> getCounters() {
+        Map<String, Long> ret = new TreeMap<>();
+        this.counters.forEach((name, counter) -> ret.put(name, counter.get()));
+        return Collections.unmodifiableMap(ret);
+    }
+
+    @Override
+    public Map<String, Histogram> getHistograms() {
+        return Collections.unmodifiableMap(new TreeMap<>(this.histograms));
+    }
+
+    @Override
+    public void reset() {
+        this.counters.values().forEach(CounterImpl::reset);
+        this.histograms.values().forEach(HistogramImpl::reset);
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder ret = new StringBuilder();
+        Map<String, Long> counters = getCounters();
+        Map<String, Histogram> histograms = getHistograms();
+        int width = 7;
+        for (String name : counters.keySet())
+            width = Math.max(width, name.length());
+        for (String name : histograms.keySet())
+            width = Math.max(width, name.length());
+
+        ret.append(String.format(Locale.ROOT, "%-" + width + "s %12s", "Counter", "Value"));
+        String format = "%n%-" + width + "s %12d";
+        counters.forEach((name, value) -> ret.append(String.format(Locale.ROOT, format, name, value)));
+
+        if (!histograms.isEmpty()) {
+            ret.append(String.format(Locale.ROOT, "%n%n%-" + width + "s %12s %14s %12s %12s %12s", "Histogram", "Count", "Sum", "p50", "p99", "Max"));
+            String histogramFormat = "%n%-" + width + "s %12d %14d %12d %12d %12d";
+            histograms.forEach((name, histogram) -> ret.append(String.format(Locale.ROOT, histogramFormat, name,
+                histogram.getCount(), histogram.getSum(), histogram.getPercentile(50), histogram.getPercentile(99), histogram.getMax())));
+        }
+        return ret.toString();
+    }
+
+    private static class CounterImpl implements Counter {
+        private final LongAdder value = new LongAdder();
+
+        @Override
+        public void increment() {
+            this.value.increment();
+        }
+
+        @Override
+        public void add(long value) {
+            this.value.add(value);
+        }
+
+        @Override
+        public long get() {
+            return this.value.sum();
+        }
+
+        private void reset() {
+            this.value.reset();
+        }
+    }
+
+    private static class HistogramImpl implements Histogram {
+        /**
+         * The number of values in each bucket. Bucket {@code i} holds values below {@code 2^i} that do not fit a lower bucket.
+         */
+        private final LongAdder[] buckets = new LongAdder[64];
+        private final LongAdder sum = new LongAdder();
+        private final LongAccumulator max = new LongAccumulator(Math::max, 0);
+
+        private HistogramImpl() {
+            for (int i = 0; i < this.buckets.length; i++)
+                this.buckets[i] = new LongAdder();
+        }
+
+        @Override
+        public void record(long value) {
+            if (value < 0)
+                value = 0;
+            this.buckets[64 - Long.numberOfLeadingZeros(value)].increment();
+            this.sum.add(value);
+            this.max.accumulate(value);
+        }
+
+        @Override
+        public long getCount() {
+            long ret = 0;
+            for (LongAdder bucket : this.buckets)
+                ret += bucket.sum();
+            return ret;
+        }
+
+        @Override
+        public long getSum() {
+            return this.sum.sum();
+        }
+
+        @Override
+        public long getMax() {
+            return this.max.get();
+        }
+
+        @Override
+        public long getPercentile(double percentile) {
+            long[] counts = new long[this.buckets.length];
+            long total = 0;
+            for (int i = 0; i < counts.length; i++)
+                total += counts[i] = this.buckets[i].sum();
+            if (total == 0)
+                return 0;
+
+            long rank = Math.max(1, (long) Math.ceil(total * percentile / 100));
+            for (int i = 0; i < counts.length; i++) {
+                rank -= counts[i];
+                if (rank <= 0)
+                    return Math.min((1L << i) - 1, getMax());
+            }
+            return getMax();
+        }
+
+        private void reset() {
+            for (LongAdder bucket : this.buckets)
+                bucket.reset();
+            this.sum.reset();
+            this.max.reset();
+        }
+    }
+
+    /**
+     * Hands out shared counters and histograms that ignore everything, so that recording into them is next to free.
+     */
+    private static class Disabled implements Metrics, Counter, Histogram {
+        @Override
+        public boolean isEnabled() {
+            return false;
+        }
+
+        @Override
+        public Counter counter(String name) {
+            return this;
+        }
+
+        @Override
+        public Histogram histogram(String name) {
+            return this;
+        }
+
+        @Override
+        public Map<String, Long> getCounters() {
+            return Collections.emptyMap();
+        }
+
+        @Override
+        public Map<String, Histogram> getHistograms() {
+            return Collections.emptyMap();
+        }
+
+        @Override
+        public void reset() {}
+
+        @Override
+        public void increment() {}
+
+        @Override
+        public void add(long value) {}
+
+        @Override
+        public void record(long value) {}
+
+        @Override
+        public long get() {
+            return 0;
+        }
+
+        @Override
+        public long getCount() {
+            return 0;
+        }
+
+        @Override
+        public long getSum() {
+            return 0;
+        }
+
+        @Override
+        public long getMax() {
+            return 0;
+        }
+
+        @Override
+        public long getPercentile(double percentile) {
+            return 0;
+        }
+
+        @Override
+        public String toString() {
+            return "Metrics are disabled";
+        }
+    }
+}
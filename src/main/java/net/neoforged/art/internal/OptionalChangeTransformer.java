@@ -10,15 +10,22 @@ import org.objectweb.asm.ClassReader;
 import org.objectweb.asm.ClassVisitor;
 import org.objectweb.asm.ClassWriter;
 
+import java.io.DataOutput;
+import java.io.IOException;
 import java.util.function.Function;
 
-abstract class OptionalChangeTransformer implements Transformer {
+abstract class OptionalChangeTransformer implements Transformer.ClassVisitorTransformer, IncrementalTransformer {
     protected final Function<ClassVisitor, ClassFixer> fixerFactory;
 
     protected OptionalChangeTransformer(Function<ClassVisitor, ClassFixer> fixerFactory) {
         this.fixerFactory = fixerFactory;
     }
 
+    @Override
+    public void fingerprint(DataOutput out) throws IOException {
+        // Fixers only depend on the class they fix, subclasses with a configuration add it
+    }
+
     @Override
     public ClassEntry process(ClassEntry entry) {
         ClassReader reader = new ClassReader(entry.getData());
@@ -33,6 +40,16 @@ abstract class OptionalChangeTransformer implements Transformer {
         return ClassEntry.create(entry.getName(), entry.getTime(), writer.toByteArray());
     }
 
+    @Override
+    public ClassVisitor createVisitor(ClassEntry entry, ClassReader reader, ClassVisitor parent) {
+        return fixerFactory.apply(parent);
+    }
+
+    @Override
+    public boolean madeChange(ClassVisitor visitor) {
+        return ((ClassFixer) visitor).madeChange();
+    }
+
     protected abstract static class ClassFixer extends ClassVisitor {
         protected boolean madeChange = false;
 
@@ -72,6 +72,7 @@ public class RecordFixer extends OptionalChangeTransformer {
                     this.madeChange = true;
                 }
             }
+            super.visitEnd();
         }
 
         private static class Entry {
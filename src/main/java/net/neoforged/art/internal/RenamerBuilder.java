@@ -8,21 +8,39 @@ package net.neoforged.art.internal;
 import java.io.File;
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
 import java.util.function.Consumer;
+import java.util.zip.Deflater;
 import net.neoforged.art.api.ClassProvider;
+import net.neoforged.art.api.Metrics;
 import net.neoforged.art.api.Renamer;
 import net.neoforged.art.api.Renamer.Builder;
 import net.neoforged.art.api.Transformer;
 import net.neoforged.srgutils.IMappingFile;
+import org.jetbrains.annotations.Nullable;
 
 import static java.util.Objects.requireNonNull;
 
 public class RenamerBuilder implements Builder {
     private final List<File> libraries = new ArrayList<>();
+    @Nullable
+    private File libraryCache;
     private final List<ClassProvider> classProviders = new ArrayList<>();
     private final List<Transformer.Factory> transformerFactories = new ArrayList<>();
     private int threads = Runtime.getRuntime().availableProcessors();
+    @Nullable
+    private ExecutorService executor;
+    private int streamingWindow = 0;
+    private int compressionLevel = Deflater.DEFAULT_COMPRESSION;
+    private final Map<String, Integer> extensionCompressionLevels = new HashMap<>();
+    private boolean incremental = false;
+    @Nullable
+    private Consumer<? super Renamer.Stats> stats;
+    private Metrics metrics = Metrics.disabled();
     private boolean withJvmClasspath = false;
     private Consumer<String> logger = System.out::println;
     private Consumer<String> debug = s -> {};
@@ -44,6 +62,12 @@ public class RenamerBuilder implements Builder {
         return this;
     }
 
+    @Override
+    public Builder libraryCache(File directory) {
+        this.libraryCache = requireNonNull(directory, "directory");
+        return this;
+    }
+
     @Override
     public Builder addClassProvider(ClassProvider classProvider) {
         this.classProviders.add(classProvider);
@@ -75,6 +99,59 @@ public class RenamerBuilder implements Builder {
         return this;
     }
 
+    @Override
+    public Builder executor(ExecutorService executor) {
+        this.executor = requireNonNull(executor, "executor");
+        return this;
+    }
+
+    @Override
+    public Builder streaming(int window) {
+        if (window < 0)
+            throw new IllegalArgumentException("Streaming window must not be negative: " + window);
+        this.streamingWindow = window;
+        return this;
+    }
+
+    @Override
+    public Builder compression(int level) {
+        this.compressionLevel = checkCompressionLevel(level);
+        return this;
+    }
+
+    @Override
+    public Builder compression(String extension, int level) {
+        requireNonNull(extension, "extension");
+        if (extension.startsWith("."))
+            extension = extension.substring(1);
+        this.extensionCompressionLevels.put(extension.toLowerCase(Locale.ROOT), checkCompressionLevel(level));
+        return this;
+    }
+
+    private static int checkCompressionLevel(int level) {
+        if (level != STORED && (level < Deflater.DEFAULT_COMPRESSION || level > Deflater.BEST_COMPRESSION))
+            throw new IllegalArgumentException("Invalid compression level: " + level);
+        return level;
+    }
+
+    @Override
+    public Builder incremental(boolean value) {
+        this.incremental = value;
+        return this;
+    }
+
+    @Override
+    public Builder stats(Consumer<? super Renamer.Stats> consumer) {
+        this.stats = requireNonNull(consumer, "consumer");
+        return this;
+    }
+
+    @Override
+    public Builder metrics(Metrics metrics) {
+        this.metrics = requireNonNull(metrics, "metrics");
+        return this;
+    }
+
     @Override
     public Builder logger(Consumer<String> out) {
         this.logger = requireNonNull(out, "out");
@@ -99,7 +176,7 @@ public class RenamerBuilder implements Builder {
         if (this.withJvmClasspath)
             classProviders.add(ClassProvider.fromJvmClasspath());
 
-        SortedClassProvider sortedClassProvider = new SortedClassProvider(classProviders, this.debug);
+        SortedClassProvider sortedClassProvider = new SortedClassProvider(classProviders, this.debug, this.metrics);
         final Transformer.Context ctx = new Transformer.Context() {
             @Override
             public Consumer<String> getLog() {
@@ -115,12 +192,20 @@ public class RenamerBuilder implements Builder {
             public ClassProvider getClassProvider() {
                 return sortedClassProvider;
             }
+
+            @Override
+            public Metrics getMetrics() {
+                return metrics;
+            }
         };
 
         final List<Transformer> transformers = new ArrayList<>(transformerFactories.size());
         for (Transformer.Factory factory : transformerFactories) {
             transformers.add(requireNonNull(factory.create(ctx), "output of " + factory));
         }
-        return new RenamerImpl(libraries, transformers, sortedClassProvider, classProviders, threads, logger, debug);
+        // Transformers that work on class visitors share a single read and write of every class,
+        // unless stats are collected, which time every transformer on its own
+        return new RenamerImpl(libraries, libraryCache, stats == null ? FusedClassTransformer.fuse(transformers) : transformers, sortedClassProvider, classProviders, threads, executor, streamingWindow,
+                compressionLevel, new HashMap<>(extensionCompressionLevels), incremental, stats, metrics, logger, debug);
     }
 }
@@ -6,82 +6,129 @@
 package net.neoforged.art.internal;
 
 import net.neoforged.art.api.ClassProvider;
+import net.neoforged.art.api.Metrics;
 import net.neoforged.art.api.Renamer;
 import net.neoforged.art.api.Transformer;
 import net.neoforged.art.api.Transformer.ClassEntry;
 import net.neoforged.art.api.Transformer.Entry;
 import net.neoforged.cliutils.JarUtils;
 import net.neoforged.cliutils.progress.ProgressReporter;
+import org.jetbrains.annotations.Nullable;
 import org.objectweb.asm.Opcodes;
 
 import java.io.BufferedOutputStream;
-import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.IOException;
-import java.io.InputStream;
-import java.io.OutputStream;
+import java.io.UncheckedIOException;
 import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Collections;
-import java.util.Enumeration;
+import java.util.Comparator;
+import java.util.Deque;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
+import java.util.TreeSet;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.Consumer;
 import java.util.stream.Collectors;
-import java.util.zip.ZipEntry;
-import java.util.zip.ZipFile;
-import java.util.zip.ZipOutputStream;
+import java.util.stream.Stream;
 
 class RenamerImpl implements Renamer {
     private static final ProgressReporter PROGRESS = ProgressReporter.getDefault();
     static final int MAX_ASM_VERSION = Opcodes.ASM9;
     private static final String MANIFEST_NAME = "META-INF/MANIFEST.MF";
+    /**
+     * Marks output directories written by the renamer, which are the only existing directories it replaces.
+     */
+    private static final String OUTPUT_MARKER = ".art-output";
     private final List<File> libraries;
+    @Nullable
+    private final File libraryCache;
     private final List<Transformer> transformers;
     private final SortedClassProvider sortedClassProvider;
     private final List<ClassProvider> classProviders;
     private final int threads;
+    @Nullable
+    private final ExecutorService executor;
+    private final int streamingWindow;
+    private final int compressionLevel;
+    private final Map<String, Integer> extensionCompressionLevels;
+    private final boolean incremental;
+    @Nullable
+    private final Consumer<? super Renamer.Stats> stats;
+    private final Metrics metrics;
     private final Consumer<String> logger;
     private final Consumer<String> debug;
     private boolean setup = false;
     private ClassProvider libraryClasses;
 
-    RenamerImpl(List<File> libraries, List<Transformer> transformers, SortedClassProvider sortedClassProvider, List<ClassProvider> classProviders,
-                int threads, Consumer<String> logger, Consumer<String> debug) {
+    RenamerImpl(List<File> libraries, @Nullable File libraryCache, List<Transformer> transformers, SortedClassProvider sortedClassProvider, List<ClassProvider> classProviders,
+                int threads, @Nullable ExecutorService executor, int streamingWindow, int compressionLevel, Map<String, Integer> extensionCompressionLevels,
+                boolean incremental, @Nullable Consumer<? super Renamer.Stats> stats, Metrics metrics, Consumer<String> logger, Consumer<String> debug) {
         this.libraries = libraries;
+        this.libraryCache = libraryCache;
         this.transformers = transformers;
         this.sortedClassProvider = sortedClassProvider;
         this.classProviders = Collections.unmodifiableList(classProviders);
         this.threads = threads;
+        this.executor = executor;
+        this.streamingWindow = streamingWindow;
+        this.compressionLevel = compressionLevel;
+        this.extensionCompressionLevels = extensionCompressionLevels;
+        this.incremental = incremental;
+        this.stats = stats;
+        this.metrics = metrics;
         this.logger = logger;
         this.debug = debug;
     }
 
-    private void setup() {
+    private void setup(@Nullable RenamerStats stats) {
         if (this.setup)
             return;
 
         this.setup = true;
 
-        ClassProvider.Builder libraryClassesBuilder = ClassProvider.builder().shouldCacheAll(true);
+        StageTimer timer = new StageTimer(stats);
+        ClassProvider.Builder libraryClassesBuilder = ClassProvider.builder().shouldCacheAll(true).metrics(this.metrics);
+        if (this.libraryCache != null)
+            libraryClassesBuilder.cacheDirectory(this.libraryCache.toPath());
         this.logger.accept("Adding Libraries to Inheritance");
         this.libraries.forEach(f -> libraryClassesBuilder.addLibrary(f.toPath()));
 
         this.libraryClasses = libraryClassesBuilder.build();
+        timer.next(RenamerStats.LIBRARIES);
+    }
+
+    @Nullable
+    private RenamerStats createStats() {
+        return this.stats == null ? null : new RenamerStats(this.transformers);
+    }
+
+    private void reportStats(@Nullable RenamerStats stats) {
+        if (stats != null) {
+            stats.finish();
+            this.stats.accept(stats);
+        }
     }
 
     @Override
     public void run(File input, File output) {
-        if (!this.setup)
-            this.setup();
+        RenamerStats stats = createStats();
+        setup(stats);
 
-        if (Boolean.getBoolean(ProgressReporter.ENABLED_PROPERTY)) {
+        if (Boolean.getBoolean(ProgressReporter.ENABLED_PROPERTY) && !input.isDirectory()) {
             try {
                 PROGRESS.setMaxProgress(JarUtils.getFileCountInZip(input));
             } catch (IOException e) {
@@ -95,89 +142,239 @@ class RenamerImpl implements Renamer {
         if (!input.exists())
             throw new IllegalArgumentException("Input file not found: " + input.getAbsolutePath());
 
+        boolean directoryInput = input.isDirectory();
+        boolean directoryOutput = isDirectoryOutput(input, output);
+        if (directoryOutput && output.exists() && !isReplaceable(input, output))
+            throw new IllegalArgumentException("Refusing to replace output directory that was not written by the renamer: " + output.getAbsolutePath());
+        if (this.incremental && (directoryInput || directoryOutput))
+            logger.accept("Incremental runs are only supported between JAR files, processing all entries");
+        if (this.streamingWindow > 0) {
+            if (!directoryInput && !directoryOutput) {
+                runStreaming(input, output, stats);
+                reportStats(stats);
+                return;
+            }
+            logger.accept("Streaming is only supported between JAR files, processing directory normally");
+        }
+
         logger.accept("Reading Input: " + input.getAbsolutePath());
-        PROGRESS.setStep("Reading input jar");
-        // Read everything from the input jar!
-        List<Entry> oldEntries = new ArrayList<>();
-        try (ZipFile in = new ZipFile(input)) {
-            int amount = 0;
-            for (Enumeration<? extends ZipEntry> entries = in.entries(); entries.hasMoreElements(); ) {
-                final ZipEntry e = entries.nextElement();
-                if (e.isDirectory())
-                    continue;
-                String name = e.getName();
-                byte[] data;
-                try (InputStream entryInput = in.getInputStream(e)) {
-                    data = readAllBytes(entryInput, e.getSize());
+        PROGRESS.setStep(directoryInput ? "Reading input directory" : "Reading input jar");
+        // Read everything from the input jar! Entries are only inflated once something needs their data.
+        // The input stays open until the output is written, so that unchanged entries can be copied without recompressing them.
+        ExecutorService asyncService = createExecutor();
+        StageTimer timer = new StageTimer(stats);
+        try (ZipReader in = directoryInput ? null : openInput(input, output);
+             IncrementalCache cache = directoryInput || directoryOutput ? null : openCache(output)) {
+            List<Entry> oldEntries;
+            if (in == null) {
+                oldEntries = readDirectory(input, new AsyncHelper(asyncService));
+            } else {
+                oldEntries = new ArrayList<>();
+                int amount = 0;
+                for (ZipReader.Record record : in.getRecords()) {
+                    if (record.isDirectory())
+                        continue;
+
+                    oldEntries.add(EntryImpl.fromZip(record));
+
+                    if ((++amount) % 10 == 0) {
+                        PROGRESS.setProgress(amount);
+                    }
                 }
+            }
 
-                oldEntries.add(Entry.ofFile(name, e.getTime(), data));
+            timer.next(RenamerStats.READ);
 
-                if ((++amount) % 10 == 0) {
-                    PROGRESS.setProgress(amount);
-                }
-            }
-        } catch (IOException e) {
-            throw new RuntimeException("Could not parse input: " + input.getAbsolutePath(), e);
-        }
+            List<Entry> newEntries = await(run(oldEntries, asyncService, cache, stats));
 
-        List<Entry> newEntries = run(oldEntries);
+            timer.restart();
+            Set<String> seen = new HashSet<>();
+            String dupes = newEntries.stream().map(Entry::getName)
+                    .filter(n -> !seen.add(n))
+                    .sorted()
+                    .collect(Collectors.joining(", "));
+            if (!dupes.isEmpty())
+                throw new IllegalStateException("Duplicate entries detected: " + dupes);
+            timer.next(RenamerStats.DEDUPE);
 
-        Set<String> seen = new HashSet<>();
-        String dupes = newEntries.stream().map(Entry::getName)
-                .filter(n -> !seen.add(n))
-                .sorted()
-                .collect(Collectors.joining(", "));
-        if (!dupes.isEmpty())
-            throw new IllegalStateException("Duplicate entries detected: " + dupes);
+            PROGRESS.setMaxProgress(newEntries.size());
+            PROGRESS.setStep("Writing output");
 
-        seen.clear();
+            logger.accept("Writing " + newEntries.size() + " to output " + output.getAbsolutePath());
+            if (directoryOutput)
+                writeDirectory(output, newEntries, asyncService);
+            else
+                writeOutput(output, newEntries, asyncService);
+            timer.next(RenamerStats.WRITE);
 
-        PROGRESS.setMaxProgress(newEntries.size());
-        PROGRESS.setStep("Writing output");
+            if (cache != null)
+                saveCache(cache);
+        } catch (IOException e) {
+            throw new RuntimeException("Could not parse input: " + input.getAbsolutePath(), e);
+        } finally {
+            shutdownExecutor(asyncService);
+        }
+        reportStats(stats);
+    }
 
+    /**
+     * Writes the given, already sorted, entries to the output.
+     * <p>
+     * Entries are compressed on the executor, a bounded number ahead of the writer, while a single thread appends
+     * them to the file in order. Deflating the same data gives the same bytes no matter which thread does it,
+     * so the output stays reproducible.
+     */
+    private void writeOutput(File output, List<Entry> entries, ExecutorService executorService) {
         if (!output.getParentFile().exists())
             output.getParentFile().mkdirs();
 
-        logger.accept("Writing " + newEntries.size() + " to output " + output.getAbsolutePath());
-        try (OutputStream fos = new BufferedOutputStream(Files.newOutputStream(output.toPath()));
-             ZipOutputStream zos = new ZipOutputStream(fos)) {
-
-            int amount = 0;
-            for (Entry e : newEntries) {
-                String name = e.getName();
-                int idx = name.lastIndexOf('/');
-                if (idx != -1)
-                    addDirectory(zos, seen, name.substring(0, idx));
-
-                debug.accept("  " + name);
-                ZipEntry entry = new ZipEntry(name);
-                entry.setTime(e.getTime());
-                zos.putNextEntry(entry);
-                zos.write(e.getData());
-                zos.closeEntry();
-
-                if ((++amount) % 10 == 0) {
-                    PROGRESS.setProgress(amount);
+        // Write to a temporary file first, as the input is kept open while writing and may be the output itself.
+        File tmp = new File(output.getParentFile(), output.getName() + ".tmp");
+        try {
+            try (ZipWriter zip = createWriter(tmp)) {
+                AsyncHelper async = new AsyncHelper(executorService);
+                int ahead = Math.max(16, this.threads * 4);
+                Deque<CompletableFuture<ZipWriter.Prepared>> window = new ArrayDeque<>(ahead);
+                Set<String> seen = new HashSet<>();
+                int amount = 0;
+                for (Entry e : entries) {
+                    if (window.size() >= ahead) {
+                        writeEntry(zip, seen, await(window.poll()));
+                        if ((++amount) % 10 == 0) {
+                            PROGRESS.setProgress(amount);
+                        }
+                    }
+                    window.add(async.submitInvoke(e, Entry::getName, en -> prepareEntry(zip, en)));
+                }
+                while (!window.isEmpty()) {
+                    writeEntry(zip, seen, await(window.poll()));
+                    if ((++amount) % 10 == 0) {
+                        PROGRESS.setProgress(amount);
+                    }
                 }
-            }
 
-            PROGRESS.setProgress(amount);
+                PROGRESS.setProgress(amount);
+            }
+            Files.move(tmp.toPath(), output.toPath(), StandardCopyOption.REPLACE_EXISTING);
         } catch (IOException e) {
             throw new RuntimeException("Could not write output to file: " + output.getAbsolutePath(), e);
+        } finally {
+            tmp.delete();
+        }
+    }
+
+    /**
+     * The output is only written as a directory if the input is one. It is then written as a directory if it already
+     * is one, or if it doesn't exist yet and is not named like a JAR or ZIP file.
+     */
+    private static boolean isDirectoryOutput(File input, File output) {
+        if (!input.isDirectory()) {
+            if (output.isDirectory())
+                throw new IllegalArgumentException("Output is a directory, but the input is not: " + output.getAbsolutePath());
+            return false;
+        }
+        if (output.exists())
+            return output.isDirectory();
+        String name = output.getName().toLowerCase(Locale.ROOT);
+        return !name.endsWith(".jar") && !name.endsWith(".zip");
+    }
+
+    /**
+     * Returns whether the given existing output directory may be replaced as a whole, which is only the case if it is
+     * the input itself, is empty, or was written by an earlier run.
+     */
+    private static boolean isReplaceable(File input, File output) {
+        if (input.equals(output) || new File(output, OUTPUT_MARKER).isFile())
+            return true;
+        String[] files = output.list();
+        return files != null && files.length == 0;
+    }
+
+    private List<Entry> readDirectory(File input, AsyncHelper async) throws IOException {
+        Path root = input.toPath();
+        List<Path> files;
+        try (Stream<Path> walk = Files.walk(root)) {
+            files = walk.filter(Files::isRegularFile)
+                    .filter(f -> !f.getParent().equals(root) || !f.getFileName().toString().equals(OUTPUT_MARKER))
+                    .sorted()
+                    .collect(Collectors.toList());
+        }
+
+        return await(async.submitInvokeAll(files, Path::toString, file -> {
+            String name = root.relativize(file).toString().replace(File.separatorChar, '/');
+            try {
+                return Entry.ofFile(name, Files.getLastModifiedTime(file).toMillis(), Files.readAllBytes(file));
+            } catch (IOException e) {
+                throw new UncheckedIOException("Could not read file " + file, e);
+            }
+        }));
+    }
+
+    /**
+     * Writes the given entries as files into the output directory, in parallel on the executor.
+     * <p>
+     * Like the output JAR, the output directory is replaced as a whole, so that it only ever contains the output
+     * of this run. The files are written to a new temporary directory first, as the output may be the input itself.
+     * The output is marked with {@link #OUTPUT_MARKER}, so that later runs know they may replace it.
+     */
+    private void writeDirectory(File output, List<Entry> entries, ExecutorService executorService) {
+        Path target = output.toPath();
+        Path tmp = null;
+        try {
+            Files.createDirectories(target.toAbsolutePath().getParent());
+            tmp = Files.createTempDirectory(target.toAbsolutePath().getParent(), target.getFileName() + ".");
+            Path root = tmp;
+
+            AtomicInteger amount = new AtomicInteger();
+            await(new AsyncHelper(executorService).submitConsumeAll(entries, Entry::getName, e -> {
+                Path file = root.resolve(e.getName()).normalize();
+                if (!file.startsWith(root) || file.equals(root))
+                    throw new IllegalArgumentException("Entry would be written outside of the output directory: " + e.getName());
+
+                debug.accept("  " + e.getName());
+                try {
+                    Files.createDirectories(file.getParent());
+                    Files.write(file, e.getData());
+                    Files.setLastModifiedTime(file, FileTime.fromMillis(e.getTime()));
+                } catch (IOException ex) {
+                    throw new UncheckedIOException("Could not write file " + file, ex);
+                }
+
+                int done = amount.incrementAndGet();
+                if (done % 10 == 0)
+                    PROGRESS.setProgress(done);
+            }));
+            PROGRESS.setProgress(amount.get());
+            Files.write(root.resolve(OUTPUT_MARKER), new byte[0]);
+
+            deleteDirectory(target);
+            Files.move(tmp, target);
+        } catch (IOException e) {
+            throw new RuntimeException("Could not write output to directory: " + output.getAbsolutePath(), e);
+        } finally {
+            try {
+                if (tmp != null)
+                    deleteDirectory(tmp);
+            } catch (IOException e) {
+                logger.accept("Failed to delete temporary directory " + tmp + ": " + e);
+            }
+        }
+    }
+
+    private static void deleteDirectory(Path dir) throws IOException {
+        if (!Files.exists(dir))
+            return;
+
+        try (Stream<Path> walk = Files.walk(dir)) {
+            // Reverse order so that files are deleted before their parent directories
+            for (Path path : walk.sorted(Comparator.reverseOrder()).collect(Collectors.toList()))
+                Files.delete(path);
         }
     }
 
     @Override
     public List<Entry> run(List<Entry> entries) {
-        ExecutorService asyncService;
-        if (threads <= 0)
-            throw new IllegalArgumentException("Really.. no threads to process things? What do you want me to use a genie?");
-        else if (threads == 1)
-            asyncService = Executors.newSingleThreadExecutor();
-        else
-            asyncService = Executors.newWorkStealingPool(threads);
-
+        ExecutorService asyncService = createExecutor();
         try {
             return run(entries, asyncService).get();
         } catch (ExecutionException e) {
@@ -186,19 +383,21 @@ class RenamerImpl implements Renamer {
             Thread.currentThread().interrupt();
             throw new RuntimeException(e);
         } finally {
-            asyncService.shutdown();
+            shutdownExecutor(asyncService);
         }
     }
 
     @Override
     public CompletableFuture<List<Entry>> run(List<Entry> oldEntries, ExecutorService executorService) {
-        if (!this.setup)
-            this.setup();
+        RenamerStats stats = createStats();
+        return run(oldEntries, executorService, null, stats).thenApply(newEntries -> {
+            reportStats(stats);
+            return newEntries;
+        });
+    }
 
-        this.sortedClassProvider.clearCache();
-        ArrayList<ClassProvider> classProviders = new ArrayList<>(this.classProviders);
-        classProviders.add(0, this.libraryClasses);
-        this.sortedClassProvider.classProviders = classProviders;
+    private CompletableFuture<List<Entry>> run(List<Entry> oldEntries, ExecutorService executorService, @Nullable IncrementalCache cache, @Nullable RenamerStats stats) {
+        List<ClassProvider> classProviders = prepareClassProviders(stats);
 
         AsyncHelper async = new AsyncHelper(executorService);
 
@@ -215,64 +414,327 @@ class RenamerImpl implements Renamer {
         logger.accept("Adding input to inheritance map");
 
         ClassProvider.Builder inputClassesBuilder = ClassProvider.builder();
+        StageTimer timer = new StageTimer(stats);
 
         return async
                 .submitConsumeAll(ourClasses, ClassEntry::getClassName, c ->
                         inputClassesBuilder.addClass(c.getName().substring(0, c.getName().length() - 6), c.getData())
                 )
-                .thenRun(() -> classProviders.add(0, inputClassesBuilder.build()))
+                .thenRun(() -> {
+                    classProviders.add(0, inputClassesBuilder.build());
+                    timer.next(RenamerStats.INDEX);
+                })
+                .thenCompose(ignored -> prepareTransformers(ourClasses.stream().map(ClassEntry::getClassName).collect(Collectors.toList()), executorService))
                 .thenCompose(ignored -> {
+                    timer.next(RenamerStats.PREPARE);
                     // Process everything
                     logger.accept("Processing " + oldEntries.size() + " entries");
 
-                    return async.submitInvokeAll(oldEntries, Entry::getName, this::processEntry);
+                    return async.submitInvokeAll(oldEntries, Entry::getName, e -> processEntry(e, cache, stats));
                 })
                 .thenApply(newEntries -> {
+                    timer.next(RenamerStats.PROCESS);
+                    logSkippedClasses();
                     logger.accept("Adding extras");
                     transformers.forEach(t -> newEntries.addAll(t.getExtras()));
+                    timer.next(RenamerStats.EXTRAS);
 
                     // We care about stable output, so sort, and single thread write.
                     logger.accept("Sorting");
                     newEntries.sort(this::compare);
+                    timer.next(RenamerStats.SORT);
 
                     return newEntries;
                 });
     }
 
-    private byte[] readAllBytes(InputStream in, long size) throws IOException {
-        // This program will crash if size exceeds MAX_INT anyway since arrays are limited to 32-bit indices
-        ByteArrayOutputStream tmp = new ByteArrayOutputStream(size >= 0 ? (int) size : 0);
+    /**
+     * Streaming variant of {@link #run(File, File)}.
+     * <p>
+     * The input is read twice: once to add the input classes to the inheritance map, and once to feed the entries
+     * through the transformers. Entries are submitted in sorted input name order, at most {@link #streamingWindow}
+     * at a time, and written in that same order as soon as the head of the window is done. This keeps the output
+     * stable while only ever holding a window's worth of entries in memory.
+     */
+    private void runStreaming(File input, File output, @Nullable RenamerStats stats) {
+        if (!output.getParentFile().exists())
+            output.getParentFile().mkdirs();
 
-        byte[] buffer = new byte[8192];
-        int read;
-        while ((read = in.read(buffer)) != -1) {
-            tmp.write(buffer, 0, read);
+        // Write to a temporary file first, as the input is kept open while writing and may be the output itself.
+        File tmp = new File(output.getParentFile(), output.getName() + ".tmp");
+        ExecutorService asyncService = createExecutor();
+        StageTimer timer = new StageTimer(stats);
+        try (ZipReader in = openInput(input, output);
+             IncrementalCache cache = openCache(output)) {
+            List<ZipReader.Record> entries = in.getRecords().stream()
+                    .filter(e -> !e.isDirectory())
+                    .sorted((a, b) -> compare(a.getName(), b.getName()))
+                    .collect(Collectors.toList());
+            timer.next(RenamerStats.READ);
+
+            List<ClassProvider> classProviders = prepareClassProviders(stats);
+            AsyncHelper async = new AsyncHelper(asyncService);
+
+            PROGRESS.setProgress(0);
+            PROGRESS.setIndeterminate(true);
+            PROGRESS.setStep("Processing entries");
+
+            List<ZipReader.Record> ourClasses = entries.stream()
+                    .filter(e -> e.getName().endsWith(".class") && !e.getName().startsWith("META-INF/"))
+                    .collect(Collectors.toList());
+
+            logger.accept("Adding input to inheritance map");
+            ClassProvider.Builder inputClassesBuilder = ClassProvider.builder();
+            await(async.submitConsumeAll(ourClasses, ZipReader.Record::getName, e ->
+                    inputClassesBuilder.addClass(e.getName().substring(0, e.getName().length() - 6), readEntry(e))
+            ));
+            classProviders.add(0, inputClassesBuilder.build());
+            timer.next(RenamerStats.INDEX);
+            await(prepareTransformers(ourClasses.stream().map(e -> e.getName().substring(0, e.getName().length() - 6)).collect(Collectors.toList()), asyncService));
+            timer.next(RenamerStats.PREPARE);
+
+            PROGRESS.setIndeterminate(false);
+            PROGRESS.setMaxProgress(entries.size());
+
+            logger.accept("Processing " + entries.size() + " entries to output " + output.getAbsolutePath() + " (window: " + this.streamingWindow + ")");
+            Set<String> dupes = new TreeSet<>();
+            try (ZipWriter zip = createWriter(tmp)) {
+                Set<String> seen = new HashSet<>();
+                Set<String> names = new HashSet<>();
+                Deque<CompletableFuture<ZipWriter.Prepared>> window = new ArrayDeque<>(this.streamingWindow);
+
+                int amount = 0;
+                for (ZipReader.Record e : entries) {
+                    if (window.size() >= this.streamingWindow) {
+                        ZipWriter.Prepared prepared = await(window.poll());
+                        // Written while the next entries are still processed, so this overlaps the process stage
+                        long write = System.nanoTime();
+                        writeStreamed(zip, seen, names, dupes, prepared);
+                        if (stats != null)
+                            stats.stage(RenamerStats.WRITE, write);
+                        if ((++amount) % 10 == 0) {
+                            PROGRESS.setProgress(amount);
+                        }
+                    }
+                    window.add(async.submitInvoke(e, ZipReader.Record::getName, r -> {
+                        Entry entry = processEntry(EntryImpl.fromZip(r), cache, stats);
+                        return entry == null ? null : prepareEntry(zip, entry);
+                    }));
+                }
+                while (!window.isEmpty()) {
+                    ZipWriter.Prepared prepared = await(window.poll());
+                    long write = System.nanoTime();
+                    writeStreamed(zip, seen, names, dupes, prepared);
+                    if (stats != null)
+                        stats.stage(RenamerStats.WRITE, write);
+                    if ((++amount) % 10 == 0) {
+                        PROGRESS.setProgress(amount);
+                    }
+                }
+                PROGRESS.setProgress(amount);
+                timer.next(RenamerStats.PROCESS);
+                logSkippedClasses();
+
+                logger.accept("Adding extras");
+                List<Entry> extras = new ArrayList<>();
+                transformers.forEach(t -> extras.addAll(t.getExtras()));
+                timer.next(RenamerStats.EXTRAS);
+                extras.sort(this::compare);
+                timer.next(RenamerStats.SORT);
+                for (Entry e : extras)
+                    writeStreamed(zip, seen, names, dupes, prepareEntry(zip, e));
+            }
+
+            if (!dupes.isEmpty())
+                throw new IllegalStateException("Duplicate entries detected: " + String.join(", ", dupes));
+
+            Files.move(tmp.toPath(), output.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            timer.next(RenamerStats.WRITE);
+            if (cache != null)
+                saveCache(cache);
+        } catch (IOException e) {
+            throw new RuntimeException("Could not process input " + input.getAbsolutePath() + " to output " + output.getAbsolutePath(), e);
+        } finally {
+            shutdownExecutor(asyncService);
+            tmp.delete();
         }
+    }
+
+    private void writeStreamed(ZipWriter zip, Set<String> seen, Set<String> names, Set<String> dupes, ZipWriter.Prepared e) throws IOException {
+        if (e == null)
+            return;
+        if (!names.add(e.getName())) {
+            dupes.add(e.getName());
+            return;
+        }
+        writeEntry(zip, seen, e);
+    }
+
+    private void writeEntry(ZipWriter zip, Set<String> seen, ZipWriter.Prepared e) throws IOException {
+        String name = e.getName();
+        int idx = name.lastIndexOf('/');
+        if (idx != -1)
+            addDirectory(zip, seen, name.substring(0, idx));
+
+        debug.accept("  " + name);
+        zip.write(e);
+    }
+
+    private static ZipWriter.Prepared prepareEntry(ZipWriter zip, Entry e) {
+        try {
+            // Entries that went through every transformer unchanged are still the entry that was read,
+            // so their compressed data can be copied over without inflating and deflating it again.
+            ZipReader.Record source = e instanceof EntryImpl ? ((EntryImpl) e).getSource() : null;
+            if (source != null && zip.canCopy(e.getName(), source))
+                return zip.prepareRaw(e.getName(), e.getTime(), source);
+            return zip.prepare(e.getName(), e.getTime(), e.getData());
+        } catch (IOException ex) {
+            throw new UncheckedIOException("Could not prepare entry " + e.getName(), ex);
+        }
+    }
+
+    private List<ClassProvider> prepareClassProviders(@Nullable RenamerStats stats) {
+        setup(stats);
+
+        this.sortedClassProvider.clearCache();
+        ArrayList<ClassProvider> classProviders = new ArrayList<>(this.classProviders);
+        classProviders.add(0, this.libraryClasses);
+        this.sortedClassProvider.classProviders = classProviders;
+        return classProviders;
+    }
+
+    @Nullable
+    private IncrementalCache openCache(File output) throws IOException {
+        return this.incremental ? IncrementalCache.open(output, this.transformers, this.logger) : null;
+    }
+
+    private void logSkippedClasses() {
+        for (Transformer transformer : this.transformers) {
+            List<? extends Transformer> members = transformer instanceof FusedClassTransformer
+                    ? ((FusedClassTransformer) transformer).getTransformers()
+                    : Collections.singletonList(transformer);
+            for (Transformer member : members) {
+                if (member instanceof RenamingTransformer) {
+                    RenamingTransformer renaming = (RenamingTransformer) member;
+                    if (renaming.getProcessedClasses() != 0)
+                        logger.accept("Skipped remapping " + renaming.getSkippedClasses() + " of " + renaming.getProcessedClasses() + " classes that reference nothing mapped");
+                }
+            }
+        }
+    }
+
+    private void saveCache(IncrementalCache cache) {
+        logger.accept("Copied " + cache.getReused() + " of " + cache.getRecorded() + " classes from the previous output");
+        try {
+            cache.save();
+        } catch (IOException e) {
+            // The next run just processes everything again
+            logger.accept("Failed to write incremental cache: " + e);
+        }
+    }
+
+    private ExecutorService createExecutor() {
+        if (this.executor != null)
+            return this.executor;
+
+        if (threads <= 0)
+            throw new IllegalArgumentException("Really.. no threads to process things? What do you want me to use a genie?");
+        else if (threads == 1)
+            return Executors.newSingleThreadExecutor();
+        else
+            return Executors.newWorkStealingPool(threads);
+    }
+
+    private void shutdownExecutor(ExecutorService executorService) {
+        // A configured executor is shared, and owned by whoever configured it
+        if (executorService != this.executor)
+            executorService.shutdown();
+    }
+
+    private static <T> T await(CompletableFuture<T> future) {
+        try {
+            return future.get();
+        } catch (ExecutionException e) {
+            throw new RuntimeException(e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException(e);
+        }
+    }
+
+    private ZipWriter createWriter(File output) throws IOException {
+        return new ZipWriter(new BufferedOutputStream(Files.newOutputStream(output.toPath())), this.compressionLevel, this.extensionCompressionLevels);
+    }
+
+    private static ZipReader openInput(File input, File output) throws IOException {
+        // A mapped file can not be replaced on every platform until the mapping is garbage collected, so don't map it if we are going to overwrite it
+        return new ZipReader(input.toPath(), !input.equals(output));
+    }
 
-        return tmp.toByteArray();
+    private static byte[] readEntry(ZipReader.Record record) {
+        try {
+            return record.read();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not read entry " + record.getName(), e);
+        }
     }
 
     // Tho Directory entries are not strictly necessary, we add them because some bad implementations of Zip extractors
     // attempt to extract files without making sure the parents exist.
-    private void addDirectory(ZipOutputStream zos, Set<String> seen, String path) throws IOException {
+    private void addDirectory(ZipWriter zip, Set<String> seen, String path) throws IOException {
         if (!seen.add(path))
             return;
 
         int idx = path.lastIndexOf('/');
         if (idx != -1)
-            addDirectory(zos, seen, path.substring(0, idx));
+            addDirectory(zip, seen, path.substring(0, idx));
 
         debug.accept("  " + path + '/');
-        ZipEntry dir = new ZipEntry(path + '/');
-        dir.setTime(Entry.STABLE_TIMESTAMP);
-        zos.putNextEntry(dir);
-        zos.closeEntry();
+        zip.addDirectory(path + '/', Entry.STABLE_TIMESTAMP);
     }
 
-    private Entry processEntry(final Entry start) {
+    private CompletableFuture<Void> prepareTransformers(List<String> classes, ExecutorService executorService) {
+        logger.accept("Preparing transformers");
+        CompletableFuture<?>[] futures = new CompletableFuture<?>[this.transformers.size()];
+        for (int i = 0; i < futures.length; i++)
+            futures[i] = this.transformers.get(i).prepare(classes, executorService);
+        return CompletableFuture.allOf(futures);
+    }
+
+    /**
+     * Processes an entry, unless it is a class that an incremental run can copy from the previous output.
+     */
+    @Nullable
+    private Entry processEntry(final Entry start, @Nullable IncrementalCache cache, @Nullable RenamerStats stats) {
+        if (cache == null || !(start instanceof ClassEntry))
+            return processEntry(start, stats);
+
+        ClassEntry cls = (ClassEntry) start;
+        Entry ret = cache.reuse(cls);
+        if (ret != null)
+            return ret;
+
+        cache.startClass();
+        ret = processEntry(start, stats);
+        cache.finishClass(cls, ret);
+        return ret;
+    }
+
+    private Entry processEntry(final Entry start, @Nullable RenamerStats stats) {
         Entry entry = start;
-        for (Transformer transformer : RenamerImpl.this.transformers) {
-            entry = entry.process(transformer);
+        for (int i = 0; i < this.transformers.size(); i++) {
+            Transformer transformer = this.transformers.get(i);
+            ArtEvents.Transform event = ArtEvents.beginTransform(transformer, entry);
+            if (stats == null) {
+                entry = entry.process(transformer);
+            } else {
+                long size = RenamerStats.size(entry);
+                long time = stats.startTransform();
+                Entry input = entry;
+                entry = entry.process(transformer);
+                stats.transformed(i, input, time, size, entry);
+            }
+            event.finish();
             if (entry == null)
                 return null;
         }
@@ -280,16 +742,53 @@ class RenamerImpl implements Renamer {
     }
 
     private int compare(Entry o1, Entry o2) {
+        return compare(o1.getName(), o2.getName());
+    }
+
+    private int compare(String o1, String o2) {
         // In order for JarInputStream to work, MANIFEST has to be the first entry, so make it first!
-        if (MANIFEST_NAME.equals(o1.getName()))
-            return MANIFEST_NAME.equals(o2.getName()) ? 0 : -1;
-        if (MANIFEST_NAME.equals(o2.getName()))
-            return MANIFEST_NAME.equals(o1.getName()) ? 0 : 1;
-        return o1.getName().compareTo(o2.getName());
+        if (MANIFEST_NAME.equals(o1))
+            return MANIFEST_NAME.equals(o2) ? 0 : -1;
+        if (MANIFEST_NAME.equals(o2))
+            return MANIFEST_NAME.equals(o1) ? 0 : 1;
+        return o1.compareTo(o2);
     }
 
     @Override
     public void close() throws IOException {
         this.sortedClassProvider.close();
     }
+
+    /**
+     * Times the consecutive stages of a run, for the stats if they are collected, and for the flight recorder.
+     */
+    private static class StageTimer {
+        @Nullable
+        private final RenamerStats stats;
+        private long start;
+        private ArtEvents.Stage event;
+
+        private StageTimer(@Nullable RenamerStats stats) {
+            this.stats = stats;
+            restart();
+        }
+
+        /**
+         * Starts the next stage, without counting the time since the previous one ended.
+         */
+        private void restart() {
+            this.start = System.nanoTime();
+            this.event = ArtEvents.beginStage();
+        }
+
+        /**
+         * Ends the current stage with the given name, and starts the next one.
+         */
+        private void next(String stage) {
+            if (this.stats != null)
+                this.stats.stage(stage, this.start);
+            this.event.finish(stage);
+            restart();
+        }
+    }
 }
@@ -0,0 +1,272 @@
+/*
+ * Copyright (c) Forge Development LLC and contributors
+ * SPDX-License-Identifier: LGPL-2.1-only
+ */
+
+package net.neoforged.art.internal;
+
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+import net.neoforged.art.api.Renamer;
+import net.neoforged.art.api.Transformer;
+import net.neoforged.art.api.Transformer.ClassEntry;
+import net.neoforged.art.api.Transformer.Entry;
+import net.neoforged.art.api.Transformer.JavadoctorEntry;
+import net.neoforged.art.api.Transformer.ManifestEntry;
+import org.jetbrains.annotations.Nullable;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Collectors;
+
+/**
+ * Collects the timings of a single run of a {@link RenamerImpl}.
+ * <p>
+ * Stages are timed by the thread that runs them, while transformer calls are counted from all threads at once.
+ * A stage can overlap others, such as writing entries while the next ones are still processed by a streaming run,
+ * so the total is the wall clock time of the whole run rather than the sum of the stages.
+ */
+class RenamerStats implements Renamer.Stats {
+    static final String READ = "read";
+    static final String LIBRARIES = "libraries";
+    static final String INDEX = "index";
+    static final String PREPARE = "prepare";
+    static final String PROCESS = "process";
+    static final String EXTRAS = "extras";
+    static final String SORT = "sort";
+    static final String DEDUPE = "dedupe";
+    static final String WRITE = "write";
+    /**
+     * All stages in the order they run in, which is the order they are reported in.
+     */
+    private static final List<String> STAGES = Arrays.asList(LIBRARIES, READ, INDEX, PREPARE, PROCESS, EXTRAS, SORT, DEDUPE, WRITE);
+
+    private static final String[] KINDS = { "class", "resource", "manifest", "javadoctor" };
+    private static final ThreadMXBean THREADS = ManagementFactory.getThreadMXBean();
+    private static final boolean CPU_TIME = THREADS.isCurrentThreadCpuTimeSupported() && THREADS.isThreadCpuTimeEnabled();
+
+    private final Map<String, Long> stages = new TreeMap<>(Comparator.comparingInt(STAGES::indexOf));
+    private final long start = System.nanoTime();
+    private long end;
+    private final List<String> transformers;
+    /**
+     * The counters of every transformer, indexed by transformer and then by kind of entry.
+     */
+    private final Counters[][] counters;
+
+    RenamerStats(List<Transformer> transformers) {
+        this.transformers = transformers.stream().map(RenamerStats::getName).collect(Collectors.toList());
+        this.counters = new Counters[transformers.size()][KINDS.length];
+        for (Counters[] transformer : this.counters) {
+            for (int i = 0; i < transformer.length; i++)
+                transformer[i] = new Counters();
+        }
+    }
+
+    /**
+     * Returns the name of the given transformer, as it is shown in the stats.
+     */
+    static String getName(Transformer transformer) {
+        if (transformer instanceof FusedClassTransformer) {
+            return ((FusedClassTransformer) transformer).getTransformers().stream()
+                .map(RenamerStats::getName)
+                .collect(Collectors.joining(", ", "Fused[", "]"));
+        }
+        String name = transformer.getClass().getSimpleName();
+        return name.isEmpty() ? transformer.getClass().getName() : name;
+    }
+
+    /**
+     * Adds the time since the given {@link System#nanoTime()} to the given stage.
+     */
+    synchronized void stage(String stage, long start) {
+        this.stages.merge(stage, System.nanoTime() - start, Long::sum);
+    }
+
+    /**
+     * Ends the run, which stops the wall clock of the total.
+     */
+    synchronized void finish() {
+        this.end = System.nanoTime();
+    }
+
+    private synchronized long getTotalTime() {
+        return (this.end == 0 ? System.nanoTime() : this.end) - this.start;
+    }
+
+    /**
+     * Returns the CPU time of the current thread, to pass to {@link #transformed(int, Entry, long, long, Entry)} afterwards.
+     */
+    long startTransform() {
+        return CPU_TIME ? THREADS.getCurrentThreadCpuTime() : System.nanoTime();
+    }
+
+    /**
+     * Records a call of a transformer on the current thread.
+     *
+     * @param transformer the index of the transformer
+     * @param input the entry that was passed to the transformer
+     * @param start the result of {@link #startTransform()} before the call
+     * @param size the result of {@link #size(Entry)} for the input, before the call
+     * @param output the entry the transformer returned
+     */
+    void transformed(int transformer, Entry input, long start, long size, @Nullable Entry output) {
+        long time = (CPU_TIME ? THREADS.getCurrentThreadCpuTime() : System.nanoTime()) - start;
+        Counters counters = this.counters[transformer][kind(input)];
+        counters.calls.increment();
+        counters.time.add(time);
+        counters.bytesIn.add(size);
+        if (output != null)
+            counters.bytesOut.add(output == input ? size : size(output));
+    }
+
+    private static int kind(Entry entry) {
+        if (entry instanceof ClassEntry)
+            return 0;
+        if (entry instanceof ManifestEntry)
+            return 2;
+        if (entry instanceof JavadoctorEntry)
+            return 3;
+        return 1;
+    }
+
+    /**
+     * Returns the uncompressed size of the entry, without reading entries from the input that were not read yet.
+     */
+    static long size(Entry entry) {
+        ZipReader.Record source = entry instanceof EntryImpl ? ((EntryImpl) entry).getSource() : null;
+        return source != null ? source.getSize() : entry.getData().length;
+    }
+
+    @Override
+    public synchronized Map<String, Long> getStageTimes() {
+        return Collections.unmodifiableMap(new LinkedHashMap<>(this.stages));
+    }
+
+    @Override
+    public List<Renamer.TransformerStats> getTransformers() {
+        List<Renamer.TransformerStats> ret = new ArrayList<>();
+        for (int i = 0; i < this.counters.length; i++) {
+            for (int j = 0; j < KINDS.length; j++) {
+                Counters counters = this.counters[i][j];
+                long calls = counters.calls.sum();
+                if (calls != 0)
+                    ret.add(new TransformerStats(this.transformers.get(i), KINDS[j], calls, counters.time.sum(), counters.bytesIn.sum(), counters.bytesOut.sum()));
+            }
+        }
+        return ret;
+    }
+
+    @Override
+    public String toJson() {
+        JsonObject stages = new JsonObject();
+        getStageTimes().forEach(stages::addProperty);
+
+        JsonArray transformers = new JsonArray();
+        for (Renamer.TransformerStats stats : getTransformers()) {
+            JsonObject transformer = new JsonObject();
+            transformer.addProperty("transformer", stats.getTransformer());
+            transformer.addProperty("kind", stats.getEntryKind());
+            transformer.addProperty("calls", stats.getCalls());
+            transformer.addProperty("cpuTime", stats.getCpuTime());
+            transformer.addProperty("bytesIn", stats.getBytesIn());
+            transformer.addProperty("bytesOut", stats.getBytesOut());
+            transformers.add(transformer);
+        }
+
+        JsonObject ret = new JsonObject();
+        ret.addProperty("cpuTimeSupported", CPU_TIME);
+        ret.add("stages", stages);
+        ret.add("transformers", transformers);
+        return new GsonBuilder().setPrettyPrinting().create().toJson(ret);
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder ret = new StringBuilder();
+        Map<String, Long> stages = getStageTimes();
+        long total = getTotalTime();
+        ret.append(String.format(Locale.ROOT, "%-12s %12s%n", "Stage", "Time (ms)"));
+        stages.forEach((stage, time) -> ret.append(String.format(Locale.ROOT, "%-12s %12.1f%n", stage, time / 1e6)));
+        ret.append(String.format(Locale.ROOT, "%-12s %12.1f%n", "total", total / 1e6));
+
+        List<Renamer.TransformerStats> transformers = getTransformers();
+        if (!transformers.isEmpty()) {
+            int width = Math.max(11, transformers.stream().mapToInt(t -> t.getTransformer().length()).max().getAsInt());
+            String format = "%n%-" + width + "s %-10s %10s %12s %12s %12s";
+            ret.append(String.format(Locale.ROOT, format, "Transformer", "Kind", "Calls", CPU_TIME ? "CPU (ms)" : "Time (ms)", "In (KiB)", "Out (KiB)"));
+            format = "%n%-" + width + "s %-10s %10d %12.1f %12d %12d";
+            for (Renamer.TransformerStats stats : transformers) {
+                ret.append(String.format(Locale.ROOT, format, stats.getTransformer(), stats.getEntryKind(), stats.getCalls(),
+                    stats.getCpuTime() / 1e6, stats.getBytesIn() / 1024, stats.getBytesOut() / 1024));
+            }
+        }
+        return ret.toString();
+    }
+
+    private static class Counters {
+        private final LongAdder calls = new LongAdder();
+        private final LongAdder time = new LongAdder();
+        private final LongAdder bytesIn = new LongAdder();
+        private final LongAdder bytesOut = new LongAdder();
+    }
+
+    private static class TransformerStats implements Renamer.TransformerStats {
+        private final String transformer;
+        private final String kind;
+        private final long calls;
+        private final long cpuTime;
+        private final long bytesIn;
+        private final long bytesOut;
+
+        private TransformerStats(String transformer, String kind, long calls, long cpuTime, long bytesIn, long bytesOut) {
+            this.transformer = transformer;
+            this.kind = kind;
+            this.calls = calls;
+            this.cpuTime = cpuTime;
+            this.bytesIn = bytesIn;
+            this.bytesOut = bytesOut;
+        }
+
+        @Override
+        public String getTransformer() {
+            return this.transformer;
+        }
+
+        @Override
+        public String getEntryKind() {
+            return this.kind;
+        }
+
+        @Override
+        public long getCalls() {
+            return this.calls;
+        }
+
+        @Override
+        public long getCpuTime() {
+            return this.cpuTime;
+        }
+
+        @Override
+        public long getBytesIn() {
+            return this.bytesIn;
+        }
+
+        @Override
+        public long getBytesOut() {
+            return this.bytesOut;
+        }
+    }
+}
@@ -6,18 +6,26 @@
 package net.neoforged.art.internal;
 
 import com.google.gson.JsonObject;
+import java.io.DataOutput;
+import java.io.IOException;
 import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.atomic.LongAdder;
 import java.util.function.Consumer;
 import java.util.jar.Attributes;
 import java.util.jar.Manifest;
 import java.util.stream.Collectors;
 import net.neoforged.art.api.ClassProvider;
+import net.neoforged.art.api.Metrics;
 import net.neoforged.art.api.Transformer;
 import net.neoforged.javadoctor.io.gson.GsonJDocIO;
 import net.neoforged.javadoctor.spec.ClassJavadoc;
@@ -25,27 +33,86 @@ import net.neoforged.javadoctor.spec.DocReferences;
 import net.neoforged.javadoctor.spec.JavadoctorInformation;
 import net.neoforged.srgutils.IMappingFile;
 import org.objectweb.asm.ClassReader;
+import org.objectweb.asm.ClassVisitor;
 import org.objectweb.asm.ClassWriter;
+import org.objectweb.asm.Opcodes;
+import org.objectweb.asm.Type;
 import org.objectweb.asm.commons.ClassRemapper;
 
-public class RenamingTransformer implements Transformer {
+public class RenamingTransformer implements Transformer.ClassVisitorTransformer, IncrementalTransformer {
     private static final String ABSTRACT_FILE = "fernflower_abstract_parameter_names.txt";
     private final EnhancedRemapper remapper;
     private final Set<String> abstractParams = ConcurrentHashMap.newKeySet();
+    /**
+     * The abstract parameter names stored while processing the current thread's class in an incremental run.
+     */
+    private final ThreadLocal<List<String>> classParams = new ThreadLocal<>();
     private final boolean collectAbstractParams;
+    private final LongAdder processedClasses = new LongAdder();
+    private final LongAdder skippedClasses = new LongAdder();
+    private final Metrics.Counter processedCounter;
+    private final Metrics.Counter skippedCounter;
 
     public RenamingTransformer(ClassProvider classProvider, IMappingFile map, Consumer<String> log) {
         this(classProvider, map, log, true);
     }
 
     public RenamingTransformer(ClassProvider classProvider, IMappingFile map, Consumer<String> log, boolean collectAbstractParams) {
+        this(classProvider, map, log, s -> {}, collectAbstractParams, Metrics.disabled());
+    }
+
+    public RenamingTransformer(ClassProvider classProvider, IMappingFile map, Consumer<String> log, Consumer<String> debug, boolean collectAbstractParams, Metrics metrics) {
         this.collectAbstractParams = collectAbstractParams;
-        this.remapper = new EnhancedRemapper(classProvider, map, log);
+        this.remapper = new EnhancedRemapper(classProvider, map, log, debug, metrics);
+        this.processedCounter = metrics.counter("renaming.classes.processed");
+        this.skippedCounter = metrics.counter("renaming.classes.skipped");
+    }
+
+    @Override
+    public CompletableFuture<Void> prepare(Collection<String> classes, ExecutorService executor) {
+        this.processedClasses.reset();
+        this.skippedClasses.reset();
+        return this.remapper.resolve(classes, executor);
+    }
+
+    @Override
+    public void fingerprint(DataOutput out) throws IOException {
+        out.writeBoolean(this.collectAbstractParams);
+        this.remapper.fingerprint(out);
+    }
+
+    @Override
+    public void startClass() {
+        this.remapper.startTracking();
+        this.classParams.set(new ArrayList<>());
+    }
+
+    @Override
+    public void finishClass(Map<String, Long> dependencies, List<String> replay) {
+        for (String cls : this.remapper.stopTracking())
+            dependencies.put(cls, this.remapper.getFingerprint(cls));
+        List<String> params = this.classParams.get();
+        this.classParams.remove();
+        if (params != null)
+            replay.addAll(params);
+    }
+
+    @Override
+    public long getFingerprint(String dependency) {
+        return this.remapper.getFingerprint(dependency);
+    }
+
+    @Override
+    public void replay(List<String> data) {
+        this.abstractParams.addAll(data);
     }
 
     @Override
     public ClassEntry process(ClassEntry entry) {
         ClassReader reader = new ClassReader(entry.getData());
+        if (skip(reader))
+            return entry;
+
         ClassWriter writer = new ClassWriter(0);
         ClassRemapper remapper = new EnhancedClassRemapper(writer, this.remapper, this);
 
@@ -59,6 +126,95 @@ public class RenamingTransformer implements Transformer {
         return ClassEntry.create(newName + ".class", entry.getTime(), data);
     }
 
+    @Override
+    public ClassVisitor createVisitor(ClassEntry entry, ClassReader reader, ClassVisitor parent) {
+        return skip(reader) ? null : new EnhancedClassRemapper(parent, this.remapper, this);
+    }
+
+    /**
+     * Returns whether the given class references nothing that is mapped, so that remapping it would not change it.
+     * Such classes are returned as they are, without reading and writing them, but the parameter names of their abstract
+     * methods are still stored like remapping them would.
+     */
+    private boolean skip(ClassReader reader) {
+        this.processedClasses.increment();
+        this.processedCounter.increment();
+        if (this.remapper.mayRemap(reader))
+            return false;
+
+        this.skippedClasses.increment();
+        this.skippedCounter.increment();
+        if (this.collectAbstractParams)
+            storeAbstractNames(reader);
+        return true;
+    }
+
+    /**
+     * Stores the parameter names of the abstract and native methods of an unmapped class, which are all named by their index.
+     */
+    private void storeAbstractNames(ClassReader reader) {
+        char[] buf = new char[reader.getMaxStringLength()];
+        // Skip the access flags, this class, super class and interfaces, then all fields
+        int offset = reader.header + 8 + reader.readUnsignedShort(reader.header + 6) * 2;
+        int fields = reader.readUnsignedShort(offset);
+        offset += 2;
+        for (int i = 0; i < fields; i++)
+            offset = skipAttributes(reader, offset + 6);
+
+        int methods = reader.readUnsignedShort(offset);
+        offset += 2;
+        for (int i = 0; i < methods; i++) {
+            int access = reader.readUnsignedShort(offset);
+            if ((access & (Opcodes.ACC_ABSTRACT | Opcodes.ACC_NATIVE)) != 0) {
+                String name = reader.readUTF8(offset + 2, buf);
+                String descriptor = reader.readUTF8(offset + 4, buf);
+                Type[] types = Type.getArgumentTypes(descriptor);
+                if (types.length != 0) {
+                    List<String> names = new ArrayList<>(types.length);
+                    int index = (access & Opcodes.ACC_STATIC) == 0 ? 1 : 0;
+                    for (Type type : types) {
+                        names.add("var" + index);
+                        index += type.getSize();
+                    }
+                    storeNames(reader.getClassName(), name, descriptor, names);
+                }
+            }
+            offset = skipAttributes(reader, offset + 6);
+        }
+    }
+
+    private static int skipAttributes(ClassReader reader, int offset) {
+        int count = reader.readUnsignedShort(offset);
+        offset += 2;
+        for (int i = 0; i < count; i++)
+            offset += 6 + reader.readInt(offset + 2);
+        return offset;
+    }
+
+    /**
+     * Returns the number of classes that were processed since the start of the run.
+     */
+    long getProcessedClasses() {
+        return this.processedClasses.sum();
+    }
+
+    /**
+     * Returns the number of classes that were not remapped since the start of the run, as they reference nothing mapped.
+     */
+    long getSkippedClasses() {
+        return this.skippedClasses.sum();
+    }
+
+    @Override
+    public boolean madeChange(ClassVisitor visitor) {
+        return true;
+    }
+
+    @Override
+    public boolean rewritesConstantPool() {
+        return true;
+    }
+
     @Override
     public JavadoctorEntry process(JavadoctorEntry entry) {
         final JavadoctorInformation docs = GsonJDocIO.read(GsonJDocIO.GSON, GsonJDocIO.GSON.fromJson(new String(entry.getData()), JsonObject.class));
@@ -120,6 +276,10 @@ public class RenamingTransformer implements Transformer {
     }
 
     void storeNames(String className, String methodName, String methodDescriptor, Collection<String> paramNames) {
-        abstractParams.add(className + ' ' + methodName + ' ' + methodDescriptor + ' ' + String.join(" ", paramNames));
+        String line = className + ' ' + methodName + ' ' + methodDescriptor + ' ' + String.join(" ", paramNames);
+        abstractParams.add(line);
+        List<String> params = classParams.get();
+        if (params != null)
+            params.add(line);
     }
 }
@@ -0,0 +1,50 @@
+/*
+ * Copyright (c) Forge Development LLC and contributors
+ * SPDX-License-Identifier: LGPL-2.1-only
+ */
+
+package net.neoforged.art.internal;
+
+import net.neoforged.art.api.ClassProvider;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static java.util.Objects.requireNonNull;
+
+public class SharedClassProvider implements ClassProvider {
+    private final ClassProvider provider;
+    /**
+     * Caches all class infos returned by the wrapped provider, or null if it already caches them itself.
+     */
+    @Nullable
+    private final Map<String, Optional<? extends IClassInfo>> classCache;
+
+    public SharedClassProvider(ClassProvider provider) {
+        this.provider = requireNonNull(provider, "provider");
+        this.classCache = isCaching(provider) ? null : new ConcurrentHashMap<>();
+    }
+
+    private static boolean isCaching(ClassProvider provider) {
+        return provider instanceof SharedClassProvider || provider instanceof ClassProviderImpl && ((ClassProviderImpl) provider).isCaching();
+    }
+
+    @Override
+    public Optional<? extends IClassInfo> getClass(String cls) {
+        if (this.classCache == null)
+            return this.provider.getClass(cls);
+
+        // Looked up first, as computeIfAbsent locks even if the class is cached on Java 8
+        Optional<? extends IClassInfo> ret = this.classCache.get(cls);
+        if (ret != null)
+            return ret;
+        return this.classCache.computeIfAbsent(cls, this.provider::getClass);
+    }
+
+    // The wrapped provider is owned by whoever shared it
+    @Override
+    public void close() throws IOException {}
+}
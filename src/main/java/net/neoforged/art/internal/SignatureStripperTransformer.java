@@ -8,11 +8,12 @@ package net.neoforged.art.internal;
 import net.neoforged.art.api.SignatureStripperConfig;
 import net.neoforged.art.api.Transformer;
 
+import java.io.DataOutput;
 import java.util.Iterator;
 import java.util.jar.Attributes;
 import java.util.jar.Manifest;
 
-public class SignatureStripperTransformer implements Transformer {
+public class SignatureStripperTransformer implements Transformer, IncrementalTransformer {
     private static final String DIGEST_SUFFIX = "-digest";
     private static final int DIGEST_SUFFIX_LENGTH = DIGEST_SUFFIX.length();
 
@@ -22,6 +23,11 @@ public class SignatureStripperTransformer implements Transformer {
         }
     }
 
+    @Override
+    public void fingerprint(DataOutput out) {
+        // Classes are left alone
+    }
+
     @Override
     public ManifestEntry process(ManifestEntry entry) {
         // Remove all signature entries
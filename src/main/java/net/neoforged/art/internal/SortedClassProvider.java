@@ -6,6 +6,7 @@
 package net.neoforged.art.internal;
 
 import net.neoforged.art.api.ClassProvider;
+import net.neoforged.art.api.Metrics;
 
 import java.io.IOException;
 import java.util.List;
@@ -18,32 +19,71 @@ class SortedClassProvider implements ClassProvider {
     List<ClassProvider> classProviders;
     private final Consumer<String> debug;
     private final Map<String, Optional<? extends IClassInfo>> classCache = new ConcurrentHashMap<>();
+    private final Metrics metrics;
+    private final Metrics.Counter cacheHits;
+    private final Metrics.Counter cacheMisses;
+    private final Metrics.Counter notFound;
+    /**
+     * The lookup counters of the class providers, which are only known once a run has set them up.
+     */
+    private final Map<ClassProvider, Metrics.Counter> lookups = new ConcurrentHashMap<>();
 
     SortedClassProvider(List<ClassProvider> classProviders, Consumer<String> debug) {
+        this(classProviders, debug, Metrics.disabled());
+    }
+
+    SortedClassProvider(List<ClassProvider> classProviders, Consumer<String> debug, Metrics metrics) {
         this.classProviders = classProviders;
         this.debug = debug;
+        this.metrics = metrics;
+        this.cacheHits = metrics.counter("classProvider.cache.hits");
+        this.cacheMisses = metrics.counter("classProvider.cache.misses");
+        this.notFound = metrics.counter("classProvider.notFound");
     }
 
     @Override
     public Optional<? extends IClassInfo> getClass(String cls) {
+        // Looked up first, as computeIfAbsent locks even if the class is cached on Java 8
+        Optional<? extends IClassInfo> ret = this.classCache.get(cls);
+        if (ret != null) {
+            this.cacheHits.increment();
+            return ret;
+        }
         return this.classCache.computeIfAbsent(cls, this::computeClassInfo);
     }
 
     private Optional<? extends IClassInfo> computeClassInfo(String name) {
-        for (ClassProvider classProvider : this.classProviders) {
+        this.cacheMisses.increment();
+        List<ClassProvider> classProviders = this.classProviders;
+        for (int i = 0; i < classProviders.size(); i++) {
+            ClassProvider classProvider = classProviders.get(i);
+            if (this.metrics.isEnabled())
+                getLookups(i, classProvider).increment();
             Optional<? extends IClassInfo> classInfo = classProvider.getClass(name);
 
             if (classInfo.isPresent())
                 return classInfo;
         }
 
+        this.notFound.increment();
         this.debug.accept("Can't Find Class: " + name);
 
         return Optional.empty();
     }
 
+    private Metrics.Counter getLookups(int index, ClassProvider classProvider) {
+        Metrics.Counter ret = this.lookups.get(classProvider);
+        if (ret == null) {
+            String name = classProvider.getClass().getSimpleName();
+            ret = this.metrics.counter("classProvider.lookups." + index + '.' + (name.isEmpty() ? classProvider.getClass().getName() : name));
+            this.lookups.put(classProvider, ret);
+        }
+        return ret;
+    }
+
     void clearCache() {
         this.classCache.clear();
+        this.lookups.clear();
     }
 
     @Override
@@ -8,10 +8,21 @@ package net.neoforged.art.internal;
 import net.neoforged.art.api.SourceFixerConfig;
 import org.objectweb.asm.ClassVisitor;
 
+import java.io.DataOutput;
+import java.io.IOException;
+
 public final class SourceFixer extends OptionalChangeTransformer {
 
+    private final SourceFixerConfig config;
+
     public SourceFixer(SourceFixerConfig config) {
         super(parent -> new Fixer(config, parent));
+        this.config = config;
+    }
+
+    @Override
+    public void fingerprint(DataOutput out) throws IOException {
+        out.writeUTF(this.config.name());
     }
 
     private static class Fixer extends ClassFixer {
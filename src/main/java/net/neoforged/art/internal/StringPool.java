@@ -0,0 +1,58 @@
+/*
+ * Copyright (c) Forge Development LLC and contributors
+ * SPDX-License-Identifier: LGPL-2.1-only
+ */
+
+package net.neoforged.art.internal;
+
+import org.jetbrains.annotations.Nullable;
+
+import java.lang.ref.WeakReference;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+/**
+ * A pool of canonical string instances, shared by the class infos of all class providers and the remapper.
+ * The same class names and descriptors are read from thousands of classes and libraries, and are only kept once this way.
+ * <p>
+ * Unlike {@link String#intern()}, pooled strings are only weakly held, so they are dropped once no class info uses them anymore,
+ * and the pool is split into stripes so that threads canonicalizing different strings rarely wait on each other.
+ */
+final class StringPool {
+    /**
+     * Whether strings are pooled at all. This can be turned off with the {@code net.neoforged.art.stringPool} system property,
+     * to measure how much memory the pool saves.
+     */
+    static final boolean ENABLED = Boolean.parseBoolean(System.getProperty("net.neoforged.art.stringPool", "true"));
+    private static final int STRIPES = 64;
+    @SuppressWarnings("unchecked")
+    private static final Map<String, WeakReference<String>>[] POOLS = new Map[STRIPES];
+
+    static {
+        for (int i = 0; i < STRIPES; i++)
+            POOLS[i] = new WeakHashMap<>();
+    }
+
+    private StringPool() {}
+
+    /**
+     * Returns the canonical instance of the given string, which is the string itself if it is not pooled yet.
+     */
+    @Nullable
+    static String get(@Nullable String value) {
+        if (value == null || !ENABLED)
+            return value;
+
+        int hash = value.hashCode();
+        Map<String, WeakReference<String>> pool = POOLS[(hash ^ (hash >>> 16)) & (STRIPES - 1)];
+        synchronized (pool) {
+            WeakReference<String> ref = pool.get(value);
+            String ret = ref == null ? null : ref.get();
+            if (ret == null) {
+                pool.put(value, new WeakReference<>(value));
+                ret = value;
+            }
+            return ret;
+        }
+    }
+}
@@ -0,0 +1,102 @@
+/*
+ * Copyright (c) Forge Development LLC and contributors
+ * SPDX-License-Identifier: LGPL-2.1-only
+ */
+
+package net.neoforged.art.internal;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Keeps a bounded number of ZIP files open to read entries from, closing the least recently used ones.
+ * <p>
+ * Files are opened on their first read. Handles that are in use are never closed, so if more than the maximum
+ * are in use at once, the surplus is closed as soon as they are released.
+ */
+class ZipHandles implements Closeable {
+    static final int DEFAULT_MAX_OPEN = 32;
+
+    private final int maxOpen;
+    private final Map<Path, Handle> handles = new LinkedHashMap<>(16, 0.75f, true);
+    private boolean closed = false;
+
+    ZipHandles(int maxOpen) {
+        this.maxOpen = maxOpen;
+    }
+
+    /**
+     * Reads and inflates the given entry, which was read from the central directory of the ZIP file at the given path.
+     * This method is thread-safe.
+     */
+    byte[] read(Path path, ZipReader.Record record) throws IOException {
+        Handle handle = acquire(path);
+        try {
+            return handle.reader.read(record);
+        } finally {
+            release(handle);
+        }
+    }
+
+    private synchronized Handle acquire(Path path) throws IOException {
+        if (this.closed)
+            throw new IOException("ZIP handles are closed");
+
+        Handle handle = this.handles.get(path);
+        if (handle == null) {
+            handle = new Handle(ZipReader.openForRecords(path));
+            this.handles.put(path, handle);
+        }
+        handle.users++;
+        trim();
+        return handle;
+    }
+
+    private synchronized void release(Handle handle) throws IOException {
+        handle.users--;
+        trim();
+    }
+
+    private void trim() throws IOException {
+        Iterator<Handle> itr = this.handles.values().iterator();
+        while (this.handles.size() > this.maxOpen && itr.hasNext()) {
+            Handle handle = itr.next();
+            if (handle.users == 0) {
+                itr.remove();
+                handle.reader.close();
+            }
+        }
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        this.closed = true;
+        IOException error = null;
+        for (Handle handle : this.handles.values()) {
+            try {
+                handle.reader.close();
+            } catch (IOException e) {
+                if (error == null)
+                    error = e;
+                else
+                    error.addSuppressed(e);
+            }
+        }
+        this.handles.clear();
+        if (error != null)
+            throw error;
+    }
+
+    private static class Handle {
+        private final ZipReader reader;
+        private int users = 0;
+
+        private Handle(ZipReader reader) {
+            this.reader = reader;
+        }
+    }
+}
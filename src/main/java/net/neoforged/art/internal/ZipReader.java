@@ -0,0 +1,388 @@
+/*
+ * Copyright (c) Forge Development LLC and contributors
+ * SPDX-License-Identifier: LGPL-2.1-only
+ */
+
+package net.neoforged.art.internal;
+
+import org.jetbrains.annotations.Nullable;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.Collections;
+import java.util.List;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+import java.util.zip.ZipException;
+
+/**
+ * Minimal ZIP reader that parses the central directory itself, so that the compressed data of an entry can be read
+ * without inflating it. This lets unchanged entries be copied to the output as-is.
+ * <p>
+ * Unless disabled, the file is memory-mapped, so that raw entry data is a view of the mapping rather than a copy.
+ * Files larger than 2GB are always read through the channel instead.
+ */
+class ZipReader implements Closeable {
+    static final int STORED = 0;
+    static final int DEFLATED = 8;
+
+    private static final int LOC_SIG = 0x04034b50;
+    private static final int CEN_SIG = 0x02014b50;
+    private static final int END_SIG = 0x06054b50;
+    private static final int ZIP64_END_SIG = 0x06064b50;
+    private static final int ZIP64_LOC_SIG = 0x07064b50;
+    private static final int LOC_HEADER = 30;
+    private static final int CEN_HEADER = 46;
+    private static final int END_HEADER = 22;
+    private static final int ZIP64_LOC_HEADER = 20;
+    private static final int ZIP64_END_HEADER = 56;
+    private static final int MAX_COMMENT = 0xFFFF;
+
+    private final Path path;
+    private final FileChannel channel;
+    @Nullable
+    private final ByteBuffer mapped;
+    private final List<Record> records;
+
+    ZipReader(Path path) throws IOException {
+        this(path, true);
+    }
+
+    /**
+     * @param map whether to memory-map the file. A mapping is only released once it is garbage collected,
+     *            so this should be disabled if the file is going to be replaced afterwards, which some platforms refuse to do while it is mapped.
+     */
+    ZipReader(Path path, boolean map) throws IOException {
+        this(path, map, true);
+    }
+
+    private ZipReader(Path path, boolean map, boolean readCentralDirectory) throws IOException {
+        this.path = path;
+        this.channel = FileChannel.open(path, StandardOpenOption.READ);
+        try {
+            long size = this.channel.size();
+            if (map && size <= Integer.MAX_VALUE) {
+                MappedByteBuffer buf = this.channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+                this.mapped = buf.order(ByteOrder.LITTLE_ENDIAN);
+            } else {
+                this.mapped = null;
+            }
+            this.records = readCentralDirectory ? Collections.unmodifiableList(readCentralDirectory()) : Collections.emptyList();
+        } catch (IOException | RuntimeException e) {
+            this.channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Opens the given ZIP file without reading its central directory, to read records of another reader of the same, unchanged, file.
+     * The file is not mapped.
+     */
+    static ZipReader openForRecords(Path path) throws IOException {
+        return new ZipReader(path, false, false);
+    }
+
+    /**
+     * Returns all entries of this ZIP file, including directories, in central directory order.
+     */
+    List<Record> getRecords() {
+        return this.records;
+    }
+
+    Path getPath() {
+        return this.path;
+    }
+
+    private List<Record> readCentralDirectory() throws IOException {
+        long size = this.channel.size();
+        int tailSize = (int) Math.min(size, END_HEADER + MAX_COMMENT);
+        ByteBuffer tail = read(size - tailSize, tailSize);
+
+        int end = -1;
+        for (int i = tailSize - END_HEADER; i >= 0; i--) {
+            if (tail.getInt(i) == END_SIG && i + END_HEADER + (tail.getShort(i + 20) & 0xFFFF) <= tailSize) {
+                end = i;
+                break;
+            }
+        }
+        if (end == -1)
+            throw new ZipException("Could not find end of central directory in " + this.path);
+
+        long count = tail.getShort(end + 10) & 0xFFFF;
+        long cenSize = tail.getInt(end + 12) & 0xFFFFFFFFL;
+        long cenOffset = tail.getInt(end + 16) & 0xFFFFFFFFL;
+        // The central directory ends right before the end record that was found
+        long cenEnd = size - tailSize + end;
+
+        if (end >= ZIP64_LOC_HEADER && tail.getInt(end - ZIP64_LOC_HEADER) == ZIP64_LOC_SIG) {
+            // The Zip64 end record usually comes right before its locator, otherwise trust the offset in the locator
+            long zip64Offset = cenEnd - ZIP64_LOC_HEADER - ZIP64_END_HEADER;
+            ByteBuffer zip64 = zip64Offset >= 0 ? read(zip64Offset, ZIP64_END_HEADER) : null;
+            if (zip64 == null || zip64.getInt(0) != ZIP64_END_SIG) {
+                zip64Offset = tail.getLong(end - ZIP64_LOC_HEADER + 8);
+                zip64 = read(zip64Offset, ZIP64_END_HEADER);
+            }
+            if (zip64.getInt(0) != ZIP64_END_SIG)
+                throw new ZipException("Invalid Zip64 end of central directory in " + this.path);
+            count = zip64.getLong(32);
+            cenSize = zip64.getLong(40);
+            cenOffset = zip64.getLong(48);
+            cenEnd = zip64Offset;
+        }
+
+        // Offsets are relative to the start of the archive, which comes after any data prepended to it, like a launcher script
+        long prefix = cenEnd - cenOffset - cenSize;
+        if (cenSize > Integer.MAX_VALUE || cenOffset < 0 || prefix < 0 || cenEnd > size)
+            throw new ZipException("Invalid central directory in " + this.path);
+
+        ByteBuffer cen = read(prefix + cenOffset, (int) cenSize);
+        List<Record> ret = new ArrayList<>((int) Math.min(count, 0xFFFF));
+        int pos = 0;
+        for (long i = 0; i < count; i++) {
+            if (pos + CEN_HEADER > cenSize || cen.getInt(pos) != CEN_SIG)
+                throw new ZipException("Invalid central directory header in " + this.path);
+
+            int flags = cen.getShort(pos + 8) & 0xFFFF;
+            int method = cen.getShort(pos + 10) & 0xFFFF;
+            long dosTime = cen.getInt(pos + 12) & 0xFFFFFFFFL;
+            int crc = cen.getInt(pos + 16);
+            long compressedSize = cen.getInt(pos + 20) & 0xFFFFFFFFL;
+            long uncompressedSize = cen.getInt(pos + 24) & 0xFFFFFFFFL;
+            int nameLen = cen.getShort(pos + 28) & 0xFFFF;
+            int extraLen = cen.getShort(pos + 30) & 0xFFFF;
+            int commentLen = cen.getShort(pos + 32) & 0xFFFF;
+            long offset = cen.getInt(pos + 42) & 0xFFFFFFFFL;
+
+            byte[] nameBytes = new byte[nameLen];
+            cen.position(pos + CEN_HEADER);
+            cen.get(nameBytes);
+            String name = new String(nameBytes, StandardCharsets.UTF_8);
+
+            long time = dosToJavaTime(dosTime);
+            int extra = pos + CEN_HEADER + nameLen;
+            int extraEnd = extra + extraLen;
+            while (extra + 4 <= extraEnd) {
+                int tag = cen.getShort(extra) & 0xFFFF;
+                int len = cen.getShort(extra + 2) & 0xFFFF;
+                int data = extra + 4;
+                if (data + len > extraEnd)
+                    break;
+
+                if (tag == 0x0001) { // Zip64 extended information, only present for the fields that overflowed
+                    int off = data;
+                    if (uncompressedSize == 0xFFFFFFFFL && off + 8 <= data + len) {
+                        uncompressedSize = cen.getLong(off);
+                        off += 8;
+                    }
+                    if (compressedSize == 0xFFFFFFFFL && off + 8 <= data + len) {
+                        compressedSize = cen.getLong(off);
+                        off += 8;
+                    }
+                    if (offset == 0xFFFFFFFFL && off + 8 <= data + len)
+                        offset = cen.getLong(off);
+                } else if (tag == 0x5455 && len >= 5 && (cen.get(data) & 0x1) != 0) { // Extended timestamp, same as ZipEntry.getTime
+                    time = (cen.getInt(data + 1) & 0xFFFFFFFFL) * 1000;
+                } else if (tag == 0x000A && len >= 32 && cen.getShort(data + 4) == 0x0001 && cen.getShort(data + 6) == 24) { // NTFS timestamps
+                    time = cen.getLong(data + 8) / 10_000 - 11_644_473_600_000L;
+                }
+                extra = data + len;
+            }
+
+            ret.add(new Record(this, name, flags, method, time, crc, compressedSize, uncompressedSize, prefix + offset));
+            pos += CEN_HEADER + nameLen + extraLen + commentLen;
+        }
+
+        return ret;
+    }
+
+    /**
+     * Returns the data of the given entry as it is stored in the ZIP file, without inflating it.
+     * If the file is mapped, this is a read-only view of the mapping.
+     */
+    ByteBuffer readRaw(Record record) throws IOException {
+        if (record.compressedSize > Integer.MAX_VALUE)
+            throw new ZipException("Entry too large: " + record.name);
+
+        ByteBuffer header = read(record.offset, LOC_HEADER);
+        if (header.getInt(0) != LOC_SIG)
+            throw new ZipException("Invalid local header for entry " + record.name + " in " + this.path);
+
+        long dataOffset = record.offset + LOC_HEADER + (header.getShort(26) & 0xFFFF) + (header.getShort(28) & 0xFFFF);
+        return read(dataOffset, (int) record.compressedSize);
+    }
+
+    /**
+     * Reads and, if necessary, inflates the data of the given entry.
+     * The entry may also be from another reader of the same file.
+     */
+    byte[] read(Record record) throws IOException {
+        if (record.size > Integer.MAX_VALUE)
+            throw new ZipException("Entry too large: " + record.name);
+        if (!record.isSupported())
+            throw new ZipException("Unsupported compression method " + record.method + " or flags " + record.flags + " for entry " + record.name);
+
+        ByteBuffer raw = readRaw(record);
+        byte[] ret = new byte[(int) record.size];
+        if (record.method == STORED) {
+            if (raw.remaining() != ret.length)
+                throw new ZipException("Invalid stored data for entry " + record.name + " in " + this.path);
+            raw.get(ret);
+            return ret;
+        }
+
+        Inflater inflater = new Inflater(true);
+        try {
+            // Inflater can only take arrays on Java 8, so feed it the mapped data in chunks rather than copying it whole
+            byte[] input = raw.hasArray() ? null : new byte[Math.min(raw.remaining(), 16384)];
+            if (raw.hasArray()) {
+                inflater.setInput(raw.array(), raw.arrayOffset() + raw.position(), raw.remaining());
+                raw.position(raw.limit());
+            }
+            int read = 0;
+            while (read < ret.length) {
+                if (input != null && inflater.needsInput() && raw.hasRemaining()) {
+                    int len = Math.min(input.length, raw.remaining());
+                    raw.get(input, 0, len);
+                    inflater.setInput(input, 0, len);
+                }
+                int len = inflater.inflate(ret, read, ret.length - read);
+                if (len == 0 && (inflater.finished() || (inflater.needsInput() && !raw.hasRemaining()) || inflater.needsDictionary()))
+                    break;
+                read += len;
+            }
+            if (read != ret.length)
+                throw new ZipException("Invalid deflated data for entry " + record.name + " in " + this.path);
+            return ret;
+        } catch (DataFormatException e) {
+            throw new ZipException("Invalid deflated data for entry " + record.name + " in " + this.path + ": " + e.getMessage());
+        } finally {
+            inflater.end();
+        }
+    }
+
+    private ByteBuffer read(long position, int length) throws IOException {
+        if (this.mapped != null) {
+            if (position < 0 || position + length > this.mapped.capacity())
+                throw new EOFException("Unexpected end of file " + this.path);
+            // Duplicates only read the shared buffer's position and limit, which are never changed, so this is thread-safe
+            ByteBuffer buf = this.mapped.duplicate();
+            buf.position((int) position);
+            buf.limit((int) position + length);
+            return buf.slice().order(ByteOrder.LITTLE_ENDIAN);
+        }
+
+        ByteBuffer buf = ByteBuffer.allocate(length).order(ByteOrder.LITTLE_ENDIAN);
+        while (buf.hasRemaining()) {
+            if (this.channel.read(buf, position + buf.position()) < 0)
+                throw new EOFException("Unexpected end of file " + this.path);
+        }
+        buf.flip();
+        return buf;
+    }
+
+    // The mapping, and any buffer handed out from it, stays valid after closing.
+    @Override
+    public void close() throws IOException {
+        this.channel.close();
+    }
+
+    // Same conversion as ZipEntry, which uses the default time zone.
+    static long dosToJavaTime(long dosTime) {
+        Calendar cal = Calendar.getInstance();
+        cal.clear();
+        cal.set((int) (((dosTime >> 25) & 0x7f) + 1980),
+                (int) (((dosTime >> 21) & 0x0f) - 1),
+                (int) ((dosTime >> 16) & 0x1f),
+                (int) ((dosTime >> 11) & 0x1f),
+                (int) ((dosTime >> 5) & 0x3f),
+                (int) ((dosTime << 1) & 0x3e));
+        return cal.getTimeInMillis();
+    }
+
+    static class Record {
+        private final ZipReader zip;
+        private final String name;
+        private final int flags;
+        private final int method;
+        private final long time;
+        private final int crc;
+        private final long compressedSize;
+        private final long size;
+        private final long offset;
+
+        private Record(ZipReader zip, String name, int flags, int method, long time, int crc, long compressedSize, long size, long offset) {
+            this.zip = zip;
+            this.name = name;
+            this.flags = flags;
+            this.method = method;
+            this.time = time;
+            this.crc = crc;
+            this.compressedSize = compressedSize;
+            this.size = size;
+            this.offset = offset;
+        }
+
+        ZipReader getZip() {
+            return this.zip;
+        }
+
+        String getName() {
+            return this.name;
+        }
+
+        boolean isDirectory() {
+            return this.name.endsWith("/");
+        }
+
+        int getMethod() {
+            return this.method;
+        }
+
+        long getTime() {
+            return this.time;
+        }
+
+        int getCrc() {
+            return this.crc;
+        }
+
+        long getCompressedSize() {
+            return this.compressedSize;
+        }
+
+        long getSize() {
+            return this.size;
+        }
+
+        /**
+         * Returns whether this entry can be read, and whether its raw data can be copied into another ZIP file.
+         * Encrypted entries and compression methods other than {@code STORED} and {@code DEFLATED} are not supported.
+         */
+        boolean isSupported() {
+            return (this.flags & 0x1) == 0 && (this.method == STORED || this.method == DEFLATED);
+        }
+
+        byte[] read() throws IOException {
+            return this.zip.read(this);
+        }
+
+        ByteBuffer readRaw() throws IOException {
+            return this.zip.readRaw(this);
+        }
+
+        @Override
+        public String toString() {
+            return this.name;
+        }
+    }
+}
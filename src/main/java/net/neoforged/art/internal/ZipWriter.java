@@ -0,0 +1,417 @@
+/*
+ * Copyright (c) Forge Development LLC and contributors
+ * SPDX-License-Identifier: LGPL-2.1-only
+ */
+
+package net.neoforged.art.internal;
+
+import net.neoforged.art.api.Renamer;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+import java.util.zip.ZipException;
+
+/**
+ * Minimal ZIP writer which, unlike {@link java.util.zip.ZipOutputStream}, accepts data that is already compressed.
+ * This is used to copy unchanged entries from the input without inflating and deflating them again.
+ * <p>
+ * Sizes and CRCs are always known up front, so they are written to the local headers and no data descriptors are used.
+ * Entry names are always written as UTF-8. Sizes, offsets and entry counts that don't fit the classic format, such as the
+ * size of a copied entry that is 4 GiB or larger once inflated, are written as Zip64 extended information.
+ * <p>
+ * Writing is split in two steps: {@link #prepare} compresses an entry and may be called from any thread,
+ * while {@link #write} appends prepared entries to the file and must be called from a single thread.
+ * This allows entries to be compressed in parallel while the output stays in the order entries are written in.
+ * <p>
+ * Entries are deflated with a compression level that can be overridden per file extension,
+ * or written uncompressed if that level is {@link Renamer.Builder#STORED}.
+ */
+class ZipWriter implements Closeable {
+    private static final int LOC_SIG = 0x04034b50;
+    private static final int CEN_SIG = 0x02014b50;
+    private static final int END_SIG = 0x06054b50;
+    private static final int ZIP64_END_SIG = 0x06064b50;
+    private static final int ZIP64_LOC_SIG = 0x07064b50;
+    private static final int FLAG_UTF8 = 0x800;
+    private static final long ZIP64_MAGIC = 0xFFFFFFFFL;
+    private static final long DOSTIME_BEFORE_1980 = (1 << 21) | (1 << 16);
+    private static final long UPPER_DOSTIME_BOUND = 128L * 365 * 24 * 60 * 60 * 1000; // Same bound as ZipEntry
+    private static final long WINDOWS_EPOCH_OFFSET = 11_644_473_600_000L; // Milliseconds from 1601 to 1970
+
+    private final OutputStream out;
+    private final List<CentralRecord> central = new ArrayList<>();
+    private final byte[] buf = new byte[8];
+    private byte[] copyBuf;
+    private final Map<Integer, Queue<Deflater>> deflaters = new ConcurrentHashMap<>();
+    private final int level;
+    private final Map<String, Integer> extensionLevels;
+    private long written = 0;
+    private boolean closed = false;
+
+    ZipWriter(OutputStream out) {
+        this(out, Deflater.DEFAULT_COMPRESSION, Collections.emptyMap());
+    }
+
+    /**
+     * @param level the compression level for entries, or {@link Renamer.Builder#STORED}
+     * @param extensionLevels compression levels by lower case file extension, overriding {@code level}
+     */
+    ZipWriter(OutputStream out, int level, Map<String, Integer> extensionLevels) {
+        this.out = out;
+        this.level = level;
+        this.extensionLevels = extensionLevels;
+    }
+
+    int getLevel(String name) {
+        int idx = name.lastIndexOf('.');
+        if (idx != -1 && idx > name.lastIndexOf('/')) {
+            Integer level = this.extensionLevels.get(name.substring(idx + 1).toLowerCase(Locale.ROOT));
+            if (level != null)
+                return level;
+        }
+        return this.level;
+    }
+
+    /**
+     * Returns whether the compressed data of the given entry can be copied as-is for an entry with the given name.
+     * This is the case if it is stored with the method the name would be written with. Deflated data keeps the level it was compressed with.
+     */
+    boolean canCopy(String name, ZipReader.Record record) {
+        return record.isSupported() && (record.getMethod() == ZipReader.STORED) == (getLevel(name) == Renamer.Builder.STORED);
+    }
+
+    void addDirectory(String name, long time) throws IOException {
+        writeEntry(name, time, ZipReader.STORED, 0, 0, 0, null);
+    }
+
+    /**
+     * Prepares an entry with the given uncompressed data by compressing it according to its name.
+     * This method is thread-safe.
+     */
+    Prepared prepare(String name, long time, byte[] data) {
+        CRC32 crc = new CRC32();
+        crc.update(data, 0, data.length);
+
+        int level = getLevel(name);
+        if (level == Renamer.Builder.STORED)
+            return new Prepared(name, time, ZipReader.STORED, (int) crc.getValue(), data.length, ByteBuffer.wrap(data));
+
+        Queue<Deflater> pool = this.deflaters.computeIfAbsent(level, k -> new ConcurrentLinkedQueue<>());
+        Deflater deflater = pool.poll();
+        if (deflater == null)
+            deflater = new Deflater(level, true);
+        try {
+            ByteArrayOutputStream compressed = new ByteArrayOutputStream(Math.max(64, data.length / 2));
+            byte[] buf = new byte[Math.min(8192, Math.max(64, data.length))];
+            deflater.setInput(data);
+            deflater.finish();
+            while (!deflater.finished()) {
+                int len = deflater.deflate(buf);
+                compressed.write(buf, 0, len);
+            }
+            return new Prepared(name, time, ZipReader.DEFLATED, (int) crc.getValue(), data.length, ByteBuffer.wrap(compressed.toByteArray()));
+        } finally {
+            deflater.reset();
+            pool.add(deflater);
+        }
+    }
+
+    /**
+     * Prepares an entry by reading the compressed data of an entry of another ZIP file, to be copied as-is.
+     * If that file is mapped, the data is not copied until it is written.
+     * This method is thread-safe.
+     */
+    Prepared prepareRaw(String name, long time, ZipReader.Record record) throws IOException {
+        if (!canCopy(name, record))
+            throw new ZipException("Can not copy entry " + record.getName() + " with compression method " + record.getMethod());
+        return new Prepared(name, time, record.getMethod(), record.getCrc(), record.getSize(), record.readRaw());
+    }
+
+    /**
+     * Appends a prepared entry to the output.
+     */
+    void write(Prepared entry) throws IOException {
+        writeEntry(entry.name, entry.time, entry.method, entry.crc, entry.size, entry.data.remaining(), entry.data.duplicate());
+    }
+
+    private void writeEntry(String name, long time, int method, int crc, long size, long compressedSize, ByteBuffer data) throws IOException {
+        if (this.closed)
+            throw new IOException("ZipWriter is closed");
+
+        byte[] nameBytes = name.getBytes(StandardCharsets.UTF_8);
+        if (nameBytes.length > 0xFFFF)
+            throw new ZipException("Entry name too long: " + name);
+
+        long dosTime = javaToDosTime(time);
+        byte[] extra = null;
+        if (dosTime == DOSTIME_BEFORE_1980 || time > UPPER_DOSTIME_BOUND) {
+            // Out of range for DOS times, so store the real time in an extended timestamp like ZipEntry does,
+            // or in NTFS timestamps if it doesn't fit the 32 bit seconds of an extended timestamp either.
+            long seconds = Math.floorDiv(time, 1000);
+            if (seconds >= 0 && seconds <= Integer.MAX_VALUE) {
+                extra = new byte[9];
+                writeShort(extra, 0, 0x5455);
+                writeShort(extra, 2, 5);
+                extra[4] = 0x1;
+                writeInt(extra, 5, seconds);
+            } else {
+                extra = new byte[36];
+                writeShort(extra, 0, 0x000A);
+                writeShort(extra, 2, 32);
+                writeShort(extra, 8, 0x0001);
+                writeShort(extra, 10, 24);
+                writeLong(extra, 12, (time + WINDOWS_EPOCH_OFFSET) * 10_000);
+                writeLong(extra, 20, Long.MIN_VALUE); // The access and creation times are not available
+                writeLong(extra, 28, Long.MIN_VALUE);
+            }
+        }
+
+        // The local header needs both sizes in its Zip64 extended information if either of them overflows
+        boolean zip64 = size >= ZIP64_MAGIC || compressedSize >= ZIP64_MAGIC;
+        int version = zip64 ? 45 : method == ZipReader.STORED ? 10 : 20;
+        CentralRecord record = new CentralRecord(nameBytes, extra, method, version, dosTime, crc, size, compressedSize, this.written);
+        this.central.add(record);
+
+        writeInt(LOC_SIG);
+        writeShort(version);
+        writeShort(FLAG_UTF8);
+        writeShort(method);
+        writeInt(dosTime);
+        writeInt(crc);
+        writeInt(zip64 ? ZIP64_MAGIC : compressedSize);
+        writeInt(zip64 ? ZIP64_MAGIC : size);
+        writeShort(nameBytes.length);
+        writeShort((extra == null ? 0 : extra.length) + (zip64 ? 20 : 0));
+        writeBytes(nameBytes);
+        if (zip64) {
+            writeShort(0x0001);
+            writeShort(16);
+            writeLong(size);
+            writeLong(compressedSize);
+        }
+        if (extra != null)
+            writeBytes(extra);
+        if (data != null)
+            writeBytes(data);
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (this.closed)
+            return;
+        this.closed = true;
+
+        try {
+            long cenOffset = this.written;
+            for (CentralRecord record : this.central) {
+                // Unlike in the local header, only the fields that overflow are part of the Zip64 extended information, in this order
+                boolean zip64Size = record.size >= ZIP64_MAGIC;
+                boolean zip64CompressedSize = record.compressedSize >= ZIP64_MAGIC;
+                boolean zip64Offset = record.offset >= ZIP64_MAGIC;
+                int zip64Len = (zip64Size ? 8 : 0) + (zip64CompressedSize ? 8 : 0) + (zip64Offset ? 8 : 0);
+                int extraLen = (record.extra == null ? 0 : record.extra.length) + (zip64Len == 0 ? 0 : 4 + zip64Len);
+                int version = zip64Len == 0 ? record.version : 45;
+                writeInt(CEN_SIG);
+                writeShort(version);
+                writeShort(version);
+                writeShort(FLAG_UTF8);
+                writeShort(record.method);
+                writeInt(record.dosTime);
+                writeInt(record.crc);
+                writeInt(zip64CompressedSize ? ZIP64_MAGIC : record.compressedSize);
+                writeInt(zip64Size ? ZIP64_MAGIC : record.size);
+                writeShort(record.name.length);
+                writeShort(extraLen);
+                writeShort(0); // Comment length
+                writeShort(0); // Disk number
+                writeShort(0); // Internal attributes
+                writeInt(0);   // External attributes
+                writeInt(zip64Offset ? ZIP64_MAGIC : record.offset);
+                writeBytes(record.name);
+                if (zip64Len != 0) {
+                    writeShort(0x0001);
+                    writeShort(zip64Len);
+                    if (zip64Size)
+                        writeLong(record.size);
+                    if (zip64CompressedSize)
+                        writeLong(record.compressedSize);
+                    if (zip64Offset)
+                        writeLong(record.offset);
+                }
+                if (record.extra != null)
+                    writeBytes(record.extra);
+            }
+            long cenSize = this.written - cenOffset;
+            int count = this.central.size();
+
+            if (count >= 0xFFFF || cenOffset >= ZIP64_MAGIC || cenSize >= ZIP64_MAGIC) {
+                long zip64End = this.written;
+                writeInt(ZIP64_END_SIG);
+                writeLong(44);     // Size of the remaining record
+                writeShort(45);    // Version made by
+                writeShort(45);    // Version needed
+                writeInt(0);       // Disk number
+                writeInt(0);       // Disk with the central directory
+                writeLong(count);  // Entries on this disk
+                writeLong(count);  // Total entries
+                writeLong(cenSize);
+                writeLong(cenOffset);
+
+                writeInt(ZIP64_LOC_SIG);
+                writeInt(0);       // Disk with the zip64 end record
+                writeLong(zip64End);
+                writeInt(1);       // Total disks
+            }
+
+            writeInt(END_SIG);
+            writeShort(0);
+            writeShort(0);
+            writeShort(Math.min(count, 0xFFFF));
+            writeShort(Math.min(count, 0xFFFF));
+            writeInt(Math.min(cenSize, ZIP64_MAGIC));
+            writeInt(Math.min(cenOffset, ZIP64_MAGIC));
+            writeShort(0); // Comment length
+        } finally {
+            for (Queue<Deflater> pool : this.deflaters.values()) {
+                for (Deflater deflater; (deflater = pool.poll()) != null; )
+                    deflater.end();
+            }
+            this.out.close();
+        }
+    }
+
+    private void writeShort(int value) throws IOException {
+        writeShort(this.buf, 0, value);
+        this.out.write(this.buf, 0, 2);
+        this.written += 2;
+    }
+
+    private void writeInt(long value) throws IOException {
+        writeInt(this.buf, 0, value);
+        this.out.write(this.buf, 0, 4);
+        this.written += 4;
+    }
+
+    private void writeLong(long value) throws IOException {
+        writeLong(this.buf, 0, value);
+        this.out.write(this.buf, 0, 8);
+        this.written += 8;
+    }
+
+    private void writeBytes(byte[] data) throws IOException {
+        this.out.write(data);
+        this.written += data.length;
+    }
+
+    private void writeBytes(ByteBuffer data) throws IOException {
+        int length = data.remaining();
+        if (data.hasArray()) {
+            this.out.write(data.array(), data.arrayOffset() + data.position(), length);
+        } else {
+            if (this.copyBuf == null)
+                this.copyBuf = new byte[8192];
+            while (data.hasRemaining()) {
+                int len = Math.min(this.copyBuf.length, data.remaining());
+                data.get(this.copyBuf, 0, len);
+                this.out.write(this.copyBuf, 0, len);
+            }
+        }
+        this.written += length;
+    }
+
+    private static void writeShort(byte[] buf, int offset, int value) {
+        buf[offset] = (byte) value;
+        buf[offset + 1] = (byte) (value >>> 8);
+    }
+
+    private static void writeInt(byte[] buf, int offset, long value) {
+        buf[offset] = (byte) value;
+        buf[offset + 1] = (byte) (value >>> 8);
+        buf[offset + 2] = (byte) (value >>> 16);
+        buf[offset + 3] = (byte) (value >>> 24);
+    }
+
+    private static void writeLong(byte[] buf, int offset, long value) {
+        writeInt(buf, offset, value);
+        writeInt(buf, offset + 4, value >>> 32);
+    }
+
+    // Same conversion as ZipEntry, which uses the default time zone.
+    static long javaToDosTime(long time) {
+        Calendar cal = Calendar.getInstance();
+        cal.setTimeInMillis(time);
+        int year = cal.get(Calendar.YEAR);
+        if (year < 1980)
+            return DOSTIME_BEFORE_1980;
+        return (long) (year - 1980) << 25
+                | (cal.get(Calendar.MONTH) + 1) << 21
+                | cal.get(Calendar.DAY_OF_MONTH) << 16
+                | cal.get(Calendar.HOUR_OF_DAY) << 11
+                | cal.get(Calendar.MINUTE) << 5
+                | cal.get(Calendar.SECOND) >> 1;
+    }
+
+    /**
+     * An entry that has been compressed and is ready to be written.
+     */
+    static class Prepared {
+        private final String name;
+        private final long time;
+        private final int method;
+        private final int crc;
+        private final long size;
+        private final ByteBuffer data;
+
+        private Prepared(String name, long time, int method, int crc, long size, ByteBuffer data) {
+            this.name = name;
+            this.time = time;
+            this.method = method;
+            this.crc = crc;
+            this.size = size;
+            this.data = data;
+        }
+
+        String getName() {
+            return this.name;
+        }
+    }
+
+    private static class CentralRecord {
+        private final byte[] name;
+        private final byte[] extra;
+        private final int method;
+        private final int version;
+        private final long dosTime;
+        private final int crc;
+        private final long size;
+        private final long compressedSize;
+        private final long offset;
+
+        private CentralRecord(byte[] name, byte[] extra, int method, int version, long dosTime, int crc, long size, long compressedSize, long offset) {
+            this.name = name;
+            this.extra = extra;
+            this.method = method;
+            this.version = version;
+            this.dosTime = dosTime;
+            this.crc = crc;
+            this.size = size;
+            this.compressedSize = compressedSize;
+            this.offset = offset;
+        }
+    }
+}
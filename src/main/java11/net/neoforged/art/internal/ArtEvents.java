@@ -0,0 +1,158 @@
+/*
+ * Copyright (c) Forge Development LLC and contributors
+ * SPDX-License-Identifier: LGPL-2.1-only
+ */
+
+package net.neoforged.art.internal;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Threshold;
+import net.neoforged.art.api.Transformer;
+import net.neoforged.art.api.Transformer.Entry;
+
+import java.nio.file.Path;
+
+/**
+ * The Java Flight Recorder events of a run, see the Java 8 version of this class for the API.
+ * <p>
+ * Events are only created and timed while a recording has them enabled, and all of them are in the
+ * {@code Auto Renaming Tool} category, so a recording started with {@code -XX:StartFlightRecording} shows the whole run.
+ */
+final class ArtEvents {
+    private static final Stage NO_STAGE = stage -> {};
+    private static final Library NO_LIBRARY = classes -> {};
+    private static final Resolution NO_RESOLUTION = depth -> {};
+    private static final Transform NO_TRANSFORM = () -> {};
+
+    private ArtEvents() {}
+
+    static Stage beginStage() {
+        StageEvent event = new StageEvent();
+        if (!event.isEnabled())
+            return NO_STAGE;
+        event.begin();
+        return event;
+    }
+
+    static Library beginLibrary(Path path) {
+        LibraryEvent event = new LibraryEvent();
+        if (!event.isEnabled())
+            return NO_LIBRARY;
+        event.path = path.toString();
+        event.begin();
+        return event;
+    }
+
+    static Resolution beginResolution(String cls) {
+        ResolutionEvent event = new ResolutionEvent();
+        if (!event.isEnabled())
+            return NO_RESOLUTION;
+        event.className = cls;
+        event.begin();
+        return event;
+    }
+
+    static Transform beginTransform(Transformer transformer, Entry entry) {
+        TransformEvent event = new TransformEvent();
+        if (!event.isEnabled())
+            return NO_TRANSFORM;
+        event.transformerInstance = transformer;
+        event.entry = entry.getName();
+        event.begin();
+        return event;
+    }
+
+    interface Stage {
+        void finish(String stage);
+    }
+
+    interface Library {
+        void finish(int classes);
+    }
+
+    interface Resolution {
+        void finish(int depth);
+    }
+
+    interface Transform {
+        void finish();
+    }
+
+    @Name("net.neoforged.art.Stage")
+    @Label("Renamer Stage")
+    @Description("A stage of the renaming pipeline")
+    @Category("Auto Renaming Tool")
+    static class StageEvent extends Event implements Stage {
+        @Label("Stage")
+        String stage;
+
+        @Override
+        public void finish(String stage) {
+            this.stage = stage;
+            commit();
+        }
+    }
+
+    @Name("net.neoforged.art.Library")
+    @Label("Library Indexed")
+    @Description("A library added to the inheritance of the renamed classes")
+    @Category("Auto Renaming Tool")
+    static class LibraryEvent extends Event implements Library {
+        @Label("Path")
+        String path;
+        @Label("Classes")
+        @Description("The number of classes the library added that were not provided by an earlier one")
+        int classes;
+
+        @Override
+        public void finish(int classes) {
+            this.classes = classes;
+            commit();
+        }
+    }
+
+    @Name("net.neoforged.art.ClassResolution")
+    @Label("Class Resolution")
+    @Description("The hierarchy and members of a class resolved for remapping, including the time spent on parents resolved first")
+    @Category("Auto Renaming Tool")
+    static class ResolutionEvent extends Event implements Resolution {
+        @Label("Class")
+        String className;
+        @Label("Hierarchy Depth")
+        @Description("The length of the longest path to a root of the class hierarchy, or -1 if the class was not found")
+        int depth;
+
+        @Override
+        public void finish(int depth) {
+            this.depth = depth;
+            commit();
+        }
+    }
+
+    @Name("net.neoforged.art.Transform")
+    @Label("Transformer Call")
+    @Description("A call of a transformer on a single entry that took longer than the threshold")
+    @Category("Auto Renaming Tool")
+    @Threshold("1 ms")
+    static class TransformEvent extends Event implements Transform {
+        @Label("Transformer")
+        String transformer;
+        @Label("Entry")
+        String entry;
+        // Only named once the event is committed, as almost all calls are below the threshold
+        transient Transformer transformerInstance;
+
+        @Override
+        public void finish() {
+            end();
+            if (shouldCommit()) {
+                this.transformer = RenamerStats.getName(this.transformerInstance);
+                commit();
+            }
+        }
+    }
+}
@@ -0,0 +1,94 @@
+/*
+ * Copyright (c) Forge Development LLC and contributors
+ * SPDX-License-Identifier: LGPL-2.1-only
+ */
+
+package net.neoforged.art.internal;
+
+import net.neoforged.art.api.ClassProvider;
+import net.neoforged.art.api.Metrics;
+import net.neoforged.srgutils.IMappingFile;
+import org.junit.jupiter.api.Test;
+import org.objectweb.asm.ClassWriter;
+import org.objectweb.asm.Opcodes;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Checks how method mappings are propagated through a class which inherits the same method from its super class
+ * and an interface, where only the method of the interface is mapped:
+ * <pre>
+ * class A { void foo() {} }
+ * interface B { void foo(); }
+ * class C extends A implements B {}
+ * </pre>
+ */
+public class EnhancedRemapperTest {
+    private final List<String> log = Collections.synchronizedList(new ArrayList<>());
+    private final List<String> debug = Collections.synchronizedList(new ArrayList<>());
+
+    @Test
+    public void propagatesMappingToParentsWhileResolving() throws Exception {
+        EnhancedRemapper remapper = createRemapper();
+        resolve(remapper, "A", "B", "C");
+
+        assertEquals("bar", remapper.mapMethodName("C", "foo", "()V"));
+        assertEquals("bar", remapper.mapMethodName("A", "foo", "()V"));
+        assertTrue(this.debug.isEmpty(), this.debug.toString());
+    }
+
+    @Test
+    public void doesNotPropagateMappingToResolvedParents() throws Exception {
+        EnhancedRemapper remapper = createRemapper();
+        resolve(remapper, "A", "B");
+        // A may already have been used to remap references to A.foo, so C must not change its mapping
+        assertEquals("foo", remapper.mapMethodName("A", "foo", "()V"));
+
+        assertEquals("bar", remapper.mapMethodName("C", "foo", "()V"));
+        assertEquals("foo", remapper.mapMethodName("A", "foo", "()V"));
+        assertTrue(this.log.isEmpty(), this.log.toString());
+        assertEquals(1, this.debug.size(), this.debug.toString());
+        assertTrue(this.debug.get(0).startsWith("Not propagating mapping for "), this.debug.get(0));
+    }
+
+    private EnhancedRemapper createRemapper() throws IOException {
+        ClassProvider provider = ClassProvider.builder()
+            .addClass("A", createClass(Opcodes.ACC_PUBLIC, "A", "java/lang/Object", Opcodes.ACC_PUBLIC))
+            .addClass("B", createClass(Opcodes.ACC_PUBLIC | Opcodes.ACC_INTERFACE | Opcodes.ACC_ABSTRACT, "B", "java/lang/Object", Opcodes.ACC_PUBLIC | Opcodes.ACC_ABSTRACT))
+            .addClass("C", createClass(Opcodes.ACC_PUBLIC, "C", "A", -1, "B"))
+            .build();
+        IMappingFile map = IMappingFile.load(new ByteArrayInputStream("B B\n\tfoo ()V bar\n".getBytes(StandardCharsets.UTF_8)));
+        return new EnhancedRemapper(provider, map, this.log::add, this.debug::add, Metrics.disabled());
+    }
+
+    private static void resolve(EnhancedRemapper remapper, String... classes) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            remapper.resolve(Arrays.asList(classes), executor).get();
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    /**
+     * Creates a class with a method {@code void foo()} of the given access, or without it if the access is negative.
+     */
+    private static byte[] createClass(int access, String name, String superName, int fooAccess, String... interfaces) {
+        ClassWriter writer = new ClassWriter(0);
+        writer.visit(Opcodes.V1_8, access, name, null, superName, interfaces);
+        if (fooAccess >= 0)
+            writer.visitMethod(fooAccess, "foo", "()V", null, null).visitEnd();
+        writer.visitEnd();
+        return writer.toByteArray();
+    }
+}
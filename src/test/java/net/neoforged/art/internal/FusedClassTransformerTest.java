@@ -0,0 +1,103 @@
+/*
+ * Copyright (c) Forge Development LLC and contributors
+ * SPDX-License-Identifier: LGPL-2.1-only
+ */
+
+package net.neoforged.art.internal;
+
+import net.neoforged.art.api.Transformer;
+import net.neoforged.art.api.Transformer.ClassEntry;
+import org.junit.jupiter.api.Test;
+import org.objectweb.asm.ClassReader;
+import org.objectweb.asm.ClassVisitor;
+import org.objectweb.asm.ClassWriter;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class FusedClassTransformerTest {
+    private static final String NAME = "net/neoforged/art/internal/FusedClassTransformerTest.class";
+
+    @Test
+    public void skippedTransformerDoesNotRebuildConstantPool() throws IOException {
+        ClassEntry entry = ClassEntry.create(NAME, 0, classData());
+        List<ClassReader> readers = new ArrayList<>();
+        // The skipping transformer runs first, so a new constant pool would reorder the constants of the output
+        FusedClassTransformer fused = new FusedClassTransformer(Arrays.asList(
+            new TestTransformer(readers, true, false),
+            new TestTransformer(readers, false, true)));
+
+        ClassEntry result = fused.process(entry);
+        assertNotSame(entry, result);
+        assertEquals(NAME, result.getName());
+        assertFalse(Arrays.equals(copy(entry.getData(), true), copy(entry.getData(), false)));
+        assertArrayEquals(copy(entry.getData(), false), result.getData());
+        assertEquals(2, readers.size());
+        assertSame(readers.get(0), readers.get(1));
+    }
+
+    @Test
+    public void transformerRewritingConstantPoolRebuildsIt() throws IOException {
+        ClassEntry entry = ClassEntry.create(NAME, 0, classData());
+        FusedClassTransformer fused = new FusedClassTransformer(Arrays.asList(
+            new TestTransformer(new ArrayList<>(), true, true),
+            new TestTransformer(new ArrayList<>(), false, true)));
+
+        assertArrayEquals(copy(entry.getData(), true), fused.process(entry).getData());
+    }
+
+    private static byte[] copy(byte[] data, boolean newConstantPool) {
+        ClassReader reader = new ClassReader(data);
+        ClassWriter writer = newConstantPool ? new ClassWriter(0) : new ClassWriter(reader, 0);
+        reader.accept(writer, 0);
+        return writer.toByteArray();
+    }
+
+    private static byte[] classData() throws IOException {
+        try (InputStream in = FusedClassTransformerTest.class.getResourceAsStream("FusedClassTransformerTest.class")) {
+            assertNotNull(in);
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            byte[] buf = new byte[8192];
+            for (int len; (len = in.read(buf)) != -1; )
+                out.write(buf, 0, len);
+            return out.toByteArray();
+        }
+    }
+
+    /**
+     * Passes the class through unchanged, and records the readers it is given.
+     */
+    private static class TestTransformer implements Transformer.ClassVisitorTransformer {
+        private final List<ClassReader> readers;
+        private final boolean rewritesConstantPool;
+        private final boolean visits;
+
+        TestTransformer(List<ClassReader> readers, boolean rewritesConstantPool, boolean visits) {
+            this.readers = readers;
+            this.rewritesConstantPool = rewritesConstantPool;
+            this.visits = visits;
+        }
+
+        @Override
+        public ClassVisitor createVisitor(ClassEntry entry, ClassReader reader, ClassVisitor parent) {
+            this.readers.add(reader);
+            return this.visits ? new ClassVisitor(RenamerImpl.MAX_ASM_VERSION, parent) {} : null;
+        }
+
+        @Override
+        public boolean madeChange(ClassVisitor visitor) {
+            return true;
+        }
+
+        @Override
+        public boolean rewritesConstantPool() {
+            return this.rewritesConstantPool;
+        }
+    }
+}
@@ -0,0 +1,222 @@
+/*
+ * Copyright (c) Forge Development LLC and contributors
+ * SPDX-License-Identifier: LGPL-2.1-only
+ */
+
+package net.neoforged.art.internal;
+
+import net.neoforged.art.api.Renamer;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.objectweb.asm.ClassReader;
+import org.objectweb.asm.ClassVisitor;
+import org.objectweb.asm.ClassWriter;
+import org.objectweb.asm.MethodVisitor;
+import org.objectweb.asm.Opcodes;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+import java.util.zip.ZipOutputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Runs incremental renamers twice on an input where {@code C} extends {@code A}, and {@code D} stands on its own.
+ */
+public class IncrementalCacheTest {
+    private static final long TIME = 1_600_000_000_000L;
+    private static final String MAPPINGS = "A A\n\tfoo ()V bar\n";
+    private static final String FULL_RUN = "No usable incremental cache found, processing all entries";
+
+    @TempDir
+    Path tmp;
+    private final List<String> log = new ArrayList<>();
+
+    @Test
+    public void copiesUnchangedClasses() throws IOException {
+        File input = writeInput(true);
+        File output = this.tmp.resolve("out.jar").toFile();
+        run(MAPPINGS, input, output);
+        assertTrue(this.log.contains(FULL_RUN), this.log.toString());
+        assertTrue(this.log.contains("Copied 0 of 3 classes from the previous output"), this.log.toString());
+        byte[] first = Files.readAllBytes(output.toPath());
+
+        run(MAPPINGS, input, output);
+        assertFalse(this.log.contains(FULL_RUN), this.log.toString());
+        assertTrue(this.log.contains("Copied 3 of 3 classes from the previous output"), this.log.toString());
+        assertArrayEquals(first, Files.readAllBytes(output.toPath()));
+        assertEquals(Arrays.asList("<init>", "bar"), methods(output, "C"));
+    }
+
+    @Test
+    public void changedSuperClassInvalidatesSubclasses() throws IOException {
+        File output = this.tmp.resolve("out.jar").toFile();
+        run(MAPPINGS, writeInput(true), output);
+        assertEquals(Arrays.asList("<init>", "bar"), methods(output, "C"));
+
+        // Without A.foo, C.foo overrides nothing mapped anymore
+        run(MAPPINGS, writeInput(false), output);
+        assertFalse(this.log.contains(FULL_RUN), this.log.toString());
+        assertTrue(this.log.contains("Copied 1 of 3 classes from the previous output"), this.log.toString());
+        assertEquals(Arrays.asList("<init>", "foo"), methods(output, "C"));
+        assertEquals(Arrays.asList("<init>"), methods(output, "A"));
+    }
+
+    @Test
+    public void changedMappingsInvalidateAllClasses() throws IOException {
+        File input = writeInput(true);
+        File output = this.tmp.resolve("out.jar").toFile();
+        run(MAPPINGS, input, output);
+
+        run("A A\n\tfoo ()V baz\n", input, output);
+        assertTrue(this.log.contains(FULL_RUN), this.log.toString());
+        assertTrue(this.log.contains("Copied 0 of 3 classes from the previous output"), this.log.toString());
+        assertEquals(Arrays.asList("<init>", "baz"), methods(output, "A"));
+        assertEquals(Arrays.asList("<init>", "baz"), methods(output, "C"));
+    }
+
+    @Test
+    public void truncatedCacheFallsBackToFullRun() throws IOException {
+        File input = writeInput(true);
+        File output = this.tmp.resolve("out.jar").toFile();
+        run(MAPPINGS, input, output);
+
+        File cache = new File(output.getParentFile(), output.getName() + ".artcache");
+        try (RandomAccessFile file = new RandomAccessFile(cache, "rw")) {
+            file.setLength(file.length() / 2);
+        }
+        run(MAPPINGS, input, output);
+        assertTrue(this.log.contains(FULL_RUN), this.log.toString());
+        assertTrue(this.log.contains("Copied 0 of 3 classes from the previous output"), this.log.toString());
+        assertEquals(Arrays.asList("<init>", "bar"), methods(output, "C"));
+
+        // The cache written by the full run is usable again
+        run(MAPPINGS, input, output);
+        assertTrue(this.log.contains("Copied 3 of 3 classes from the previous output"), this.log.toString());
+    }
+
+    @Test
+    public void changedCacheFallsBackToFullRun() throws IOException {
+        File input = writeInput(true);
+        File output = this.tmp.resolve("out.jar").toFile();
+        run(MAPPINGS, input, output);
+
+        File cache = new File(output.getParentFile(), output.getName() + ".artcache");
+        try (RandomAccessFile file = new RandomAccessFile(cache, "rw")) {
+            // The first byte of the configuration hash, after the magic, version, output size and output time
+            file.seek(24);
+            int b = file.read();
+            file.seek(24);
+            file.write(b ^ 0xFF);
+        }
+        run(MAPPINGS, input, output);
+        assertTrue(this.log.contains(FULL_RUN), this.log.toString());
+        assertTrue(this.log.contains("Copied 0 of 3 classes from the previous output"), this.log.toString());
+    }
+
+    @Test
+    public void changedOutputFallsBackToFullRun() throws IOException {
+        File input = writeInput(true);
+        File output = this.tmp.resolve("out.jar").toFile();
+        run(MAPPINGS, input, output);
+
+        assertTrue(output.setLastModified(output.lastModified() - 10_000));
+        run(MAPPINGS, input, output);
+        assertTrue(this.log.contains(FULL_RUN), this.log.toString());
+        assertTrue(this.log.contains("Copied 0 of 3 classes from the previous output"), this.log.toString());
+    }
+
+    private void run(String mappings, File input, File output) throws IOException {
+        Path map = this.tmp.resolve("mappings.tsrg");
+        Files.write(map, mappings.getBytes(StandardCharsets.UTF_8));
+        this.log.clear();
+        try (Renamer renamer = Renamer.builder()
+                .map(map.toFile())
+                .withJvmClasspath()
+                .incremental(true)
+                .threads(2)
+                .logger(this.log::add)
+                .build()) {
+            renamer.run(input, output);
+        }
+    }
+
+    /**
+     * Writes the input JAR, where {@code A} declares {@code void foo()} if {@code withFoo} is true, {@code C} extends
+     * {@code A} and declares {@code void foo()}, and {@code D} only extends {@code Object}.
+     */
+    private File writeInput(boolean withFoo) throws IOException {
+        File file = this.tmp.resolve("in.jar").toFile();
+        try (ZipOutputStream out = new ZipOutputStream(Files.newOutputStream(file.toPath()))) {
+            write(out, "A.class", createClass("A", "java/lang/Object", withFoo));
+            write(out, "C.class", createClass("C", "A", true));
+            write(out, "D.class", createClass("D", "java/lang/Object", false));
+        }
+        return file;
+    }
+
+    private static void write(ZipOutputStream out, String name, byte[] data) throws IOException {
+        ZipEntry entry = new ZipEntry(name);
+        entry.setTime(TIME);
+        out.putNextEntry(entry);
+        out.write(data);
+        out.closeEntry();
+    }
+
+    private static byte[] createClass(String name, String superName, boolean withFoo) {
+        ClassWriter writer = new ClassWriter(0);
+        writer.visit(Opcodes.V1_8, Opcodes.ACC_PUBLIC, name, null, superName, null);
+        MethodVisitor init = writer.visitMethod(Opcodes.ACC_PUBLIC, "<init>", "()V", null, null);
+        init.visitCode();
+        init.visitVarInsn(Opcodes.ALOAD, 0);
+        init.visitMethodInsn(Opcodes.INVOKESPECIAL, superName, "<init>", "()V", false);
+        init.visitInsn(Opcodes.RETURN);
+        init.visitMaxs(1, 1);
+        init.visitEnd();
+        if (withFoo) {
+            MethodVisitor foo = writer.visitMethod(Opcodes.ACC_PUBLIC, "foo", "()V", null, null);
+            foo.visitCode();
+            foo.visitInsn(Opcodes.RETURN);
+            foo.visitMaxs(0, 1);
+            foo.visitEnd();
+        }
+        writer.visitEnd();
+        return writer.toByteArray();
+    }
+
+    private static List<String> methods(File jar, String cls) throws IOException {
+        byte[] data;
+        try (ZipFile zip = new ZipFile(jar)) {
+            ZipEntry entry = zip.getEntry(cls + ".class");
+            assertNotNull(entry, cls);
+            try (InputStream in = zip.getInputStream(entry)) {
+                ByteArrayOutputStream out = new ByteArrayOutputStream();
+                byte[] buf = new byte[8192];
+                for (int len; (len = in.read(buf)) != -1; )
+                    out.write(buf, 0, len);
+                data = out.toByteArray();
+            }
+        }
+
+        List<String> ret = new ArrayList<>();
+        new ClassReader(data).accept(new ClassVisitor(RenamerImpl.MAX_ASM_VERSION) {
+            @Override
+            public MethodVisitor visitMethod(int access, String name, String descriptor, String signature, String[] exceptions) {
+                ret.add(name);
+                return null;
+            }
+        }, ClassReader.SKIP_CODE);
+        return ret;
+    }
+}
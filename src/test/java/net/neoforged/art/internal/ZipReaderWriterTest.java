@@ -0,0 +1,384 @@
+/*
+ * Copyright (c) Forge Development LLC and contributors
+ * SPDX-License-Identifier: LGPL-2.1-only
+ */
+
+package net.neoforged.art.internal;
+
+import net.neoforged.art.api.Renamer;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.jar.JarEntry;
+import java.util.jar.JarInputStream;
+import java.util.jar.Manifest;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipException;
+import java.util.zip.ZipFile;
+import java.util.zip.ZipOutputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Round trips archives through {@link ZipReader} and {@link ZipWriter}, and checks them against {@code java.util.zip}.
+ */
+public class ZipReaderWriterTest {
+    // An even number of seconds, as DOS times only have a resolution of two seconds
+    private static final long TIME = 1_600_000_000_000L;
+    // Out of range for DOS times, so they are kept in extended or NTFS timestamps
+    private static final long BEFORE_1970 = -100_000_000_000L;
+    private static final long BEFORE_1980 = 100_000_000_000L;
+    private static final long AFTER_2107 = 4_500_000_000_000L;
+
+    @TempDir
+    Path tmp;
+
+    @Test
+    public void writtenArchiveIsReadByJdk() throws IOException {
+        Map<String, byte[]> entries = sampleEntries();
+        Path file = this.tmp.resolve("out.jar");
+        try (ZipWriter writer = new ZipWriter(Files.newOutputStream(file), Deflater.DEFAULT_COMPRESSION, Collections.singletonMap("txt", Renamer.Builder.STORED))) {
+            writer.addDirectory("META-INF/", TIME);
+            for (Map.Entry<String, byte[]> entry : entries.entrySet())
+                writer.write(writer.prepare(entry.getKey(), TIME, entry.getValue()));
+            writer.write(writer.prepare("old.bin", BEFORE_1980, new byte[] { 1 }));
+            writer.write(writer.prepare("new.bin", AFTER_2107, new byte[] { 2 }));
+            writer.write(writer.prepare("older.bin", BEFORE_1970, new byte[] { 3 }));
+        }
+
+        try (ZipFile zip = new ZipFile(file.toFile())) {
+            assertEquals(entries.size() + 4, zip.size());
+            assertTrue(zip.getEntry("META-INF/").isDirectory());
+            for (Map.Entry<String, byte[]> entry : entries.entrySet()) {
+                ZipEntry zipEntry = zip.getEntry(entry.getKey());
+                assertNotNull(zipEntry, entry.getKey());
+                assertEquals(entry.getKey().endsWith(".txt") ? ZipEntry.STORED : ZipEntry.DEFLATED, zipEntry.getMethod(), entry.getKey());
+                assertEquals(TIME, zipEntry.getTime(), entry.getKey());
+                assertEquals(entry.getValue().length, zipEntry.getSize(), entry.getKey());
+                assertArrayEquals(entry.getValue(), readAll(zip.getInputStream(zipEntry)), entry.getKey());
+            }
+            assertEquals(BEFORE_1980, zip.getEntry("old.bin").getTime());
+            assertEquals(AFTER_2107, zip.getEntry("new.bin").getTime());
+            assertEquals(BEFORE_1970, zip.getEntry("older.bin").getTime());
+        }
+
+        try (ZipReader reader = new ZipReader(file)) {
+            Map<String, Long> times = new HashMap<>();
+            for (ZipReader.Record record : reader.getRecords())
+                times.put(record.getName(), record.getTime());
+            assertEquals(BEFORE_1980, (long) times.get("old.bin"));
+            assertEquals(AFTER_2107, (long) times.get("new.bin"));
+            assertEquals(BEFORE_1970, (long) times.get("older.bin"));
+        }
+
+        // Reads the local headers instead of the central directory
+        try (JarInputStream jar = new JarInputStream(Files.newInputStream(file))) {
+            Manifest manifest = jar.getManifest();
+            assertNotNull(manifest);
+            assertEquals("1.0", manifest.getMainAttributes().getValue("Manifest-Version"));
+            Map<String, byte[]> read = new LinkedHashMap<>();
+            for (JarEntry entry; (entry = jar.getNextJarEntry()) != null; )
+                read.put(entry.getName(), readAll(jar));
+            for (Map.Entry<String, byte[]> entry : entries.entrySet()) {
+                if (!entry.getKey().equals("META-INF/MANIFEST.MF"))
+                    assertArrayEquals(entry.getValue(), read.get(entry.getKey()), entry.getKey());
+            }
+        }
+    }
+
+    @Test
+    public void readsArchiveWrittenByJdk() throws IOException {
+        Map<String, byte[]> entries = sampleEntries();
+        Path file = this.tmp.resolve("in.jar");
+        writeWithJdk(file, entries);
+
+        try (ZipReader reader = new ZipReader(file)) {
+            List<ZipReader.Record> records = reader.getRecords();
+            assertEquals(new ArrayList<>(entries.keySet()), names(records));
+            for (ZipReader.Record record : records) {
+                byte[] data = entries.get(record.getName());
+                assertEquals(record.getName().endsWith(".txt") ? ZipReader.STORED : ZipReader.DEFLATED, record.getMethod(), record.getName());
+                assertEquals(data.length, record.getSize(), record.getName());
+                assertEquals((int) crc(data), record.getCrc(), record.getName());
+                // The extended timestamp of the entry wins over its DOS time
+                assertEquals(BEFORE_1980, record.getTime(), record.getName());
+                assertArrayEquals(data, record.read(), record.getName());
+            }
+        }
+    }
+
+    @Test
+    public void readsArchiveWithPrefix() throws IOException {
+        Map<String, byte[]> entries = sampleEntries();
+        Path plain = this.tmp.resolve("plain.jar");
+        writeWithJdk(plain, entries);
+        Path prefixed = this.tmp.resolve("prefixed.jar");
+        writePrefixed(plain, prefixed);
+
+        for (boolean map : new boolean[] { false, true }) {
+            try (ZipReader reader = new ZipReader(prefixed, map); ZipFile zip = new ZipFile(prefixed.toFile())) {
+                assertEquals(new ArrayList<>(entries.keySet()), names(reader.getRecords()));
+                for (ZipReader.Record record : reader.getRecords()) {
+                    assertArrayEquals(entries.get(record.getName()), record.read(), record.getName());
+                    assertArrayEquals(readAll(zip.getInputStream(zip.getEntry(record.getName()))), record.read(), record.getName());
+                }
+            }
+        }
+    }
+
+    @Test
+    public void copiesRawData() throws IOException {
+        Map<String, byte[]> entries = sampleEntries();
+        Path input = this.tmp.resolve("in.jar");
+        writeWithJdk(input, entries);
+        Path output = this.tmp.resolve("out.jar");
+
+        try (ZipReader reader = new ZipReader(input);
+             ZipWriter writer = new ZipWriter(Files.newOutputStream(output), Deflater.BEST_SPEED, Collections.singletonMap("txt", Renamer.Builder.STORED))) {
+            for (ZipReader.Record record : reader.getRecords()) {
+                assertTrue(writer.canCopy(record.getName(), record), record.getName());
+                writer.write(writer.prepareRaw(record.getName(), record.getTime(), record));
+            }
+
+            // Stored data can't be copied for a name that is deflated, nor the other way around
+            ZipReader.Record stored = reader.getRecords().stream().filter(r -> r.getMethod() == ZipReader.STORED).findFirst().get();
+            assertFalse(writer.canCopy("stored.bin", stored));
+            assertThrows(ZipException.class, () -> writer.prepareRaw("stored.bin", TIME, stored));
+            ZipReader.Record deflated = reader.getRecords().stream().filter(r -> r.getMethod() == ZipReader.DEFLATED).findFirst().get();
+            assertFalse(writer.canCopy("deflated.txt", deflated));
+        }
+
+        try (ZipFile input1 = new ZipFile(input.toFile()); ZipFile output1 = new ZipFile(output.toFile())) {
+            for (Map.Entry<String, byte[]> entry : entries.entrySet()) {
+                ZipEntry in = input1.getEntry(entry.getKey());
+                ZipEntry out = output1.getEntry(entry.getKey());
+                assertEquals(in.getMethod(), out.getMethod(), entry.getKey());
+                assertEquals(in.getCompressedSize(), out.getCompressedSize(), entry.getKey());
+                assertEquals(in.getCrc(), out.getCrc(), entry.getKey());
+                assertArrayEquals(entry.getValue(), readAll(output1.getInputStream(out)), entry.getKey());
+            }
+        }
+        try (JarInputStream jar = new JarInputStream(Files.newInputStream(output))) {
+            assertNotNull(jar.getManifest());
+            int count = 1; // The manifest is not returned as an entry
+            for (JarEntry entry; (entry = jar.getNextJarEntry()) != null; count++)
+                assertArrayEquals(entries.get(entry.getName()), readAll(jar), entry.getName());
+            assertEquals(entries.size(), count);
+        }
+    }
+
+    @Test
+    public void writesZip64EndRecordForManyEntries() throws IOException {
+        int count = 0xFFFF + 1;
+        Path file = this.tmp.resolve("many.zip");
+        try (ZipWriter writer = new ZipWriter(Files.newOutputStream(file), Renamer.Builder.STORED, Collections.emptyMap())) {
+            for (int i = 0; i < count; i++)
+                writer.write(writer.prepare(entryName(i), TIME, data(i)));
+        }
+
+        try (ZipFile zip = new ZipFile(file.toFile())) {
+            assertEquals(count, zip.size());
+            for (int i : new int[] { 0, 0xFFFE, 0xFFFF, count - 1 })
+                assertArrayEquals(data(i), readAll(zip.getInputStream(zip.getEntry(entryName(i)))));
+        }
+        try (JarInputStream jar = new JarInputStream(Files.newInputStream(file))) {
+            int read = 0;
+            for (JarEntry entry; (entry = jar.getNextJarEntry()) != null; read++)
+                assertEquals(entryName(read), entry.getName());
+            assertEquals(count, read);
+        }
+
+        // The JDK can't read a Zip64 archive with a prefix, so this only compares against the entries that were written
+        Path prefixed = this.tmp.resolve("prefixed.zip");
+        writePrefixed(file, prefixed);
+        for (Path path : new Path[] { file, prefixed }) {
+            try (ZipReader reader = new ZipReader(path)) {
+                List<ZipReader.Record> records = reader.getRecords();
+                assertEquals(count, records.size());
+                for (int i : new int[] { 0, 0xFFFE, 0xFFFF, count - 1 }) {
+                    assertEquals(entryName(i), records.get(i).getName());
+                    assertArrayEquals(data(i), records.get(i).read());
+                }
+            }
+        }
+    }
+
+    @Test
+    public void readsZip64ArchiveWrittenByJdk() throws IOException {
+        int count = 0xFFFF + 10;
+        Path file = this.tmp.resolve("many.zip");
+        try (ZipOutputStream out = new ZipOutputStream(Files.newOutputStream(file))) {
+            for (int i = 0; i < count; i++) {
+                out.putNextEntry(new ZipEntry(entryName(i)));
+                out.write(data(i));
+                out.closeEntry();
+            }
+        }
+
+        try (ZipReader reader = new ZipReader(file)) {
+            List<ZipReader.Record> records = reader.getRecords();
+            assertEquals(count, records.size());
+            for (int i : new int[] { 0, 0xFFFF, count - 1 })
+                assertArrayEquals(data(i), records.get(i).read());
+        }
+    }
+
+    @Test
+    public void copiesEntryLargerThan4GiB() throws IOException {
+        // Only the sizes in the headers matter, so the data does not actually inflate to the size it claims
+        long size = 0x1_0000_1000L;
+        byte[] compressed = deflate("not really large".getBytes(StandardCharsets.UTF_8));
+        Path input = this.tmp.resolve("in.zip");
+        writeZip64Entry(input, "large.bin", compressed, size);
+        Path output = this.tmp.resolve("out.zip");
+
+        try (ZipReader reader = new ZipReader(input); ZipWriter writer = new ZipWriter(Files.newOutputStream(output))) {
+            ZipReader.Record record = reader.getRecords().get(0);
+            assertEquals(size, record.getSize());
+            writer.write(writer.prepareRaw(record.getName(), record.getTime(), record));
+        }
+
+        try (ZipFile zip = new ZipFile(output.toFile())) {
+            ZipEntry entry = zip.getEntry("large.bin");
+            assertEquals(size, entry.getSize());
+            assertEquals(compressed.length, entry.getCompressedSize());
+        }
+        try (ZipReader reader = new ZipReader(output)) {
+            ZipReader.Record record = reader.getRecords().get(0);
+            assertEquals(size, record.getSize());
+            assertEquals(ByteBuffer.wrap(compressed), record.readRaw());
+        }
+
+        // The local header has both sizes in its Zip64 extended information
+        ByteBuffer local = ByteBuffer.wrap(Files.readAllBytes(output)).order(ByteOrder.LITTLE_ENDIAN);
+        assertEquals(0xFFFFFFFF, local.getInt(18));
+        assertEquals(0xFFFFFFFF, local.getInt(22));
+        int extra = 30 + (local.getShort(26) & 0xFFFF);
+        assertEquals(0x0001, local.getShort(extra));
+        assertEquals(16, local.getShort(extra + 2));
+        assertEquals(size, local.getLong(extra + 4));
+        assertEquals(compressed.length, local.getLong(extra + 12));
+    }
+
+    private static Map<String, byte[]> sampleEntries() {
+        Map<String, byte[]> ret = new LinkedHashMap<>();
+        ret.put("META-INF/MANIFEST.MF", "Manifest-Version: 1.0\r\n\r\n".getBytes(StandardCharsets.UTF_8));
+        ret.put("a/Example.class", data(1000));
+        ret.put("a/empty.bin", new byte[0]);
+        ret.put("readme.txt", "Stored as it is".getBytes(StandardCharsets.UTF_8));
+        ret.put("\u00fcnicode/\u00e9ntry.bin", data(42));
+        return ret;
+    }
+
+    private static void writeWithJdk(Path file, Map<String, byte[]> entries) throws IOException {
+        try (ZipOutputStream out = new ZipOutputStream(Files.newOutputStream(file))) {
+            for (Map.Entry<String, byte[]> entry : entries.entrySet()) {
+                ZipEntry zipEntry = new ZipEntry(entry.getKey());
+                zipEntry.setLastModifiedTime(FileTime.fromMillis(BEFORE_1980));
+                if (entry.getKey().endsWith(".txt")) {
+                    zipEntry.setMethod(ZipEntry.STORED);
+                    zipEntry.setSize(entry.getValue().length);
+                    zipEntry.setCrc(crc(entry.getValue()));
+                }
+                out.putNextEntry(zipEntry);
+                out.write(entry.getValue());
+                out.closeEntry();
+            }
+        }
+    }
+
+    /**
+     * Copies the given archive with a shell script in front of it, like self-executing JARs have.
+     */
+    private static void writePrefixed(Path from, Path to) throws IOException {
+        try (OutputStream out = Files.newOutputStream(to)) {
+            out.write("#!/bin/sh\nexec java -jar \"$0\" \"$@\"\n".getBytes(StandardCharsets.UTF_8));
+            Files.copy(from, out);
+        }
+    }
+
+    /**
+     * Writes an archive with a single deflated entry, whose sizes are only given in its Zip64 extended information.
+     */
+    private static void writeZip64Entry(Path file, String name, byte[] compressed, long size) throws IOException {
+        byte[] nameBytes = name.getBytes(StandardCharsets.UTF_8);
+        ByteBuffer buf = ByteBuffer.allocate(200 + 2 * nameBytes.length + compressed.length).order(ByteOrder.LITTLE_ENDIAN);
+        int[] header = { 45, 0x800, ZipEntry.DEFLATED, (int) ZipWriter.javaToDosTime(TIME) };
+        buf.putInt(0x04034b50).putShort((short) header[0]).putShort((short) header[1]).putShort((short) header[2]).putInt(header[3]);
+        buf.putInt(0x12345678).putInt(-1).putInt(-1).putShort((short) nameBytes.length).putShort((short) 20).put(nameBytes);
+        buf.putShort((short) 0x0001).putShort((short) 16).putLong(size).putLong(compressed.length).put(compressed);
+
+        int cenOffset = buf.position();
+        buf.putInt(0x02014b50).putShort((short) header[0]).putShort((short) header[0]).putShort((short) header[1]).putShort((short) header[2]).putInt(header[3]);
+        buf.putInt(0x12345678).putInt(-1).putInt(-1).putShort((short) nameBytes.length).putShort((short) 20);
+        buf.putShort((short) 0).putShort((short) 0).putShort((short) 0).putInt(0).putInt(0).put(nameBytes);
+        buf.putShort((short) 0x0001).putShort((short) 16).putLong(size).putLong(compressed.length);
+        int cenSize = buf.position() - cenOffset;
+
+        buf.putInt(0x06054b50).putShort((short) 0).putShort((short) 0).putShort((short) 1).putShort((short) 1).putInt(cenSize).putInt(cenOffset).putShort((short) 0);
+        Files.write(file, Arrays.copyOf(buf.array(), buf.position()));
+    }
+
+    private static List<String> names(List<ZipReader.Record> records) {
+        List<String> ret = new ArrayList<>();
+        for (ZipReader.Record record : records)
+            ret.add(record.getName());
+        return ret;
+    }
+
+    private static String entryName(int index) {
+        return "entries/" + (index / 1000) + "/" + index + ".bin";
+    }
+
+    private static byte[] data(int seed) {
+        byte[] ret = new byte[seed % 97 + 1];
+        for (int i = 0; i < ret.length; i++)
+            ret[i] = (byte) (seed * 31 + i / 3);
+        return ret;
+    }
+
+    private static long crc(byte[] data) {
+        CRC32 crc = new CRC32();
+        crc.update(data, 0, data.length);
+        return crc.getValue();
+    }
+
+    private static byte[] deflate(byte[] data) {
+        Deflater deflater = new Deflater(Deflater.DEFAULT_COMPRESSION, true);
+        deflater.setInput(data);
+        deflater.finish();
+        ByteArrayOutputStream ret = new ByteArrayOutputStream();
+        byte[] buf = new byte[256];
+        while (!deflater.finished())
+            ret.write(buf, 0, deflater.deflate(buf));
+        deflater.end();
+        return ret.toByteArray();
+    }
+
+    private static byte[] readAll(InputStream in) throws IOException {
+        ByteArrayOutputStream ret = new ByteArrayOutputStream();
+        byte[] buf = new byte[8192];
+        for (int len; (len = in.read(buf)) != -1; )
+            ret.write(buf, 0, len);
+        return ret.toByteArray();
+    }
+}